@@ -1,20 +1,42 @@
 package com.webscraper.api.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.webscraper.api.dto.ScraperBody;
+import com.webscraper.application.ports.ImageContentService;
+import com.webscraper.application.ports.ImageExportService;
+import com.webscraper.domain.entities.ImageContent;
+import com.webscraper.domain.entities.ImagePage;
 import com.webscraper.domain.entities.ProxyInfo;
 
 import com.webscraper.domain.services.ScraperService;
+import com.webscraper.infrastructure.db.entities.ImageEntity;
+import com.webscraper.infrastructure.image.storage.ByteBufferResource;
+import com.webscraper.infrastructure.utils.URLUtil;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-
+import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.NoSuchFileException;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
@@ -26,7 +48,16 @@ import java.util.stream.Collectors;
 @RequestMapping("/api")
 public class ScraperController {
 
+    /**
+     * Async timeout of an export; an archive of a large site takes far longer than the default 30 seconds,
+     * and a stalled client is still cut off by the connector's write timeout.
+     */
+    private static final long EXPORT_TIMEOUT_MILLIS = -1;
+
     private final ScraperService scraperService;
+    private final ImageContentService imageContentService;
+    private final ImageExportService imageExportService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Starts the scraping process with the provided parameters and returns a session ID.
@@ -85,17 +116,97 @@ public class ScraperController {
     }
 
     /**
-     * Returns information about images for the specified site.
+     * Returns one page of information about images for the specified site.
+     * The body is {@code {"images": [...], "nextCursor": ...}} and is serialized image by image
+     * straight to the response; pass {@code nextCursor} back as {@code cursor} to get the next page.
      *
-     * @param site the domain name to retrieve images for
+     * @param site   the domain name to retrieve images for
+     * @param cursor the cursor returned with the previous page, or absent for the first page
+     * @param limit  the maximum number of images in the page
      * @return a ResponseEntity with image information or a message if none found
      */
     @GetMapping("/images")
-    public ResponseEntity<?> getImagesInfo(@RequestParam String site) {
-        var images = scraperService.getImageInfoBySite(site);
-        if (images == null || images.isEmpty()) {
+    public ResponseEntity<?> getImagesInfo(@RequestParam String site,
+                                           @RequestParam(required = false) Long cursor,
+                                           @RequestParam(defaultValue = "100") int limit) {
+        ImagePage page = scraperService.getImageInfoBySite(site, cursor, limit);
+        if (cursor == null && page.images().isEmpty()) {
             return ResponseEntity.status(HttpStatus.NO_CONTENT).body("No images found for the site " + site);
         }
-        return ResponseEntity.ok(images);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("images");
+                for (var image : page.images()) {
+                    objectMapper.writeValue(json, image);
+                }
+                json.writeEndArray();
+                json.writeObjectField("nextCursor", page.nextCursor());
+                json.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Returns the stored bytes of an image. The body is served from the storage buffer without copying;
+     * Range requests get 206 responses with the requested byte ranges, and the ETag is derived from the
+     * content hash so clients can revalidate with If-None-Match.
+     *
+     * @param id      the image id
+     * @param request the current request, used for conditional requests
+     * @return the image bytes, 304 if the client copy is current, or 404 if the image or its file is missing
+     * @throws IOException if the stored file cannot be read
+     */
+    @GetMapping("/images/{id}/content")
+    public ResponseEntity<Resource> getImageContent(@PathVariable long id, WebRequest request) throws IOException {
+        Optional<ImageEntity> image = imageContentService.findImage(id);
+        if (image.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = imageContentService.entityTag(image.get());
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        ImageContent content;
+        try {
+            content = imageContentService.readContent(image.get());
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.notFound().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(content.mediaType()))
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (eTag != null) {
+            response.eTag(eTag);
+        }
+        return response.body(new ByteBufferResource(content.data(), image.get().getPath()));
+    }
+
+    /**
+     * Exports the stored images of a site as a zip archive with a {@code manifest.jsonl} of their rows.
+     * The archive is written straight to the response while the rows are paged from the database,
+     * so nothing is staged on disk or in memory.
+     *
+     * @param site    the domain name, or a URL of the site
+     * @param request the current request, whose async timeout is lifted for the export
+     * @return a ResponseEntity streaming the archive
+     */
+    @GetMapping("/images/export")
+    public ResponseEntity<StreamingResponseBody> exportImages(@RequestParam String site, WebRequest request) {
+        String fileName = URLUtil.toDomain(site) + "-images.zip";
+        // Тайм-аут задається лише для цього запиту, інші async-ендпоінти лишаються з типовим
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ImageExportService.class,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest asyncRequest, Callable<T> task) {
+                        ((AsyncWebRequest) asyncRequest).setTimeout(EXPORT_TIMEOUT_MILLIS);
+                    }
+                });
+        StreamingResponseBody body = out -> imageExportService.exportSite(site, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
     }
 }
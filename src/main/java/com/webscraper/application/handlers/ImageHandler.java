@@ -1,40 +1,42 @@
 package com.webscraper.application.handlers;
 
 import com.webscraper.domain.entities.ScraperSession;
-import com.webscraper.application.ports.ImageProcessingService;
+import com.webscraper.application.ports.ConnectionWarmupService;
+import com.webscraper.application.services.ImageJobQueue;
 import com.webscraper.infrastructure.utils.LinkExtractorUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.nodes.Document;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
 
 /**
  * Handles processing of images found in a web page.
- * Extracts images from the document and processes them asynchronously.
+ * Extracts images from the document and queues them for processing, blocking while the image queue is full.
  */
 @Slf4j
 @Component
 public class ImageHandler implements ContentHandler {
 
-    private final ImageProcessingService imageProcessingService;
-    private final ExecutorService imageExecutor;
+    private final ImageJobQueue imageJobQueue;
+    private final ConnectionWarmupService connectionWarmupService;
 
     /**
-     * Constructs an ImageHandler with the specified image processing service and executor.
+     * Constructs an ImageHandler with the specified image job queue.
      *
-     * @param imageProcessingService service for processing images
-     * @param imageExecutor          executor for asynchronous image processing tasks
+     * @param imageJobQueue           bounded priority queue the images are processed from
+     * @param connectionWarmupService service pre-connecting to image hosts while images wait in the queue
      */
     @Autowired
-    public ImageHandler(ImageProcessingService imageProcessingService,
-                        @Qualifier("imageExecutor") ExecutorService imageExecutor) {
-        this.imageProcessingService = imageProcessingService;
-        this.imageExecutor = imageExecutor;
+    public ImageHandler(ImageJobQueue imageJobQueue,
+                        ConnectionWarmupService connectionWarmupService) {
+        this.imageJobQueue = imageJobQueue;
+        this.connectionWarmupService = connectionWarmupService;
     }
 
     /**
@@ -56,18 +58,21 @@ public class ImageHandler implements ContentHandler {
         images.addAll(LinkExtractorUtil.extractAnchorImageLinks(document));
 
         Set<String> visitedImages = session.getVisitedImagesUrl();
+        Map<String, Long> declaredSizes = LinkExtractorUtil.extractDeclaredImageSizes(document);
 
-        return CompletableFuture.allOf(
-                images.stream()
-                        .filter(visitedImages::add)
-                        .map(image -> CompletableFuture.runAsync(
-                                () -> imageProcessingService.processImage(image, session.getDomain()),
-                                imageExecutor
-                        ).exceptionally(ex -> {
-                            log.error("Error processing image {}: {}", image, ex.getMessage());
-                            return null;
-                        }))
-                        .toArray(CompletableFuture[]::new)
-        );
+        List<CompletableFuture<Void>> jobs = new ArrayList<>();
+        for (String image : images) {
+            if (!visitedImages.add(image)) {
+                continue;
+            }
+            connectionWarmupService.warmUpImageHost(image);
+            try {
+                jobs.add(imageJobQueue.submit(image, session, declaredSizes.get(image)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return CompletableFuture.allOf(jobs.toArray(CompletableFuture[]::new));
     }
 }
@@ -0,0 +1,24 @@
+package com.webscraper.application.ports;
+
+import com.webscraper.domain.entities.ScraperSession;
+
+/**
+ * Service interface for resolving and connecting to hosts ahead of the first request to them.
+ */
+public interface ConnectionWarmupService {
+
+    /**
+     * Asynchronously warms up the host of a page URL that entered the frontier.
+     *
+     * @param url     the page URL
+     * @param session the current scraping session
+     */
+    void warmUpPageHost(String url, ScraperSession session);
+
+    /**
+     * Asynchronously warms up the host of an image URL that entered the image queue.
+     *
+     * @param url the image URL
+     */
+    void warmUpImageHost(String url);
+}
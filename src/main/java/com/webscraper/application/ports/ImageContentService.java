@@ -0,0 +1,38 @@
+package com.webscraper.application.ports;
+
+import com.webscraper.domain.entities.ImageContent;
+import com.webscraper.infrastructure.db.entities.ImageEntity;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Service interface for serving the stored bytes of processed images.
+ */
+public interface ImageContentService {
+
+    /**
+     * Finds a stored image by its id.
+     *
+     * @param id the image id
+     * @return the image, or empty if there is none
+     */
+    Optional<ImageEntity> findImage(long id);
+
+    /**
+     * Returns the validator of the stored bytes of an image, derived from its content hash.
+     *
+     * @param image the image
+     * @return the entity tag, or null if the image has no content hash
+     */
+    String entityTag(ImageEntity image);
+
+    /**
+     * Reads the stored bytes of an image.
+     *
+     * @param image the image
+     * @return the stored bytes and their media type
+     * @throws IOException if the stored file cannot be read
+     */
+    ImageContent readContent(ImageEntity image) throws IOException;
+}
@@ -0,0 +1,19 @@
+package com.webscraper.application.ports;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Service interface for exporting the stored images of a site as an archive.
+ */
+public interface ImageExportService {
+
+    /**
+     * Writes a zip archive of the stored images of a site and a manifest of their rows.
+     *
+     * @param site the domain, or a URL of the site
+     * @param out  the stream the archive is written to; it is flushed but not closed
+     * @throws IOException if writing to {@code out} fails
+     */
+    void exportSite(String site, OutputStream out) throws IOException;
+}
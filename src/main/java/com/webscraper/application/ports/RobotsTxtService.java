@@ -2,6 +2,8 @@ package com.webscraper.application.ports;
 
 import crawlercommons.robots.BaseRobotRules;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Service interface for retrieving and checking robots.txt rules for a domain.
  */
@@ -15,6 +17,16 @@ public interface RobotsTxtService {
      */
     BaseRobotRules getRules(String domain);
 
+    /**
+     * Returns the robots.txt rules for the scheme and host of the given URL.
+     * Rules are cached per scheme and host; the first URL of a host starts an asynchronous fetch,
+     * later URLs get an already completed future.
+     *
+     * @param url the URL whose host rules are requested
+     * @return a future of the parsed {@link BaseRobotRules}, completed with null if the host has no usable robots.txt
+     */
+    CompletableFuture<BaseRobotRules> getRulesFor(String url);
+
     /**
      * Determines whether the given URL is allowed to be crawled according to the provided robots.txt rules.
      *
@@ -0,0 +1,22 @@
+package com.webscraper.application.ports;
+
+import crawlercommons.robots.BaseRobotRules;
+
+import java.util.function.Predicate;
+
+/**
+ * Service interface for discovering page URLs through a site's sitemaps.
+ */
+public interface SitemapService {
+
+    /**
+     * Reads the sitemaps of the site (the {@code Sitemap:} lines of robots.txt, or {@code /sitemap.xml})
+     * and passes the URL of every listed page to the consumer as it is parsed.
+     *
+     * @param startUrl the starting URL of the site
+     * @param rules    the robots.txt rules of the site; may be null
+     * @param consumer receives each page URL; returning false stops reading
+     * @return the number of URLs passed to the consumer
+     */
+    long readSitemaps(String startUrl, BaseRobotRules rules, Predicate<String> consumer);
+}
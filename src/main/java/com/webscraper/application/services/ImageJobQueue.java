@@ -0,0 +1,223 @@
+package com.webscraper.application.services;
+
+import com.webscraper.application.ports.ImageProcessingService;
+import com.webscraper.domain.entities.ScraperSession;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded priority queue of images waiting to be processed, drained by a fixed number of worker loops on the
+ * image executor. Submitting blocks while the queue is full, which holds back the processor worker and, through
+ * the raw document queue, the crawler. Images with the largest expected savings are processed first: the pixel
+ * count declared in the page, weighted by how much the format usually shrinks when re-encoded. Jobs of a stopped
+ * session are dropped without being fetched.
+ */
+@Slf4j
+@Service
+public class ImageJobQueue {
+
+    /**
+     * The pixel count assumed for images whose page declares no size.
+     */
+    static final long DEFAULT_DECLARED_PIXELS = 640L * 480;
+    private static final long POLL_MILLIS = 100;
+
+    private final ImageProcessingService imageProcessingService;
+    private final PriorityBlockingQueue<ImageJob> queue = new PriorityBlockingQueue<>();
+    private final Semaphore capacity;
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean running = true;
+
+    private final Timer waitTimer;
+    private final Counter processed;
+    private final Counter failed;
+    private final Counter canceled;
+
+    /**
+     * Constructs an ImageJobQueue and starts its worker loops on the image executor.
+     *
+     * @param imageProcessingService service processing each image
+     * @param imageExecutor          executor running the worker loops
+     * @param workers                the number of images processed concurrently
+     * @param queueCapacity          the number of waiting images at which submitters block
+     * @param meterRegistry          the registry for queue metrics
+     */
+    public ImageJobQueue(ImageProcessingService imageProcessingService,
+                         @Qualifier("imageExecutor") ExecutorService imageExecutor,
+                         @Value("${crawler.imagePoolSize:10}") int workers,
+                         @Value("${crawler.imageQueueCapacity:10000}") int queueCapacity,
+                         MeterRegistry meterRegistry) {
+        this.imageProcessingService = imageProcessingService;
+        this.capacity = new Semaphore(Math.max(1, queueCapacity));
+        this.waitTimer = Timer.builder("scraper.images.jobs.wait")
+                .description("Time images wait in the job queue before a worker takes them")
+                .register(meterRegistry);
+        this.processed = meterRegistry.counter("scraper.images.jobs", "result", "processed");
+        this.failed = meterRegistry.counter("scraper.images.jobs", "result", "failed");
+        this.canceled = meterRegistry.counter("scraper.images.jobs", "result", "canceled");
+        meterRegistry.gaugeCollectionSize("scraper.images.jobs.queue", List.of(), queue);
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            imageExecutor.submit(this::run);
+        }
+    }
+
+    /**
+     * Queues an image, blocking while the queue is full unless the session is stopped meanwhile.
+     *
+     * @param imageUrl       the image URL
+     * @param session        the session the image was found in
+     * @param declaredPixels the pixel count declared by the page, or null if unknown
+     * @return a future completed once the image is processed, fails, or is dropped with its session
+     * @throws InterruptedException if interrupted while waiting for room in the queue
+     */
+    public CompletableFuture<Void> submit(String imageUrl, ScraperSession session, Long declaredPixels)
+            throws InterruptedException {
+        while (!capacity.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (session.isCanceled() || !running) {
+                canceled.increment();
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        ImageJob job = new ImageJob(imageUrl, session, expectedSavings(imageUrl, declaredPixels),
+                sequence.getAndIncrement(), System.nanoTime(), new CompletableFuture<>());
+        queue.add(job);
+        return job.done();
+    }
+
+    /**
+     * Drops every waiting image of a session, completing their futures.
+     *
+     * @param sessionId the id of the stopped session
+     * @return the number of images dropped
+     */
+    public int cancelSession(String sessionId) {
+        List<ImageJob> removed = new ArrayList<>();
+        queue.removeIf(job -> {
+            if (job.session().getSessionId().equals(sessionId)) {
+                removed.add(job);
+                return true;
+            }
+            return false;
+        });
+        capacity.release(removed.size());
+        canceled.increment(removed.size());
+        removed.forEach(job -> job.done().complete(null));
+        if (!removed.isEmpty()) {
+            log.info("Dropped {} queued images of session {}", removed.size(), sessionId);
+        }
+        return removed.size();
+    }
+
+    /**
+     * Returns the number of images waiting for a worker.
+     *
+     * @return the queue depth
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    /**
+     * Stops the worker loops after their current images.
+     */
+    @PreDestroy
+    public void close() {
+        running = false;
+    }
+
+    /**
+     * Estimates how much re-encoding an image saves, from its declared size and the format in its URL.
+     *
+     * @param imageUrl       the image URL
+     * @param declaredPixels the pixel count declared by the page, or null if unknown
+     * @return the priority of the image; higher is processed first
+     */
+    static double expectedSavings(String imageUrl, Long declaredPixels) {
+        long pixels = declaredPixels != null && declaredPixels > 0 ? declaredPixels : DEFAULT_DECLARED_PIXELS;
+        return pixels * formatWeight(imageUrl);
+    }
+
+    private static double formatWeight(String imageUrl) {
+        String path = imageUrl.toLowerCase(Locale.ROOT);
+        int end = path.length();
+        for (char terminator : new char[]{'?', '#'}) {
+            int index = path.indexOf(terminator);
+            if (index >= 0) {
+                end = Math.min(end, index);
+            }
+        }
+        path = path.substring(0, end);
+        // Нестиснені формати дають найбільшу економію, вже стиснені — найменшу
+        if (path.endsWith(".bmp") || path.endsWith(".tif") || path.endsWith(".tiff")) {
+            return 4.0;
+        }
+        if (path.endsWith(".png")) {
+            return 2.0;
+        }
+        if (path.endsWith(".gif")) {
+            return 0.5;
+        }
+        if (path.endsWith(".webp") || path.endsWith(".avif") || path.endsWith(".svg")) {
+            return 0.25;
+        }
+        return 1.0;
+    }
+
+    private void run() {
+        while (running) {
+            ImageJob job;
+            try {
+                job = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (job == null) {
+                continue;
+            }
+            capacity.release();
+            waitTimer.record(System.nanoTime() - job.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            if (job.session().isCanceled()) {
+                canceled.increment();
+                job.done().complete(null);
+                continue;
+            }
+            try {
+                imageProcessingService.processImage(job.imageUrl(), job.session().getDomain());
+                processed.increment();
+            } catch (Throwable e) {
+                // Помилка (навіть Error) не повинна зупиняти робочий потік
+                log.error("Error processing image {}: ", job.imageUrl(), e);
+                failed.increment();
+            } finally {
+                job.done().complete(null);
+            }
+        }
+    }
+
+    private record ImageJob(String imageUrl, ScraperSession session, double priority, long sequence,
+                            long enqueuedNanos, CompletableFuture<Void> done) implements Comparable<ImageJob> {
+
+        @Override
+        public int compareTo(ImageJob other) {
+            int byPriority = Double.compare(other.priority, priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -1,29 +1,69 @@
 package com.webscraper.application.services;
 
+import com.webscraper.application.ports.ConnectionWarmupService;
 import com.webscraper.domain.entities.QueueItem;
 import com.webscraper.domain.entities.ScraperSession;
+import com.webscraper.infrastructure.utils.URLUtil;
 import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
 import org.jsoup.nodes.Document;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Service
 @Data
 public class QueueService {
 
-    private final BlockingQueue<QueueItem<String>> urlQueue = new LinkedBlockingQueue<>(10_000);
+    private static final int URL_QUEUE_CAPACITY = 10_000;
+    /**
+     * Frontier slots sitemap seeding leaves free, so links found on crawled pages always have room.
+     */
+    private static final int LINK_RESERVE = URL_QUEUE_CAPACITY / 2;
+    private static final long SITEMAP_WAIT_MILLIS = 50;
+
+    private final BlockingQueue<QueueItem<String>> urlQueue = new LinkedBlockingQueue<>(URL_QUEUE_CAPACITY);
 
     private final BlockingQueue<QueueItem<Document>> rawDocumentsQueue = new LinkedBlockingQueue<>(10_000);
 
+    private final ConnectionWarmupService connectionWarmupService;
+
     public void addNewUrl(String url, ScraperSession session, int depth) {
-        urlQueue.add(new QueueItem<>(url, session, depth));
+        // Не блокуємо обробник документів: повна черга означає, що краулер і так відстає
+        if (!urlQueue.offer(new QueueItem<>(url, session, depth))) {
+            log.debug("URL queue is full; dropping link {}", url);
+            return;
+        }
+        if (URLUtil.isSameDomain(url, session.getDomain())) {
+            connectionWarmupService.warmUpPageHost(url, session);
+        }
     }
 
-    public void addRawDocument(Document doc, ScraperSession session, int depth) {
-        rawDocumentsQueue.add(new QueueItem<>(doc, session, depth));
+    /**
+     * Puts a URL read from a sitemap into the frontier, waiting while fewer than {@link #LINK_RESERVE} slots
+     * are free. The crawler takes URLs only as fast as its pool has room, so seeding is paced by the crawl.
+     */
+    public void putSitemapUrl(String url, ScraperSession session, int depth) throws InterruptedException {
+        while (urlQueue.remainingCapacity() <= LINK_RESERVE) {
+            if (session.isCanceled()) {
+                return;
+            }
+            TimeUnit.MILLISECONDS.sleep(SITEMAP_WAIT_MILLIS);
+        }
+        urlQueue.put(new QueueItem<>(url, session, depth));
+        connectionWarmupService.warmUpPageHost(url, session);
+    }
 
+    public void addRawDocument(Document doc, ScraperSession session, int depth) {
+        try {
+            // Блокуємось, поки обробка зображень не звільнить місце
+            rawDocumentsQueue.put(new QueueItem<>(doc, session, depth));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
     public QueueItem<String> getNextUrlItem() throws InterruptedException {
         return urlQueue.take();
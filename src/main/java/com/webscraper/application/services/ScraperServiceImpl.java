@@ -2,9 +2,11 @@ package com.webscraper.application.services;
 
 import com.google.common.util.concurrent.RateLimiter;
 import com.webscraper.application.ports.RobotsTxtService;
+import com.webscraper.application.ports.SitemapService;
 import com.webscraper.application.workers.ScraperEngine;
 import com.webscraper.domain.services.SessionService;
 import com.webscraper.infrastructure.db.entities.ImageEntity;
+import com.webscraper.domain.entities.ImagePage;
 import com.webscraper.domain.entities.ProxyInfo;
 import com.webscraper.domain.entities.ScraperSession;
 import com.webscraper.infrastructure.db.entities.ScraperSessionEntity;
@@ -12,9 +14,12 @@ import com.webscraper.infrastructure.db.repositories.ImageRepository;
 import com.webscraper.domain.services.ScraperService;
 import com.webscraper.infrastructure.mappers.ScraperSessionMapper;
 import com.webscraper.infrastructure.utils.ProxyCheckerUtil;
+import com.webscraper.infrastructure.utils.URLUtil;
 import crawlercommons.robots.BaseRobotRules;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.net.URI;
@@ -23,7 +28,6 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.stream.Collectors;
 
 /**
  * Service facade for starting and managing the scraping process.
@@ -32,12 +36,18 @@ import java.util.stream.Collectors;
 @Service
 public class ScraperServiceImpl implements ScraperService {
 
+    private static final int MAX_IMAGE_PAGE_SIZE = 1000;
+
     private final ExecutorService linkExecutor;
     private final RobotsTxtService robotsTxtService;
     private final ImageRepository imageRepository;
     private final ScraperEngine scraperEngine;
     private final QueueService queueService;
+    private final ImageJobQueue imageJobQueue;
     private final SessionService sessionService;
+    private final SitemapService sitemapService;
+    private final ExecutorService sitemapExecutor;
+    private final boolean sitemapSeedingEnabled;
 
     private final Map<String, ScraperSession> sessions = new ConcurrentHashMap<>();
     private final Map<String, CompletableFuture<Void>> activeSessions = new ConcurrentHashMap<>();
@@ -48,13 +58,21 @@ public class ScraperServiceImpl implements ScraperService {
                               ImageRepository imageRepository,
                               ScraperEngine scraperEngine,
                               QueueService queueService,
-                              SessionService sessionService) {
+                              ImageJobQueue imageJobQueue,
+                              SessionService sessionService,
+                              SitemapService sitemapService,
+                              @Qualifier("sitemapThreadPool") ExecutorService sitemapExecutor,
+                              @Value("${crawler.sitemap.enabled:true}") boolean sitemapSeedingEnabled) {
         this.linkExecutor = linkExecutor;
         this.robotsTxtService = robotsTxtService;
         this.imageRepository = imageRepository;
         this.scraperEngine = scraperEngine;
         this.queueService = queueService;
+        this.imageJobQueue = imageJobQueue;
         this.sessionService = sessionService;
+        this.sitemapService = sitemapService;
+        this.sitemapExecutor = sitemapExecutor;
+        this.sitemapSeedingEnabled = sitemapSeedingEnabled;
     }
 
     /**
@@ -99,7 +117,8 @@ public class ScraperServiceImpl implements ScraperService {
         CompletableFuture<Void> crawlingFuture = scraperEngine.startCrawling(session);
         activeSessions.put(sessionId, crawlingFuture);
         queueService.addNewUrl(url, session, 0);
-        
+        seedFromSitemaps(session);
+
         CompletableFuture<Set<String>> resultFuture = crawlingFuture.thenApplyAsync(
                 v -> Collections.unmodifiableSet(session.getVisitedLinksUrl()),
                 linkExecutor
@@ -123,6 +142,7 @@ public class ScraperServiceImpl implements ScraperService {
         ScraperSession session = sessions.get(sessionId);
         if (session != null) {
             session.setCanceled(true);
+            imageJobQueue.cancelSession(sessionId);
         }
         CompletableFuture<Void> future = activeSessions.get(sessionId);
         if (future != null && !future.isDone()) {
@@ -136,33 +156,65 @@ public class ScraperServiceImpl implements ScraperService {
 
 
     /**
-     * Retrieves image information for the given domain.
+     * Retrieves one page of image information for the given site, using the (domain, id) index
+     * so the cost of a page does not depend on the size of the table.
      *
-     * @param site the domain to filter images by (matching the host in originalUrl)
-     * @return a list of ImageEntity for the given domain
+     * @param site   the domain, or a URL of the site
+     * @param cursor the last id of the previous page, or null for the first page
+     * @param limit  the maximum number of images in the page, capped at {@value #MAX_IMAGE_PAGE_SIZE}
+     * @return the page of images and the cursor of the next one
      */
-    public List<ImageEntity> getImageInfoBySite(String site) {
-        List<ImageEntity> allImages = imageRepository.findAll();
-
-        return allImages.stream().filter(image -> {
-            try {
-                String[] path = image.getPath().split("\\\\");
-                URI uri = new URI(image.getOriginalUrl());
-                String domain = new URI(site).getHost();
-                return uri.getHost().equals(domain) || path[1].equals(domain);
-            } catch (URISyntaxException e) {
-                try {
-                    return site.equals(new URI(image.getOriginalUrl()).getHost());
-                } catch (URISyntaxException ex) {
-                    return false;
-                }
-            } catch (Exception e) {
-                return false;
-            }
-        }).collect(Collectors.toList());
+    @Override
+    public ImagePage getImageInfoBySite(String site, Long cursor, int limit) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_IMAGE_PAGE_SIZE);
+        List<ImageEntity> images = imageRepository.findByDomainAndIdGreaterThanOrderByIdAsc(
+                URLUtil.toDomain(site), cursor == null ? 0 : cursor, Limit.of(pageSize + 1));
+        if (images.size() > pageSize) {
+            return new ImagePage(images.subList(0, pageSize), images.get(pageSize - 1).getId());
+        }
+        return new ImagePage(images, null);
     }
 
 
+    /**
+     * Asynchronously reads the site's sitemaps and puts the listed pages into the frontier at depth 1.
+     * Waits while the frontier is half full; the crawler takes URLs only as fast as its pool has room,
+     * so a large sitemap is read only as fast as the crawl consumes it.
+     *
+     * @param session the session to seed
+     */
+    private void seedFromSitemaps(ScraperSession session) {
+        if (!sitemapSeedingEnabled) {
+            return;
+        }
+        robotsTxtService.getRulesFor(session.getUrl())
+                .thenAcceptAsync(rules -> {
+                    long read = sitemapService.readSitemaps(session.getUrl(), rules, url -> {
+                        if (session.isCanceled()) {
+                            return false;
+                        }
+                        String normalizedUrl = URLUtil.normalizeUrl(url);
+                        if (normalizedUrl == null
+                                || !URLUtil.isSameDomain(normalizedUrl, session.getDomain())
+                                || session.getVisitedLinksUrl().contains(normalizedUrl)) {
+                            return true;
+                        }
+                        try {
+                            queueService.putSitemapUrl(normalizedUrl, session, 1);
+                            return true;
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return false;
+                        }
+                    });
+                    log.info("Read {} URLs from sitemaps of {}", read, session.getDomain());
+                }, sitemapExecutor)
+                .exceptionally(ex -> {
+                    log.warn("Sitemap seeding failed for {}: {}", session.getDomain(), ex.getMessage());
+                    return null;
+                });
+    }
+
     private void setRateLimiterIfNeeded(ScraperSession session) {
         long delay = session.determineEffectiveDelay();
         if (delay > 0) {
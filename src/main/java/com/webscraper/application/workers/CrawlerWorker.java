@@ -5,25 +5,60 @@ import com.webscraper.application.ports.DocumentService;
 import com.webscraper.application.services.QueueService;
 import com.webscraper.application.ports.RobotsTxtService;
 import com.webscraper.infrastructure.utils.URLUtil;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 @Component
 @Slf4j
-@RequiredArgsConstructor
 public class CrawlerWorker {
     private final DocumentService documentService;
     private final RobotsTxtService robotsTxtService;
     private final ExecutorService crawlerThreadPool;
     private final QueueService queueService;
+    private final Semaphore crawlPermits;
 
-    public CompletableFuture<Void> crawl(String url, ScraperSession session, int depth) {
+    /**
+     * Constructs a CrawlerWorker.
+     *
+     * @param documentService   service fetching pages
+     * @param robotsTxtService  service checking robots.txt rules
+     * @param crawlerThreadPool pool the fetches run on
+     * @param queueService      queues fetched documents are handed to
+     * @param maxInFlight       the number of crawls in flight at which {@link #crawl} blocks; must not exceed
+     *                          what the crawler pool accepts, so a submitted URL is never rejected
+     */
+    public CrawlerWorker(DocumentService documentService,
+                         RobotsTxtService robotsTxtService,
+                         @Qualifier("crawlerThreadPool") ExecutorService crawlerThreadPool,
+                         QueueService queueService,
+                         @Value("${crawler.maxInFlight:1000}") int maxInFlight) {
+        this.documentService = documentService;
+        this.robotsTxtService = robotsTxtService;
+        this.crawlerThreadPool = crawlerThreadPool;
+        this.queueService = queueService;
+        this.crawlPermits = new Semaphore(Math.max(1, maxInFlight));
+    }
+
+    /**
+     * Crawls a URL, blocking while {@code maxInFlight} crawls are running so the frontier is consumed
+     * only as fast as the crawler pool has room.
+     *
+     * @param url     the URL to crawl
+     * @param session the session the URL belongs to
+     * @param depth   the crawl depth of the URL
+     * @return a CompletableFuture that completes when the page is fetched and queued, or skipped
+     * @throws InterruptedException if interrupted while waiting for room
+     */
+    public CompletableFuture<Void> crawl(String url, ScraperSession session, int depth) throws InterruptedException {
         if (session.isCanceled() || Thread.currentThread().isInterrupted()) {
             return CompletableFuture.completedFuture(null);
         }
@@ -31,34 +66,54 @@ public class CrawlerWorker {
         if (!shouldProcess(normalizedUrl, session, depth)) {
             return CompletableFuture.completedFuture(null);
         }
+        crawlPermits.acquire();
+        // Позначаємо як відвіданий лише тоді, коли для нього є місце в пулі
+        if (!session.getVisitedLinksUrl().add(normalizedUrl)) {
+            crawlPermits.release();
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> crawl = robotsTxtService.getRulesFor(normalizedUrl).thenCompose(rules -> {
+            if (!robotsTxtService.isAllowed(normalizedUrl, rules) || session.isCanceled()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return fetch(url, normalizedUrl, session, depth);
+        });
+        crawl.whenComplete((v, ex) -> crawlPermits.release());
+        return crawl;
+    }
 
+    private CompletableFuture<Void> fetch(String url, String normalizedUrl, ScraperSession session, int depth) {
         log.info("Crawling URL: {} at depth {}", normalizedUrl, depth);
-        return CompletableFuture.runAsync(() -> {
-                    try {
-                        Document doc = documentService.fetchDocument(url, session);
-                        if (doc != null) {
-                            queueService.addRawDocument(doc, session, depth);
+        try {
+            return CompletableFuture.runAsync(() -> {
+                        try {
+                            Document doc = documentService.fetchDocument(url, session);
+                            if (doc != null) {
+                                queueService.addRawDocument(doc, session, depth);
+                            }
+                        } catch (IOException e) {
+                            log.error("Crawling error: {}", e.getMessage());
                         }
-                    } catch (IOException e) {
-                        log.error("Crawling error: {}", e.getMessage());
-                    }
-                }, crawlerThreadPool)
-                .exceptionally(ex -> {
-                    log.error("Error processing URL: {}. Error: {}", normalizedUrl, ex.getMessage());
-                    return null;
-                });
+                    }, crawlerThreadPool)
+                    .exceptionally(ex -> {
+                        log.error("Error processing URL: {}. Error: {}", normalizedUrl, ex.getMessage());
+                        return null;
+                    });
+        } catch (RejectedExecutionException e) {
+            // URL не втрачено: інше посилання на нього зможе його додати знову
+            session.getVisitedLinksUrl().remove(normalizedUrl);
+            log.warn("Crawler pool rejected URL {}", normalizedUrl);
+            return CompletableFuture.completedFuture(null);
+        }
     }
 
     private boolean shouldProcess(String url, ScraperSession session, int currentDepth) {
-        if (currentDepth > session.getMaxDepth()) {
+        if (url == null || currentDepth > session.getMaxDepth()) {
             return false;
         }
         if (!URLUtil.isSameDomain(url, session.getDomain())) {
             return false;
         }
-        if (!robotsTxtService.isAllowed(url, session.getRobotsTxtRules())) {
-            return false;
-        }
-        return session.getVisitedLinksUrl().add(url);
+        return !session.getVisitedLinksUrl().contains(url);
     }
-}
\ No newline at end of file
+}
@@ -30,6 +30,9 @@ public class ProcessorWorker {
                 } catch (InterruptedException e) {
                     log.error("Processing thread interrupted", e);
                     Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    // Один зіпсований документ не повинен зупиняти обробку
+                    log.error("Failed to process document", e);
                 }
             }
             log.info("ProcessorWorker thread shutting down.");
@@ -0,0 +1,12 @@
+package com.webscraper.domain.entities;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Record representing the stored bytes of an image.
+ *
+ * @param data      a read-only buffer over the image bytes
+ * @param mediaType the media type of the bytes, e.g. "image/jpeg"
+ */
+public record ImageContent(ByteBuffer data, String mediaType) {
+}
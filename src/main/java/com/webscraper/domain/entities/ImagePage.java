@@ -0,0 +1,14 @@
+package com.webscraper.domain.entities;
+
+import com.webscraper.infrastructure.db.entities.ImageEntity;
+
+import java.util.List;
+
+/**
+ * Record representing one page of stored images, in id order.
+ *
+ * @param images     the images of the page
+ * @param nextCursor the cursor of the next page, or null if this is the last page
+ */
+public record ImagePage(List<ImageEntity> images, Long nextCursor) {
+}
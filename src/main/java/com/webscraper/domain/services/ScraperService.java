@@ -1,7 +1,7 @@
 package com.webscraper.domain.services;
 
+import com.webscraper.domain.entities.ImagePage;
 import com.webscraper.domain.entities.ProxyInfo;
-import com.webscraper.infrastructure.db.entities.ImageEntity;
 
 import java.net.URISyntaxException;
 import java.util.List;
@@ -32,5 +32,13 @@ public interface ScraperService {
      */
     boolean stopScraping(String sessionId);
 
-    List<ImageEntity> getImageInfoBySite(String site);
+    /**
+     * Returns one page of the images stored for a site.
+     *
+     * @param site   the domain, or a URL of the site
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit  the maximum number of images in the page
+     * @return the page of images and the cursor of the next one
+     */
+    ImagePage getImageInfoBySite(String site, Long cursor, int limit);
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.webscraper.infrastructure.db.configs;
+
+import com.webscraper.infrastructure.http.DnsCache;
+import com.webscraper.infrastructure.http.ProxyRoutePlanner;
+import com.webscraper.infrastructure.http.TlsContextRegistry;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration class for the HTTP client used to fetch HTML documents.
+ * The client keeps a keep-alive connection pool per route, i.e. per (proxy, host) pair.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    /**
+     * Creates the connection pool for document fetching.
+     *
+     * @param maxConnections         the total number of pooled connections
+     * @param maxConnectionsPerRoute the number of pooled connections per (proxy, host) route
+     * @param tlsContextRegistry     the registry providing shared TLS contexts per trust policy
+     * @param dnsCache               the cached DNS resolver
+     * @return a {@link PoolingHttpClientConnectionManager} shared by the document client and connection pre-warming
+     */
+    @Bean
+    public PoolingHttpClientConnectionManager documentConnectionManager(@Value("${crawler.http.maxConnections:200}") int maxConnections,
+                                                                        @Value("${crawler.http.maxConnectionsPerRoute:10}") int maxConnectionsPerRoute,
+                                                                        TlsContextRegistry tlsContextRegistry,
+                                                                        DnsCache dnsCache) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setTlsSocketStrategy(tlsContextRegistry.proxyAwareSocketStrategy())
+                .setDnsResolver(dnsCache)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofSeconds(10))
+                        .setSocketTimeout(Timeout.ofSeconds(30))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Creates the pooled HTTP client for document fetching.
+     *
+     * @param connectionManager  the document connection pool
+     * @param idleTimeoutSeconds how long an idle keep-alive connection is kept in the pool
+     * @return a {@link CloseableHttpClient} with proxy-aware routing and connection pooling
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient documentHttpClient(@Qualifier("documentConnectionManager") PoolingHttpClientConnectionManager connectionManager,
+                                                  @Value("${crawler.http.idleTimeoutSeconds:30}") long idleTimeoutSeconds) {
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setRoutePlanner(new ProxyRoutePlanner())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofSeconds(30))
+                        .setResponseTimeout(Timeout.ofSeconds(30))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(idleTimeoutSeconds))
+                .build();
+    }
+}
@@ -1,8 +1,15 @@
 package com.webscraper.infrastructure.db.configs;
 
-import org.apache.hc.client5.http.classic.HttpClient;
+import com.webscraper.infrastructure.http.DnsCache;
+import com.webscraper.infrastructure.http.TlsContextRegistry;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,21 +24,53 @@ import org.springframework.web.client.RestTemplate;
 public class RestTemplateConfig {
 
     /**
-     * Creates a RestTemplate bean with a custom HTTP client configuration.
+     * Creates the connection pool used by the RestTemplate for image downloads.
      *
-     * @param builder the RestTemplateBuilder to help create the RestTemplate
-     * @return a RestTemplate instance with a connection pool and timeouts configured
+     * @param tlsContextRegistry the registry providing the shared TLS context
+     * @param dnsCache           the cached DNS resolver
+     * @return a {@link PoolingHttpClientConnectionManager} shared by the RestTemplate and connection pre-warming
      */
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-        connectionManager.setMaxTotal(100);
-        connectionManager.setDefaultMaxPerRoute(20);
+    public PoolingHttpClientConnectionManager imageConnectionManager(TlsContextRegistry tlsContextRegistry, DnsCache dnsCache) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setTlsSocketStrategy(tlsContextRegistry.socketStrategy(TlsContextRegistry.TrustPolicy.SYSTEM))
+                .setDnsResolver(dnsCache)
+                .setMaxConnTotal(100)
+                .setMaxConnPerRoute(20)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(5000))
+                        .setSocketTimeout(Timeout.ofMilliseconds(5000))
+                        .build())
+                .build();
+    }
 
-        HttpClient httpClient = HttpClients.custom()
+    /**
+     * Creates the pooled HTTP client for image downloads, used directly for streaming and probing
+     * and underneath the RestTemplate.
+     *
+     * @param connectionManager the image connection pool
+     * @return a {@link CloseableHttpClient} with the image timeouts configured
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient imageHttpClient(@Qualifier("imageConnectionManager") PoolingHttpClientConnectionManager connectionManager) {
+        return HttpClients.custom()
                 .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(5000))
+                        .build())
                 .build();
+    }
+
+    /**
+     * Creates a RestTemplate bean with a custom HTTP client configuration.
+     *
+     * @param builder    the RestTemplateBuilder to help create the RestTemplate
+     * @param httpClient the pooled image HTTP client
+     * @return a RestTemplate instance with a connection pool and timeouts configured
+     */
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     @Qualifier("imageHttpClient") CloseableHttpClient httpClient) {
 
         HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
         requestFactory.setConnectTimeout(5000);
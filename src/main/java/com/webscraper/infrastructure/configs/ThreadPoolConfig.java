@@ -1,11 +1,16 @@
 package com.webscraper.infrastructure.db.configs;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -35,4 +40,84 @@ public class ThreadPoolConfig {
                 new ThreadFactoryBuilder().setNameFormat("processor-%d").build()
         );
     }
-}
\ No newline at end of file
+
+    // Пул для хеджованих запитів DocumentService
+    @Bean(name = "hedgeThreadPool")
+    public ExecutorService hedgeThreadPool() {
+        return new ThreadPoolExecutor(
+                0, // corePoolSize
+                20, // maximumPoolSize
+                60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("hedge-%d").build()
+        );
+    }
+
+    // Таймери для запуску хеджованих запитів
+    @Bean(name = "hedgeScheduler")
+    public ScheduledExecutorService hedgeScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("hedge-timer-%d").setDaemon(true).build()
+        );
+    }
+
+    // Пул для попереднього DNS-резолвінгу та відкриття з'єднань
+    @Bean(name = "warmupThreadPool")
+    public ExecutorService warmupThreadPool() {
+        return new ThreadPoolExecutor(
+                2, // corePoolSize
+                4, // maximumPoolSize
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(1000),
+                new ThreadFactoryBuilder().setNameFormat("warmup-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.DiscardPolicy()
+        );
+    }
+
+    // Пул для завантаження robots.txt
+    @Bean(name = "robotsThreadPool")
+    public ExecutorService robotsThreadPool() {
+        return new ThreadPoolExecutor(
+                4, // corePoolSize
+                4, // maximumPoolSize
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("robots-%d").setDaemon(true).build()
+        );
+    }
+
+    // Пул для читання sitemap
+    @Bean(name = "sitemapThreadPool")
+    public ExecutorService sitemapThreadPool() {
+        return new ThreadPoolExecutor(
+                2, // corePoolSize
+                2, // maximumPoolSize
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("sitemap-%d").setDaemon(true).build()
+        );
+    }
+
+    // Пул для пакетних перевірок дублікатів зображень у БД
+    @Bean(name = "dedupLookupThreadPool")
+    public ExecutorService dedupLookupThreadPool() {
+        return Executors.newFixedThreadPool(2,
+                new ThreadFactoryBuilder().setNameFormat("dedup-%d").setDaemon(true).build()
+        );
+    }
+
+    // Пул для початкового завантаження індексів зображень; окремо від пакетних перевірок,
+    // щоб повне сканування таблиці не блокувало isProcessed
+    @Bean(name = "indexRebuildThreadPool")
+    public ExecutorService indexRebuildThreadPool() {
+        return Executors.newFixedThreadPool(2,
+                new ThreadFactoryBuilder().setNameFormat("index-rebuild-%d").setDaemon(true).build()
+        );
+    }
+
+    // Пул для паралельного декодування великих зображень по смугах
+    @Bean(name = "imageTilePool", destroyMethod = "shutdown")
+    public ForkJoinPool imageTilePool(@Value("${images.tiling.parallelism:0}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -11,8 +11,15 @@ import lombok.*;
 @AllArgsConstructor
 @NoArgsConstructor
 public class ImageEntity {
+
+    /**
+     * Number of ids reserved by one call to {@code image_entity_id_seq}; must match the sequence increment.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "image_entity_id_seq")
+    @SequenceGenerator(name = "image_entity_id_seq", sequenceName = "image_entity_id_seq", allocationSize = ID_ALLOCATION_SIZE)
     private long id;
 
     @Column(name = "original_url", unique = true)
@@ -20,9 +27,36 @@ public class ImageEntity {
 
     private String path;
 
+    /**
+     * Domain of the crawl that found the image.
+     */
+    private String domain;
+
     @Column(name = "original_size")
     private long originalSize;
 
     @Column(name = "size_after_compression")
     private long sizeAfterCompression;
+
+    /**
+     * Whether the image was stored as downloaded because recompressing it would save too little.
+     */
+    @Column(name = "passthrough")
+    private boolean passthrough;
+
+    /**
+     * SHA-256 of the original image bytes; images with equal hashes share one stored file.
+     */
+    @Column(name = "content_hash")
+    private String contentHash;
+
+    /**
+     * Difference hash of the image; images a few bits apart are variants of the same picture.
+     */
+    @Column(name = "perceptual_hash")
+    private Long perceptualHash;
+
+    private Integer width;
+
+    private Integer height;
 }
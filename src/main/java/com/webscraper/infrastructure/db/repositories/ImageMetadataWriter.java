@@ -0,0 +1,291 @@
+package com.webscraper.infrastructure.db.repositories;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.webscraper.infrastructure.db.entities.ImageEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes image metadata asynchronously. Rows are queued by the processing threads and a single writer thread
+ * inserts them as multi-row {@code INSERT ... ON CONFLICT (original_url) DO NOTHING} statements, so a batch costs
+ * one round trip and a URL stored concurrently by another worker is skipped instead of failing the batch.
+ * If a batch fails anyway, its rows are retried one at a time, so a bad row fails only itself.
+ * Ids come from {@code image_entity_id_seq} in blocks of {@link ImageEntity#ID_ALLOCATION_SIZE}, the same
+ * pooled-lo scheme Hibernate uses, so one {@code nextval} covers many rows.
+ */
+@Slf4j
+@Component
+public class ImageMetadataWriter {
+
+    private static final String INSERT_PREFIX = "insert into image_entity (id, original_url, path, domain, original_size, "
+            + "size_after_compression, passthrough, content_hash, perceptual_hash, width, height) values ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_SUFFIX = " on conflict (original_url) do nothing returning original_url";
+    private static final String NEXT_ID_BLOCKS = "select nextval('image_entity_id_seq') from generate_series(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final long flushNanos;
+    private final BlockingQueue<PendingRow> queue;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private long nextId;
+    private long idBlockEnd;
+
+    private final Counter inserted;
+    private final Counter conflicts;
+    private final Counter failed;
+    private final Counter batches;
+
+    /**
+     * Constructs an ImageMetadataWriter and starts its writer thread.
+     *
+     * @param jdbcTemplate  the template for the batched inserts
+     * @param batchSize     the maximum number of rows per insert statement
+     * @param flushMillis   how long the first queued row may wait for others to join its batch
+     * @param queueCapacity the number of queued rows at which writers block until the database catches up
+     * @param meterRegistry the registry for writer metrics
+     */
+    public ImageMetadataWriter(JdbcTemplate jdbcTemplate,
+                               @Value("${images.metadata.batchSize:500}") int batchSize,
+                               @Value("${images.metadata.flushMillis:200}") long flushMillis,
+                               @Value("${images.metadata.queueCapacity:10000}") int queueCapacity,
+                               MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.inserted = meterRegistry.counter("scraper.images.metadata.rows", "result", "inserted");
+        this.conflicts = meterRegistry.counter("scraper.images.metadata.rows", "result", "conflict");
+        this.failed = meterRegistry.counter("scraper.images.metadata.rows", "result", "failed");
+        this.batches = meterRegistry.counter("scraper.images.metadata.batches");
+        meterRegistry.gaugeCollectionSize("scraper.images.metadata.queue", List.of(), queue);
+        this.writerThread = new ThreadFactoryBuilder().setNameFormat("image-metadata-writer-%d").setDaemon(true).build()
+                .newThread(this::run);
+        writerThread.start();
+    }
+
+    /**
+     * Queues an image row for insertion. Blocks while the queue is full.
+     *
+     * @param entity     the row to insert; its id is assigned when it is written
+     * @param onConflict run on the writer thread if a row with the same original URL already exists
+     * @param onFailure  run on the writer thread if the row could not be written at all
+     */
+    public void write(ImageEntity entity, Runnable onConflict, Runnable onFailure) {
+        PendingRow row = new PendingRow(entity, onConflict, onFailure, null);
+        try {
+            queue.put(row);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Не втрачаємо рядок: записуємо його напряму в потоці, що викликав
+            writeBatch(List.of(row));
+        }
+    }
+
+    /**
+     * Waits until every row queued before this call has been written.
+     */
+    public void flush() {
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        try {
+            queue.put(new PendingRow(null, null, null, flushed));
+            flushed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("Image metadata flush failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the remaining rows and stops the writer thread.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        writerThread.join();
+    }
+
+    private void run() {
+        List<PendingRow> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingRow first = queue.poll(flushNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushNanos;
+                while (batch.size() < batchSize && !batch.get(batch.size() - 1).isFlush()) {
+                    PendingRow next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Зупинка: дописуємо те, що вже в черзі
+                running = false;
+            }
+            writeBatch(batch);
+            batch.forEach(row -> {
+                if (row.isFlush()) {
+                    row.flushed().complete(null);
+                }
+            });
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<PendingRow> batch) {
+        Map<String, PendingRow> rows = new LinkedHashMap<>();
+        List<PendingRow> duplicates = new ArrayList<>();
+        for (PendingRow row : batch) {
+            if (!row.isFlush() && rows.putIfAbsent(row.entity().getOriginalUrl(), row) != null) {
+                duplicates.add(row);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            insert(List.copyOf(rows.values()));
+            duplicates.forEach(this::conflict);
+        } catch (Exception e) {
+            if (rows.size() + duplicates.size() == 1) {
+                fail(rows.values().iterator().next(), e);
+                return;
+            }
+            // Один поганий рядок не повинен губити весь пакет: повторюємо по одному
+            log.warn("Failed to write {} image rows, retrying one by one: {}", rows.size() + duplicates.size(), e.getMessage());
+            List<PendingRow> retry = new ArrayList<>(rows.values());
+            retry.addAll(duplicates);
+            for (PendingRow row : retry) {
+                try {
+                    insert(List.of(row));
+                } catch (Exception rowException) {
+                    fail(row, rowException);
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts rows with distinct original URLs in one statement, assigning ids to the inserted ones
+     * and running the conflict handler of the others.
+     */
+    private void insert(List<PendingRow> rows) {
+        long[] ids = allocateIds(rows.size());
+        Set<String> insertedUrls = new HashSet<>(jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(insertSql(rows.size()));
+            int i = 1;
+            for (int row = 0; row < rows.size(); row++) {
+                ImageEntity entity = rows.get(row).entity();
+                ps.setLong(i++, ids[row]);
+                ps.setString(i++, entity.getOriginalUrl());
+                ps.setString(i++, entity.getPath());
+                ps.setString(i++, entity.getDomain());
+                ps.setLong(i++, entity.getOriginalSize());
+                ps.setLong(i++, entity.getSizeAfterCompression());
+                ps.setBoolean(i++, entity.isPassthrough());
+                ps.setString(i++, entity.getContentHash());
+                ps.setObject(i++, entity.getPerceptualHash(), Types.BIGINT);
+                ps.setObject(i++, entity.getWidth(), Types.INTEGER);
+                ps.setObject(i++, entity.getHeight(), Types.INTEGER);
+            }
+            return ps;
+        }, (rs, rowNum) -> rs.getString(1)));
+        batches.increment();
+
+        for (int row = 0; row < rows.size(); row++) {
+            PendingRow pending = rows.get(row);
+            if (insertedUrls.contains(pending.entity().getOriginalUrl())) {
+                pending.entity().setId(ids[row]);
+                inserted.increment();
+            } else {
+                conflict(pending);
+            }
+        }
+    }
+
+    private void conflict(PendingRow row) {
+        conflicts.increment();
+        try {
+            row.onConflict().run();
+        } catch (Exception e) {
+            log.warn("Conflict handler for {} failed: {}", row.entity().getOriginalUrl(), e.getMessage());
+        }
+    }
+
+    private void fail(PendingRow row, Exception cause) {
+        failed.increment();
+        log.error("Failed to write image row {}: {}", row.entity().getOriginalUrl(), cause.getMessage());
+        try {
+            row.onFailure().run();
+        } catch (Exception e) {
+            log.warn("Failure handler for {} failed: {}", row.entity().getOriginalUrl(), e.getMessage());
+        }
+    }
+
+    /**
+     * Takes ids from the current sequence block, fetching as many new blocks as needed in one query.
+     */
+    private synchronized long[] allocateIds(int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count && nextId < idBlockEnd) {
+            ids[filled++] = nextId++;
+        }
+        if (filled < count) {
+            int blocks = (count - filled + ImageEntity.ID_ALLOCATION_SIZE - 1) / ImageEntity.ID_ALLOCATION_SIZE;
+            for (Long blockStart : jdbcTemplate.queryForList(NEXT_ID_BLOCKS, Long.class, blocks)) {
+                nextId = blockStart;
+                idBlockEnd = blockStart + ImageEntity.ID_ALLOCATION_SIZE;
+                while (filled < count && nextId < idBlockEnd) {
+                    ids[filled++] = nextId++;
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (INSERT_ROW.length() + 2) + INSERT_SUFFIX.length());
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(INSERT_ROW);
+        }
+        return sql.append(INSERT_SUFFIX).toString();
+    }
+
+    private record PendingRow(ImageEntity entity, Runnable onConflict, Runnable onFailure, CompletableFuture<Void> flushed) {
+
+        boolean isFlush() {
+            return entity == null;
+        }
+    }
+}
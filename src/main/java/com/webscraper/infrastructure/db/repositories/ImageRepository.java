@@ -1,9 +1,17 @@
 package com.webscraper.infrastructure.db.repositories;
 
 import com.webscraper.infrastructure.db.entities.ImageEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -28,4 +36,166 @@ public interface ImageRepository extends JpaRepository<ImageEntity, Long> {
      * @return true if an image with the given URL exists, false otherwise
      */
     boolean existsByOriginalUrl(String originalUrl);
-}
\ No newline at end of file
+
+    /**
+     * Finds a stored image with the given content, whatever URL it was downloaded from.
+     *
+     * @param contentHash the SHA-256 of the original image bytes
+     * @return an Optional containing one matching ImageEntity, or empty if the content is new
+     */
+    Optional<ImageEntity> findFirstByContentHash(String contentHash);
+
+    /**
+     * Returns the next page of images of a domain in id order (keyset pagination over the (domain, id) index).
+     *
+     * @param domain  the domain of the crawl that found the images
+     * @param afterId the last id of the previous page, or 0 for the first page
+     * @param limit   the page size
+     * @return the images of the page
+     */
+    List<ImageEntity> findByDomainAndIdGreaterThanOrderByIdAsc(String domain, long afterId, Limit limit);
+
+    /**
+     * Returns the next page of images of a domain in stored-path order (keyset pagination over the
+     * (domain, path, id) index), so reading their files walks the storage sequentially.
+     *
+     * @param domain    the domain of the crawl that found the images
+     * @param maxId     the largest id to include
+     * @param afterPath the path of the last image of the previous page, or "" for the first page
+     * @param afterId   the id of the last image of the previous page, or 0 for the first page
+     * @param limit     the page size
+     * @return the images of the page
+     */
+    @Query("select i from ImageEntity i where i.domain = :domain and i.id <= :maxId "
+            + "and (i.path > :afterPath or (i.path = :afterPath and i.id > :afterId)) order by i.path, i.id")
+    List<ImageEntity> findByDomainInPathOrder(@Param("domain") String domain, @Param("maxId") long maxId,
+                                              @Param("afterPath") String afterPath, @Param("afterId") long afterId,
+                                              Limit limit);
+
+    /**
+     * Finds a stored image whose file is at the given path.
+     *
+     * @param path the stored file
+     * @return an Optional containing one ImageEntity using the file, or empty if none does
+     */
+    Optional<ImageEntity> findFirstByPath(String path);
+
+    /**
+     * Deletes the image downloaded from the given URL, e.g. when its file could not be written.
+     *
+     * @param originalUrl the original URL of the image
+     */
+    @Transactional
+    void deleteByOriginalUrl(String originalUrl);
+
+    /**
+     * Points every image stored at one file to another copy of the same bytes, e.g. when a pack segment is compacted.
+     *
+     * @param oldPath              the replaced file
+     * @param newPath              the replacing file
+     * @param sizeAfterCompression the size of the replacing file
+     * @return the number of images repointed
+     */
+    @Modifying
+    @Transactional
+    @Query("update ImageEntity i set i.path = :newPath, i.sizeAfterCompression = :size where i.path = :oldPath")
+    int repointPath(@Param("oldPath") String oldPath, @Param("newPath") String newPath,
+                    @Param("size") long sizeAfterCompression);
+
+    /**
+     * Points every image stored at a smaller variant to the file of a larger one and takes over the larger
+     * variant's dimensions and perceptual hash, so the rows describe the file they now point to.
+     *
+     * @param oldPath              the replaced file
+     * @param newPath              the replacing file
+     * @param sizeAfterCompression the size of the replacing file
+     * @param width                the width of the replacing image
+     * @param height               the height of the replacing image
+     * @param perceptualHash       the perceptual hash of the replacing image
+     * @return the number of images repointed
+     */
+    @Modifying
+    @Transactional
+    @Query("update ImageEntity i set i.path = :newPath, i.sizeAfterCompression = :size, i.width = :width, "
+            + "i.height = :height, i.perceptualHash = :perceptualHash where i.path = :oldPath")
+    int repointToVariant(@Param("oldPath") String oldPath, @Param("newPath") String newPath,
+                         @Param("size") long sizeAfterCompression, @Param("width") Integer width,
+                         @Param("height") Integer height, @Param("perceptualHash") Long perceptualHash);
+
+    /**
+     * Returns which of the given original URLs are already stored.
+     *
+     * @param originalUrls the original URLs to look up
+     * @return the subset of the URLs that exist in the repository
+     */
+    @Query("select i.originalUrl from ImageEntity i where i.originalUrl in :urls")
+    List<String> findExistingOriginalUrls(@Param("urls") Collection<String> originalUrls);
+
+    /**
+     * Returns the next page of stored original URLs in id order (keyset pagination).
+     *
+     * @param afterId  the last id of the previous page, or 0 for the first page
+     * @param pageable the page size
+     * @return the ids and original URLs of the page
+     */
+    @Query("select i.id as id, i.originalUrl as originalUrl from ImageEntity i where i.id > :afterId order by i.id")
+    List<OriginalUrlView> findOriginalUrlsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Returns the next page of stored content hashes in id order (keyset pagination).
+     *
+     * @param afterId  the last id of the previous page, or 0 for the first page
+     * @param pageable the page size
+     * @return the ids and content hashes of the page
+     */
+    @Query("select i.id as id, i.contentHash as contentHash from ImageEntity i "
+            + "where i.id > :afterId and i.contentHash is not null order by i.id")
+    List<ContentHashView> findContentHashesAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Returns the next page of perceptual hashes of stored images in id order (keyset pagination).
+     *
+     * @param afterId  the last id of the previous page, or 0 for the first page
+     * @param pageable the page size
+     * @return the ids, hashes, dimensions and paths of the page
+     */
+    @Query("select i.id as id, i.perceptualHash as perceptualHash, i.width as width, i.height as height, i.path as path "
+            + "from ImageEntity i where i.id > :afterId and i.perceptualHash is not null order by i.id")
+    List<PerceptualHashView> findPerceptualHashesAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    /**
+     * Projection of an image's id and original URL.
+     */
+    interface OriginalUrlView {
+
+        long getId();
+
+        String getOriginalUrl();
+    }
+
+    /**
+     * Projection of an image's id and content hash.
+     */
+    interface ContentHashView {
+
+        long getId();
+
+        String getContentHash();
+    }
+
+    /**
+     * Projection of an image's perceptual hash, dimensions and stored file.
+     */
+    interface PerceptualHashView {
+
+        long getId();
+
+        long getPerceptualHash();
+
+        int getWidth();
+
+        int getHeight();
+
+        String getPath();
+    }
+}
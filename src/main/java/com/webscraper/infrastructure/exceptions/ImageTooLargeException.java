@@ -0,0 +1,20 @@
+package com.webscraper.infrastructure.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when an image body exceeds the configured maximum size.
+ * The download is aborted as soon as the limit is known to be exceeded.
+ */
+public class ImageTooLargeException extends IOException {
+
+    /**
+     * Constructs a new ImageTooLargeException.
+     *
+     * @param size     the (announced or already read) size of the image in bytes
+     * @param maxBytes the configured maximum size in bytes
+     */
+    public ImageTooLargeException(long size, long maxBytes) {
+        super("Image of at least " + size + " bytes exceeds the limit of " + maxBytes + " bytes");
+    }
+}
@@ -0,0 +1,148 @@
+package com.webscraper.infrastructure.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.webscraper.application.ports.ConnectionWarmupService;
+import com.webscraper.domain.entities.ScraperSession;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Resolves and connects to hosts in the background as soon as they are first seen,
+ * so the first real request finds a cached DNS entry and an open (TLS) connection in the pool.
+ * Every host is warmed up at most once per idle timeout; proxied page hosts are skipped,
+ * because the proxy resolves them and the route depends on the proxy picked at fetch time.
+ */
+@Slf4j
+@Component
+public class ConnectionPrewarmer implements ConnectionWarmupService {
+
+    private static final Timeout LEASE_TIMEOUT = Timeout.ofSeconds(5);
+    private static final Timeout CONNECT_TIMEOUT = Timeout.ofSeconds(10);
+
+    private final boolean enabled;
+    private final DnsCache dnsCache;
+    private final PoolingHttpClientConnectionManager documentConnectionManager;
+    private final PoolingHttpClientConnectionManager imageConnectionManager;
+    private final ExecutorService warmupThreadPool;
+    private final TimeValue keepAlive;
+    private final Cache<String, Boolean> warmedHosts;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructs a ConnectionPrewarmer.
+     *
+     * @param enabled                   whether pre-warming is enabled
+     * @param idleTimeoutSeconds        how long a pre-warmed connection may stay idle in the pool
+     * @param dnsCache                  the cached DNS resolver
+     * @param documentConnectionManager the connection pool of the document client
+     * @param imageConnectionManager    the connection pool of the image client
+     * @param warmupThreadPool          the executor running warm-ups
+     * @param meterRegistry             the registry for warm-up metrics
+     */
+    public ConnectionPrewarmer(@Value("${crawler.warmup.enabled:true}") boolean enabled,
+                               @Value("${crawler.http.idleTimeoutSeconds:30}") long idleTimeoutSeconds,
+                               DnsCache dnsCache,
+                               @Qualifier("documentConnectionManager") PoolingHttpClientConnectionManager documentConnectionManager,
+                               @Qualifier("imageConnectionManager") PoolingHttpClientConnectionManager imageConnectionManager,
+                               @Qualifier("warmupThreadPool") ExecutorService warmupThreadPool,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.dnsCache = dnsCache;
+        this.documentConnectionManager = documentConnectionManager;
+        this.imageConnectionManager = imageConnectionManager;
+        this.warmupThreadPool = warmupThreadPool;
+        this.keepAlive = TimeValue.ofSeconds(idleTimeoutSeconds);
+        this.warmedHosts = CacheBuilder.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(idleTimeoutSeconds))
+                .build();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void warmUpPageHost(String url, ScraperSession session) {
+        if (session.getUserProxies() != null && !session.getUserProxies().isEmpty()) {
+            return;
+        }
+        warmUp(url, "document", documentConnectionManager);
+    }
+
+    @Override
+    public void warmUpImageHost(String url) {
+        warmUp(url, "image", imageConnectionManager);
+    }
+
+    private void warmUp(String url, String client, PoolingHttpClientConnectionManager connectionManager) {
+        if (!enabled) {
+            return;
+        }
+        HttpHost target = targetOf(url);
+        if (target == null || warmedHosts.asMap().putIfAbsent(client + '|' + target.toURI(), Boolean.TRUE) != null) {
+            return;
+        }
+        warmupThreadPool.execute(() -> preconnect(target, client, connectionManager));
+    }
+
+    private void preconnect(HttpHost target, String client, PoolingHttpClientConnectionManager connectionManager) {
+        try {
+            dnsCache.resolve(target.getHostName());
+        } catch (UnknownHostException e) {
+            log.debug("Skipping warm-up of unresolvable host {}", target.getHostName());
+            return;
+        }
+        HttpRoute route = new HttpRoute(target, (InetAddress) null, URIScheme.HTTPS.same(target.getSchemeName()));
+        ConnectionEndpoint endpoint = null;
+        try {
+            endpoint = connectionManager.lease("warmup", route, LEASE_TIMEOUT, null).get(LEASE_TIMEOUT);
+            if (!endpoint.isConnected()) {
+                connectionManager.connect(endpoint, CONNECT_TIMEOUT, HttpClientContext.create());
+                meterRegistry.counter("scraper.warmup.connections", "client", client).increment();
+            }
+            connectionManager.release(endpoint, null, keepAlive);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            release(connectionManager, endpoint);
+        } catch (Exception e) {
+            log.debug("Warm-up of {} failed: {}", target, e.getMessage());
+            release(connectionManager, endpoint);
+        }
+    }
+
+    private void release(PoolingHttpClientConnectionManager connectionManager, ConnectionEndpoint endpoint) {
+        if (endpoint != null) {
+            connectionManager.release(endpoint, null, null);
+        }
+    }
+
+    private HttpHost targetOf(String url) {
+        try {
+            URI uri = new URI(url);
+            String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase() : null;
+            if (uri.getHost() == null || !(URIScheme.HTTP.same(scheme) || URIScheme.HTTPS.same(scheme))) {
+                return null;
+            }
+            int port = uri.getPort() > 0 ? uri.getPort() : URIScheme.HTTPS.same(scheme) ? 443 : 80;
+            return new HttpHost(scheme, uri.getHost(), port);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
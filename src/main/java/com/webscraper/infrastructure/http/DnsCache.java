@@ -0,0 +1,94 @@
+package com.webscraper.infrastructure.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process DNS resolver cache for the HTTP clients.
+ * Successful lookups are cached for a fixed TTL, failed lookups for a shorter negative TTL,
+ * so hosts that do not resolve are not looked up again for every link or image pointing at them.
+ */
+@Slf4j
+@Component
+public class DnsCache implements DnsResolver {
+
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final Cache<String, Entry> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Constructs a DnsCache.
+     *
+     * @param ttlSeconds         how long a resolved address is cached
+     * @param negativeTtlSeconds how long a failed lookup is cached
+     * @param maxEntries         the maximum number of cached host names
+     * @param meterRegistry      the registry for cache metrics
+     */
+    public DnsCache(@Value("${crawler.dns.ttlSeconds:300}") long ttlSeconds,
+                    @Value("${crawler.dns.negativeTtlSeconds:30}") long negativeTtlSeconds,
+                    @Value("${crawler.dns.maxEntries:10000}") long maxEntries,
+                    MeterRegistry meterRegistry) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.entries = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+        this.hits = meterRegistry.counter("scraper.dns.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("scraper.dns.lookups", "result", "miss");
+    }
+
+    /**
+     * Resolves the host, answering from the cache while the entry is fresh.
+     *
+     * @param host the host name
+     * @return the resolved addresses
+     * @throws UnknownHostException if the host does not resolve (possibly a cached failure)
+     */
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        String key = host.toLowerCase();
+        Entry entry = entries.getIfPresent(key);
+        if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+            hits.increment();
+            if (entry.addresses() == null) {
+                throw new UnknownHostException(host);
+            }
+            return entry.addresses().clone();
+        }
+        misses.increment();
+        try {
+            InetAddress[] addresses = InetAddress.getAllByName(host);
+            entries.put(key, new Entry(addresses, System.nanoTime() + ttlNanos));
+            return addresses.clone();
+        } catch (UnknownHostException e) {
+            log.debug("Host {} does not resolve; caching the failure", host);
+            entries.put(key, new Entry(null, System.nanoTime() + negativeTtlNanos));
+            throw e;
+        }
+    }
+
+    @Override
+    public String resolveCanonicalHostname(String host) throws UnknownHostException {
+        return SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host);
+    }
+
+    /**
+     * Cached lookup result; null addresses mark a negative entry.
+     */
+    private record Entry(InetAddress[] addresses, long expiresAt) {
+    }
+}
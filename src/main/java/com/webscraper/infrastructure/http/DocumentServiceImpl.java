@@ -4,28 +4,52 @@ import com.webscraper.domain.entities.ProxyInfo;
 import com.webscraper.domain.entities.ScraperSession;
 import com.webscraper.infrastructure.exceptions.NonRetryableException;
 import com.webscraper.application.ports.DocumentService;
-import com.webscraper.infrastructure.utils.SSLUtil;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Connection;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.protocol.RedirectLocations;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
+import org.jsoup.UnsupportedMimeTypeException;
 import org.jsoup.nodes.Document;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Recover;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.SocketException;
+import java.net.URI;
+import java.nio.charset.Charset;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
 
 
 @Slf4j
 @Service
 public class DocumentServiceImpl implements DocumentService {
 
+    private static final Pattern XML_CONTENT_TYPE = Pattern.compile("(\\w+)/\\w*\\+?xml.*");
 
     private static final List<String> USER_AGENTS = List.of(
             "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/112.0.0.0 Safari/537.36",
@@ -42,9 +66,37 @@ public class DocumentServiceImpl implements DocumentService {
     );
     private static final Random RANDOM = new Random();
 
+    private final CloseableHttpClient documentHttpClient;
+    private final ProxyAffinityManager proxyAffinityManager;
+    private final HedgingPolicy hedgingPolicy;
+    private final ExecutorService hedgeThreadPool;
+    private final ScheduledExecutorService hedgeScheduler;
+
+    /**
+     * Constructs a DocumentServiceImpl.
+     *
+     * @param documentHttpClient   the pooled HTTP client used for fetching documents
+     * @param proxyAffinityManager the manager that pins hosts to proxies
+     * @param hedgingPolicy        the policy deciding when a slow fetch is hedged
+     * @param hedgeThreadPool      the executor running hedge attempts
+     * @param hedgeScheduler       the scheduler firing hedges once the delay has passed
+     */
+    public DocumentServiceImpl(CloseableHttpClient documentHttpClient,
+                               ProxyAffinityManager proxyAffinityManager,
+                               HedgingPolicy hedgingPolicy,
+                               @Qualifier("hedgeThreadPool") ExecutorService hedgeThreadPool,
+                               @Qualifier("hedgeScheduler") ScheduledExecutorService hedgeScheduler) {
+        this.documentHttpClient = documentHttpClient;
+        this.proxyAffinityManager = proxyAffinityManager;
+        this.hedgingPolicy = hedgingPolicy;
+        this.hedgeThreadPool = hedgeThreadPool;
+        this.hedgeScheduler = hedgeScheduler;
+    }
 
     /**
      * Fetches the document from the given URL using the provided proxy.
+     * If hedging is enabled and the response headers do not arrive within the host's p95,
+     * a second attempt is sent through a different proxy and the first answer wins.
      * This method is retryable in case of IO, Socket, or HTTP status exceptions.
      *
      * @param url   the URL to fetch
@@ -58,22 +110,105 @@ public class DocumentServiceImpl implements DocumentService {
     )
     @Override
     public Document fetchDocument(String url, ScraperSession session) throws IOException {
-        ProxyInfo proxy = session.getNextProxy();
-        return tryFetch(url, proxy);
+        ProxyInfo proxy = proxyAffinityManager.selectProxy(session, url);
+        hedgingPolicy.recordRequest();
+        try {
+            if (hedgingPolicy.isEnabled() && proxyAffinityManager.hasAlternativeProxy(session, proxy)) {
+                return fetchHedged(url, session, proxy);
+            }
+            return tryFetch(url, createRequest(url), proxy, null);
+        } catch (IOException e) {
+            proxyAffinityManager.unpin(session, url);
+            throw e;
+        }
+    }
+
+    /**
+     * Fetches the document through the primary proxy and, if its headers are late,
+     * races it against a hedge through another proxy. The loser is cancelled. The hedge proxy is
+     * only chosen when the hedge is actually sent.
+     *
+     * @param url     the URL to fetch
+     * @param session the current scraping session
+     * @param proxy   the primary proxy
+     * @return the fetched JSoup Document
+     * @throws IOException if both attempts fail
+     */
+    private Document fetchHedged(String url, ScraperSession session, ProxyInfo proxy) throws IOException {
+        OptionalLong delay = hedgingPolicy.hedgeDelayMillis(hostOf(url));
+        if (delay.isEmpty()) {
+            return tryFetch(url, createRequest(url), proxy, null);
+        }
+        HttpGet primaryRequest = createRequest(url);
+        HttpGet hedgeRequest = createRequest(url);
+        AtomicBoolean primaryHeaders = new AtomicBoolean();
+        AtomicReference<CompletableFuture<Document>> hedge = new AtomicReference<>();
+
+        ScheduledFuture<?> timer = hedgeScheduler.schedule(() -> {
+            if (primaryHeaders.get()) {
+                return;
+            }
+            ProxyInfo hedgeProxy = proxyAffinityManager.selectAlternativeProxy(session, proxy);
+            if (hedgeProxy == null || !hedgingPolicy.tryAcquireHedge()) {
+                return;
+            }
+            try {
+                CompletableFuture<Document> attempt = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return tryFetch(url, hedgeRequest, hedgeProxy, null);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, hedgeThreadPool);
+                hedge.set(attempt);
+                attempt.thenRun(primaryRequest::cancel);
+                log.debug("Hedging request for URL {} through proxy {}", url, hedgeProxy.host());
+            } catch (RejectedExecutionException e) {
+                log.debug("No thread available to hedge URL {}", url);
+            }
+        }, delay.getAsLong(), TimeUnit.MILLISECONDS);
+
+        try {
+            return tryFetch(url, primaryRequest, proxy, primaryHeaders);
+        } catch (IOException | RuntimeException e) {
+            CompletableFuture<Document> attempt = hedge.get();
+            if (attempt == null) {
+                throw e;
+            }
+            try {
+                Document document = attempt.join();
+                hedgingPolicy.recordHedgeWon();
+                return document;
+            } catch (CompletionException hedgeFailure) {
+                throw e;
+            }
+        } finally {
+            timer.cancel(false);
+            hedgeRequest.cancel();
+        }
     }
 
     /**
      * Attempts to fetch the document and handles specific HTTP status exceptions.
      *
-     * @param url   the URL to fetch
-     * @param proxy the proxy information; may be null
+     * @param url             the URL to fetch
+     * @param request         the request to execute; may be cancelled from another thread
+     * @param proxy           the proxy information; may be null
+     * @param headersReceived flag set once response headers arrive; may be null
      * @return the fetched JSoup Document
      * @throws IOException if an error occurs during fetching
      */
-    private Document tryFetch(String url, ProxyInfo proxy) throws IOException {
+    private Document tryFetch(String url, HttpGet request, ProxyInfo proxy, AtomicBoolean headersReceived) throws IOException {
         try {
-            Connection connection = createConnection(url, proxy);
-            return connection.get();
+            HttpClientContext context = createContext(proxy);
+            long startedAt = System.nanoTime();
+            return documentHttpClient.execute(request, context, response -> {
+                if (headersReceived != null) {
+                    headersReceived.set(true);
+                }
+                hedgingPolicy.recordHeaderLatency(hostOf(url), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                return parseResponse(url, response, context);
+            });
         } catch (HttpStatusException e) {
             if (e.getStatusCode() == 404) {
                 log.warn("Non-retryable HTTP 404 for URL: {}", url);
@@ -98,24 +233,79 @@ public class DocumentServiceImpl implements DocumentService {
     }
 
     /**
-     * Creates a JSoup connection for the given URL with the appropriate headers and proxy settings.
+     * Creates a GET request for the given URL with the appropriate headers.
+     *
+     * @param url the URL to request
+     * @return the {@link HttpGet} request
+     */
+    private HttpGet createRequest(String url) {
+        HttpGet request = new HttpGet(url);
+        request.setHeader("User-Agent", getRandomUserAgent());
+        request.setHeader("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
+        request.setHeader("Accept-Language", "ru-RU,ru;q=0.9,en-US;q=0.8,en;q=0.7");
+        return request;
+    }
+
+    /**
+     * Creates the request context carrying the proxy; the route planner picks it up,
+     * so each (proxy, host) pair is served from its own keep-alive pool.
      *
-     * @param url   the URL to connect to
      * @param proxy the proxy information; may be null
-     * @return the JSoup {@link Connection} instance
+     * @return the {@link HttpClientContext} for the request
      */
-    private Connection createConnection(String url, ProxyInfo proxy) {
-        String userAgent = getRandomUserAgent();
-        Connection connection = Jsoup.connect(url)
-                .userAgent(userAgent)
-                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
-                .header("Accept-Language", "ru-RU,ru;q=0.9,en-US;q=0.8,en;q=0.7")
-                .timeout(30000);
+    private HttpClientContext createContext(ProxyInfo proxy) {
+        HttpClientContext context = HttpClientContext.create();
         if (proxy != null) {
-            SSLUtil.disableSslVerification();
-            connection.proxy(proxy.host(), proxy.port());
+            context.setAttribute(ProxyRoutePlanner.PROXY_ATTRIBUTE, new HttpHost(proxy.host(), proxy.port()));
+        }
+        return context;
+    }
+
+    /**
+     * Validates the response status and content type and parses the body.
+     *
+     * @param url      the requested URL
+     * @param response the HTTP response
+     * @param context  the request context, used to resolve the final URL after redirects
+     * @return the parsed JSoup Document
+     * @throws IOException if the status or content type is not acceptable, or reading fails
+     */
+    private Document parseResponse(String url, ClassicHttpResponse response, HttpClientContext context) throws IOException {
+        HttpEntity entity = response.getEntity();
+        int status = response.getCode();
+        if (status < 200 || status >= 300) {
+            EntityUtils.consumeQuietly(entity);
+            throw new HttpStatusException("HTTP error fetching URL", status, url);
+        }
+        if (entity == null) {
+            return Jsoup.parse("", url);
+        }
+        String contentType = entity.getContentType();
+        if (contentType != null && !contentType.startsWith("text/") && !XML_CONTENT_TYPE.matcher(contentType).matches()) {
+            EntityUtils.consumeQuietly(entity);
+            throw new UnsupportedMimeTypeException("Unhandled content type. Must be text/*, */xml, or */*+xml",
+                    contentType, url);
+        }
+        Charset charset = contentType != null ? ContentType.parseLenient(contentType).getCharset() : null;
+        try (InputStream body = entity.getContent()) {
+            return Jsoup.parse(body, charset != null ? charset.name() : null, resolveBaseUri(url, context));
+        }
+    }
+
+    private String resolveBaseUri(String url, HttpClientContext context) {
+        RedirectLocations redirects = context.getRedirectLocations();
+        if (redirects == null || redirects.size() == 0) {
+            return url;
+        }
+        return redirects.get(redirects.size() - 1).toString();
+    }
+
+    private String hostOf(String url) {
+        try {
+            return URI.create(url).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
         }
-        return connection;
     }
 
     private String getRandomUserAgent() {
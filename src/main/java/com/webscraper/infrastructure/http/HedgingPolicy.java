@@ -0,0 +1,156 @@
+package com.webscraper.infrastructure.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when a document fetch should be hedged with a second attempt.
+ * Tracks the time to response headers per host, derives the hedge delay from the host's p95,
+ * and keeps the number of hedges within a global budget relative to all requests.
+ */
+@Component
+public class HedgingPolicy {
+
+    private static final int WINDOW_SIZE = 128;
+
+    @Getter
+    private final boolean enabled;
+    private final double budgetRatio;
+    private final int minSamples;
+    private final long minDelayMillis;
+
+    private final Cache<String, LatencyWindow> latencies = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .build();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    private final Counter requestsCounter;
+    private final Counter hedgesCounter;
+    private final Counter hedgesWonCounter;
+
+    /**
+     * Constructs a HedgingPolicy.
+     *
+     * @param enabled        whether hedging is enabled
+     * @param budgetRatio    the maximum share of extra requests, e.g. 0.05 for at most 5%
+     * @param minSamples     how many latency samples a host needs before it can be hedged
+     * @param minDelayMillis the lower bound for the hedge delay
+     * @param meterRegistry  the registry for hedging metrics
+     */
+    public HedgingPolicy(@Value("${crawler.hedging.enabled:false}") boolean enabled,
+                         @Value("${crawler.hedging.budgetRatio:0.05}") double budgetRatio,
+                         @Value("${crawler.hedging.minSamples:20}") int minSamples,
+                         @Value("${crawler.hedging.minDelayMillis:50}") long minDelayMillis,
+                         MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.budgetRatio = budgetRatio;
+        this.minSamples = Math.max(1, Math.min(minSamples, WINDOW_SIZE));
+        this.minDelayMillis = minDelayMillis;
+        this.requestsCounter = meterRegistry.counter("scraper.hedge.requests");
+        this.hedgesCounter = meterRegistry.counter("scraper.hedge.sent");
+        this.hedgesWonCounter = meterRegistry.counter("scraper.hedge.won");
+    }
+
+    /**
+     * Records a primary request; hedges are budgeted against this count.
+     */
+    public void recordRequest() {
+        requests.incrementAndGet();
+        requestsCounter.increment();
+    }
+
+    /**
+     * Records the time it took for a host to return response headers.
+     *
+     * @param host          the host name
+     * @param latencyMillis the time to headers in milliseconds
+     */
+    public void recordHeaderLatency(String host, long latencyMillis) {
+        if (host == null) {
+            return;
+        }
+        try {
+            latencies.get(host, LatencyWindow::new).add(latencyMillis);
+        } catch (ExecutionException e) {
+            // LatencyWindow::new cannot fail
+        }
+    }
+
+    /**
+     * Returns how long to wait for headers before hedging a request to the host.
+     *
+     * @param host the host name
+     * @return the host's p95 time to headers, or empty if not enough samples were recorded
+     */
+    public OptionalLong hedgeDelayMillis(String host) {
+        LatencyWindow window = host != null ? latencies.getIfPresent(host) : null;
+        if (window == null) {
+            return OptionalLong.empty();
+        }
+        OptionalLong p95 = window.percentile(0.95, minSamples);
+        return p95.isPresent() ? OptionalLong.of(Math.max(p95.getAsLong(), minDelayMillis)) : p95;
+    }
+
+    /**
+     * Reserves one hedge from the global budget.
+     *
+     * @return true if the hedge may be sent; false if the budget is exhausted
+     */
+    public boolean tryAcquireHedge() {
+        long allowed = (long) (requests.get() * budgetRatio);
+        while (true) {
+            long current = hedges.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (hedges.compareAndSet(current, current + 1)) {
+                hedgesCounter.increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Records that a hedge answered before the primary request.
+     */
+    public void recordHedgeWon() {
+        hedgesWonCounter.increment();
+    }
+
+    /**
+     * Fixed-size ring buffer of the most recent latencies of one host.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples = new long[WINDOW_SIZE];
+        private int next;
+        private int count;
+
+        synchronized void add(long latencyMillis) {
+            samples[next] = latencyMillis;
+            next = (next + 1) % WINDOW_SIZE;
+            count = Math.min(count + 1, WINDOW_SIZE);
+        }
+
+        synchronized OptionalLong percentile(double percentile, int minSamples) {
+            if (count < minSamples) {
+                return OptionalLong.empty();
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * count) - 1;
+            return OptionalLong.of(sorted[Math.max(0, index)]);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.webscraper.infrastructure.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.webscraper.domain.entities.ProxyInfo;
+import com.webscraper.domain.entities.ScraperSession;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pins a host (or a host shard) to one proxy of the session for a limited number of requests
+ * or amount of time, so that consecutive fetches reuse the same keep-alive connection
+ * instead of paying a TCP and TLS handshake through a different proxy every time.
+ */
+@Slf4j
+@Component
+public class ProxyAffinityManager {
+
+    private final boolean enabled;
+    private final int maxRequests;
+    private final int shardsPerHost;
+    private final Cache<String, Binding> bindings;
+
+    /**
+     * Constructs a ProxyAffinityManager.
+     *
+     * @param enabled       whether affinity is enabled; when disabled every request rotates proxies
+     * @param maxRequests   how many requests a binding serves before the host moves to the next proxy
+     * @param ttlSeconds    how long a binding lives before the host moves to the next proxy
+     * @param shardsPerHost into how many shards (by path) a host is split, each pinned independently
+     */
+    public ProxyAffinityManager(@Value("${crawler.proxy.affinity.enabled:true}") boolean enabled,
+                                @Value("${crawler.proxy.affinity.maxRequests:100}") int maxRequests,
+                                @Value("${crawler.proxy.affinity.ttlSeconds:300}") long ttlSeconds,
+                                @Value("${crawler.proxy.affinity.shardsPerHost:1}") int shardsPerHost) {
+        this.enabled = enabled;
+        this.maxRequests = Math.max(1, maxRequests);
+        this.shardsPerHost = Math.max(1, shardsPerHost);
+        this.bindings = CacheBuilder.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Selects the proxy to use for the given URL within the session.
+     *
+     * @param session the current scraping session
+     * @param url     the URL to be fetched
+     * @return the pinned proxy, or null if the session has no proxies
+     */
+    public ProxyInfo selectProxy(ScraperSession session, String url) {
+        if (!enabled || session.getUserProxies() == null || session.getUserProxies().isEmpty()) {
+            return session.getNextProxy();
+        }
+        String key = bindingKey(session, url);
+        if (key == null) {
+            return session.getNextProxy();
+        }
+        try {
+            Binding binding = bindings.get(key, () -> new Binding(session.getNextProxy(), maxRequests));
+            if (binding.tryAcquire()) {
+                return binding.proxy();
+            }
+            bindings.asMap().remove(key, binding);
+            Binding next = new Binding(session.getNextProxy(), maxRequests);
+            next.tryAcquire();
+            bindings.put(key, next);
+            return next.proxy();
+        } catch (ExecutionException e) {
+            return session.getNextProxy();
+        }
+    }
+
+    /**
+     * Selects a proxy of the session other than the given one, without touching the host's binding
+     * or advancing the session's rotation: the candidates are read from the current rotation position on.
+     *
+     * @param session the current scraping session
+     * @param exclude the proxy to avoid; may be null
+     * @return a different proxy, or null if the session has no other proxy
+     */
+    public ProxyInfo selectAlternativeProxy(ScraperSession session, ProxyInfo exclude) {
+        List<ProxyInfo> proxies = session.getUserProxies();
+        if (proxies == null || proxies.isEmpty()) {
+            return null;
+        }
+        int start = Math.floorMod(session.getProxyIndex().get(), proxies.size());
+        for (int i = 0; i < proxies.size(); i++) {
+            ProxyInfo candidate = proxies.get((start + i) % proxies.size());
+            if (candidate != null && !candidate.equals(exclude)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the session has a proxy other than the given one to hedge through.
+     *
+     * @param session the current scraping session
+     * @param exclude the proxy to avoid; may be null
+     * @return true if {@link #selectAlternativeProxy} would find a proxy
+     */
+    public boolean hasAlternativeProxy(ScraperSession session, ProxyInfo exclude) {
+        List<ProxyInfo> proxies = session.getUserProxies();
+        return proxies != null && proxies.stream().anyMatch(p -> p != null && !p.equals(exclude));
+    }
+
+    /**
+     * Drops the binding for the URL's host, e.g. after the pinned proxy failed,
+     * so the next request moves to another proxy.
+     *
+     * @param session the current scraping session
+     * @param url     the URL whose binding should be dropped
+     */
+    public void unpin(ScraperSession session, String url) {
+        String key = bindingKey(session, url);
+        if (key != null) {
+            bindings.invalidate(key);
+        }
+    }
+
+    private String bindingKey(ScraperSession session, String url) {
+        try {
+            URI uri = new URI(url);
+            if (uri.getHost() == null) {
+                return null;
+            }
+            int shard = shardsPerHost == 1 ? 0 : Math.floorMod(String.valueOf(uri.getPath()).hashCode(), shardsPerHost);
+            return session.getSessionId() + '|' + uri.getHost().toLowerCase() + '#' + shard;
+        } catch (Exception e) {
+            log.debug("Cannot derive proxy affinity key for {}: {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    private record Binding(ProxyInfo proxy, AtomicInteger remaining) {
+
+        Binding(ProxyInfo proxy, int maxRequests) {
+            this(proxy, new AtomicInteger(maxRequests));
+        }
+
+        boolean tryAcquire() {
+            return remaining.getAndDecrement() > 0;
+        }
+    }
+}
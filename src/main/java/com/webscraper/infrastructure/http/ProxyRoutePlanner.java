@@ -0,0 +1,45 @@
+package com.webscraper.infrastructure.http;
+
+import org.apache.hc.client5.http.impl.routing.DefaultRoutePlanner;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+/**
+ * Route planner that takes the proxy from the request context instead of a client-wide setting.
+ * Because the pooling connection manager keys its pools by route, every (proxy, host) pair
+ * gets its own set of keep-alive connections.
+ */
+public class ProxyRoutePlanner extends DefaultRoutePlanner {
+
+    /**
+     * Context attribute holding the {@link HttpHost} of the proxy to use for the request.
+     */
+    public static final String PROXY_ATTRIBUTE = "webscraper.proxy";
+
+    public ProxyRoutePlanner() {
+        super(null);
+    }
+
+    /**
+     * Returns the proxy stored in the context, or null for a direct connection.
+     *
+     * @param target  the target host
+     * @param context the request context
+     * @return the proxy host, or null if none was set
+     */
+    @Override
+    protected HttpHost determineProxy(HttpHost target, HttpContext context) {
+        Object proxy = context != null ? context.getAttribute(PROXY_ATTRIBUTE) : null;
+        return proxy instanceof HttpHost host ? host : null;
+    }
+
+    /**
+     * Checks whether the request bound to the given context goes through a proxy.
+     *
+     * @param context the request context
+     * @return true if a proxy is set; false otherwise
+     */
+    public static boolean isProxied(HttpContext context) {
+        return context != null && context.getAttribute(PROXY_ATTRIBUTE) instanceof HttpHost;
+    }
+}
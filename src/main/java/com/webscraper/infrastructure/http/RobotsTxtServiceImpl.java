@@ -1,5 +1,7 @@
 package com.webscraper.infrastructure.http;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.webscraper.application.ports.RobotsTxtService;
 import crawlercommons.robots.BaseRobotRules;
 import crawlercommons.robots.SimpleRobotRulesParser;
@@ -7,13 +9,25 @@ import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Connection;
 import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implementation of {@link RobotsTxtService} for retrieving and parsing the robots.txt file.
+ * Parsed rules are cached per scheme and host for all sessions, so each (sub)domain is fetched once per TTL.
+ * A robots.txt that could not be fetched (timeout, 429, 5xx) counts as "allow all" only for a short failure TTL,
+ * so a brief outage of a host does not switch its rules off for the whole TTL.
  */
 @Slf4j
 @Service
@@ -22,16 +36,95 @@ public class RobotsTxtServiceImpl implements RobotsTxtService {
     private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) " +
             "AppleWebKit/537.36 (KHTML, like Gecko) Chrome/112.0.0.0 Safari/537.36";
 
+    private final Executor robotsExecutor;
+    private final long failureTtlNanos;
+    private final Cache<String, CompletableFuture<BaseRobotRules>> rulesCache;
+
     /**
-     * Retrieves the robots.txt rules for the given domain.
+     * Constructs a RobotsTxtServiceImpl.
+     *
+     * @param ttlSeconds        how long the rules of a host are cached
+     * @param failureTtlSeconds how long a failed fetch is cached before robots.txt is fetched again
+     * @param maxEntries        the maximum number of cached hosts
+     * @param robotsExecutor    the executor downloading robots.txt files
+     */
+    public RobotsTxtServiceImpl(@Value("${crawler.robots.ttlSeconds:86400}") long ttlSeconds,
+                                @Value("${crawler.robots.failureTtlSeconds:300}") long failureTtlSeconds,
+                                @Value("${crawler.robots.maxEntries:10000}") long maxEntries,
+                                @Qualifier("robotsThreadPool") Executor robotsExecutor) {
+        this.robotsExecutor = robotsExecutor;
+        this.failureTtlNanos = TimeUnit.SECONDS.toNanos(failureTtlSeconds);
+        this.rulesCache = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    /**
+     * Retrieves the robots.txt rules for the given domain over HTTPS, waiting for the fetch if it is not cached yet.
      *
      * @param domain the domain for which to retrieve robots.txt
      * @return the parsed {@link BaseRobotRules} or null if not available
      */
     @Override
     public BaseRobotRules getRules(String domain) {
-        String robotsUrl = "https://" + domain + "/robots.txt";
-        byte[] content = downloadRobotsTxt(domain);
+        return getRulesFor("https://" + domain + "/").join();
+    }
+
+    /**
+     * Returns the cached rules for the URL's scheme and host, starting the fetch on a cache miss.
+     *
+     * @param url the URL whose host rules are requested
+     * @return a future of the rules; completed with null for invalid URLs or hosts without robots.txt
+     */
+    @Override
+    public CompletableFuture<BaseRobotRules> getRulesFor(String url) {
+        String origin = originOf(url);
+        if (origin == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            CompletableFuture<BaseRobotRules> rules = loadRules(origin);
+            if (isRetryDue(rules)) {
+                rulesCache.asMap().remove(origin, rules);
+                rules = loadRules(origin);
+            }
+            return rules.exceptionally(ex -> null);
+        } catch (ExecutionException e) {
+            log.error("Error loading robots.txt rules for {}: {}", origin, e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private CompletableFuture<BaseRobotRules> loadRules(String origin) throws ExecutionException {
+        return rulesCache.get(origin, () -> CompletableFuture.supplyAsync(() -> fetchRules(origin), robotsExecutor));
+    }
+
+    /**
+     * Checks whether a cached fetch failed longer than the failure TTL ago and should be repeated.
+     */
+    private boolean isRetryDue(CompletableFuture<BaseRobotRules> rules) {
+        return rules.state() == Future.State.FAILED
+                && rules.exceptionNow() instanceof RobotsUnavailableException unavailable
+                && System.nanoTime() - unavailable.failedAtNanos >= failureTtlNanos;
+    }
+
+    /**
+     * Downloads and parses robots.txt of the given origin.
+     *
+     * @param origin the scheme and host, e.g. https://example.com
+     * @return the parsed rules, or null if the host has no robots.txt
+     * @throws RobotsUnavailableException if robots.txt could not be fetched
+     */
+    private BaseRobotRules fetchRules(String origin) {
+        String robotsUrl = origin + "/robots.txt";
+        byte[] content;
+        try {
+            content = downloadRobotsTxt(robotsUrl);
+        } catch (IOException e) {
+            log.error("Error downloading robots.txt from URL: {}. Error: {}", robotsUrl, e.getMessage(), e);
+            throw new RobotsUnavailableException(e);
+        }
         if (content == null) {
             return null;
         }
@@ -41,13 +134,13 @@ public class RobotsTxtServiceImpl implements RobotsTxtService {
     }
 
     /**
-     * Downloads the content of robots.txt for the given domain.
+     * Downloads the content of robots.txt.
      *
-     * @param domain the domain for which to download robots.txt
-     * @return a byte array containing the content, or null if not available
+     * @param robotsUrl the robots.txt URL
+     * @return a byte array containing the content, or null if the host has no robots.txt
+     * @throws IOException if the request failed or the server could not answer (429, 5xx)
      */
-    private byte[] downloadRobotsTxt(String domain) {
-        String robotsUrl = "https://" + domain + "/robots.txt";
+    private byte[] downloadRobotsTxt(String robotsUrl) throws IOException {
         try {
             Connection.Response response = Jsoup.connect(robotsUrl)
                     .userAgent(USER_AGENT)
@@ -57,17 +150,37 @@ public class RobotsTxtServiceImpl implements RobotsTxtService {
             if (response.statusCode() != 200) {
                 return null;
             }
-            return response.body().getBytes(StandardCharsets.UTF_8);
+            return response.bodyAsBytes();
         } catch (HttpStatusException e) {
+            if (e.getStatusCode() == 429 || e.getStatusCode() >= 500) {
+                throw e;
+            }
             if (e.getStatusCode() == 404) {
-                log.info("robots.txt not found for domain: {}", domain);
+                log.info("robots.txt not found: {}", robotsUrl);
                 return null;
             }
+        }
+        return new byte[0];
+    }
+
+    /**
+     * Extracts the cache key (lowercase scheme, host and explicit port) from a URL.
+     *
+     * @param url the URL
+     * @return the origin, or null if the URL has no HTTP(S) host
+     */
+    private String originOf(String url) {
+        try {
+            URI uri = new URI(url);
+            String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase() : null;
+            if (uri.getHost() == null || !("http".equals(scheme) || "https".equals(scheme))) {
+                return null;
+            }
+            String origin = scheme + "://" + uri.getHost().toLowerCase();
+            return uri.getPort() > 0 ? origin + ":" + uri.getPort() : origin;
         } catch (Exception e) {
-            log.error("Error downloading robots.txt from URL: {}. Error: {}", robotsUrl, e.getMessage(), e);
             return null;
         }
-        return new byte[0];
     }
 
     /**
@@ -83,4 +196,16 @@ public class RobotsTxtServiceImpl implements RobotsTxtService {
         }
         return rules.isAllowed(url);
     }
+
+    /**
+     * Signals that robots.txt of a host could not be fetched; remembers when, for the failure TTL.
+     */
+    private static final class RobotsUnavailableException extends RuntimeException {
+
+        private final long failedAtNanos = System.nanoTime();
+
+        private RobotsUnavailableException(IOException cause) {
+            super(cause);
+        }
+    }
 }
@@ -0,0 +1,173 @@
+package com.webscraper.infrastructure.http;
+
+import com.webscraper.application.ports.SitemapService;
+import crawlercommons.robots.BaseRobotRules;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.io.Closer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Implementation of {@link SitemapService} that streams sitemaps through a StAX reader.
+ * Sitemap indexes are followed breadth-first and gzipped sitemaps are detected by their magic bytes,
+ * so memory use does not depend on the size of a sitemap.
+ */
+@Slf4j
+@Service
+public class SitemapServiceImpl implements SitemapService {
+
+    private final CloseableHttpClient documentHttpClient;
+    private final int maxSitemaps;
+    private final long maxUrls;
+    private final XMLInputFactory xmlInputFactory;
+
+    /**
+     * Constructs a SitemapServiceImpl.
+     *
+     * @param documentHttpClient the pooled HTTP client used for the downloads
+     * @param maxSitemaps        the maximum number of sitemap files read per site
+     * @param maxUrls            the maximum number of page URLs read per site
+     */
+    public SitemapServiceImpl(@Qualifier("documentHttpClient") CloseableHttpClient documentHttpClient,
+                              @Value("${crawler.sitemap.maxSitemaps:1000}") int maxSitemaps,
+                              @Value("${crawler.sitemap.maxUrls:1000000}") long maxUrls) {
+        this.documentHttpClient = documentHttpClient;
+        this.maxSitemaps = maxSitemaps;
+        this.maxUrls = maxUrls;
+        this.xmlInputFactory = XMLInputFactory.newFactory();
+        this.xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    @Override
+    public long readSitemaps(String startUrl, BaseRobotRules rules, Predicate<String> consumer) {
+        Deque<String> pending = new ArrayDeque<>(initialSitemaps(startUrl, rules));
+        Set<String> seen = new HashSet<>();
+        long[] count = {0};
+        int read = 0;
+        while (!pending.isEmpty() && read < maxSitemaps) {
+            String sitemapUrl = pending.poll();
+            if (!seen.add(sitemapUrl)) {
+                continue;
+            }
+            read++;
+            try {
+                if (!readSitemap(sitemapUrl, pending, consumer, count)) {
+                    break;
+                }
+            } catch (IOException | XMLStreamException e) {
+                log.warn("Error reading sitemap {}: {}", sitemapUrl, e.getMessage());
+            }
+        }
+        return count[0];
+    }
+
+    /**
+     * Returns the sitemaps announced in robots.txt, or the conventional /sitemap.xml of the start URL's origin.
+     */
+    private List<String> initialSitemaps(String startUrl, BaseRobotRules rules) {
+        if (rules != null && !rules.getSitemaps().isEmpty()) {
+            return rules.getSitemaps();
+        }
+        URI uri = URI.create(startUrl);
+        String origin = uri.getScheme() + "://" + uri.getRawAuthority();
+        return List.of(origin + "/sitemap.xml");
+    }
+
+    /**
+     * Downloads and parses one sitemap or sitemap index.
+     *
+     * @return false if the consumer or the URL limit stopped reading
+     */
+    private boolean readSitemap(String sitemapUrl, Deque<String> pending, Predicate<String> consumer, long[] count)
+            throws IOException, XMLStreamException {
+        HttpGet request = new HttpGet(sitemapUrl);
+        ClassicHttpResponse response = documentHttpClient.executeOpen(null, request, HttpClientContext.create());
+        boolean completed = false;
+        try {
+            HttpEntity entity = response.getEntity();
+            if (response.getCode() != 200 || entity == null) {
+                log.info("Sitemap {} not available: HTTP {}", sitemapUrl, response.getCode());
+                completed = true;
+                return true;
+            }
+            completed = parse(decompress(entity.getContent()), pending, consumer, count);
+            return completed;
+        } finally {
+            if (!completed) {
+                // Closing the response would drain the rest of a possibly huge body; drop the connection instead.
+                request.cancel();
+            }
+            Closer.closeQuietly(response);
+        }
+    }
+
+    private boolean parse(InputStream in, Deque<String> pending, Predicate<String> consumer, long[] count)
+            throws XMLStreamException {
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+        try {
+            String loc = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "url", "sitemap" -> loc = null;
+                        case "loc" -> loc = reader.getElementText().trim();
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && loc != null && !loc.isEmpty()) {
+                    if ("sitemap".equals(reader.getLocalName())) {
+                        pending.add(loc);
+                    } else if ("url".equals(reader.getLocalName())) {
+                        if (count[0] >= maxUrls || !consumer.test(loc)) {
+                            return false;
+                        }
+                        count[0]++;
+                    }
+                }
+            }
+            return true;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Wraps the stream in a GZIPInputStream if it starts with the gzip magic bytes.
+     * Transfer-level gzip (Content-Encoding) is already removed by the HTTP client.
+     */
+    private InputStream decompress(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (first == 0x1f && second == 0x8b) {
+            return new GZIPInputStream(buffered);
+        }
+        return buffered;
+    }
+}
@@ -0,0 +1,134 @@
+package com.webscraper.infrastructure.http;
+
+import com.webscraper.infrastructure.utils.SSLUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.client5.http.ssl.HostnameVerificationPolicy;
+import org.apache.hc.client5.http.ssl.HttpsSupport;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import java.security.GeneralSecurityException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Builds one {@link SSLContext} per trust policy and hands out TLS strategies bound to them.
+ * Contexts are attached to specific HTTP clients instead of the JVM-wide defaults, and since every
+ * connection of a policy shares the same context, its client session cache allows TLS session resumption.
+ */
+@Component
+public class TlsContextRegistry {
+
+    /**
+     * Trust policy applied to server certificates.
+     */
+    public enum TrustPolicy {
+        /** Certificates and hostnames are verified against the JVM trust store. */
+        SYSTEM,
+        /** Any certificate and hostname is accepted; used for connections through user proxies. */
+        TRUST_ALL
+    }
+
+    private final Map<TrustPolicy, SSLContext> contexts = new EnumMap<>(TrustPolicy.class);
+    private final Map<TrustPolicy, TlsSocketStrategy> strategies = new EnumMap<>(TrustPolicy.class);
+
+    /**
+     * Constructs a TlsContextRegistry.
+     *
+     * @param sessionCacheSize      the number of TLS sessions cached per context for resumption
+     * @param sessionTimeoutSeconds how long a cached TLS session may be resumed
+     * @param meterRegistry         the registry for handshake metrics
+     */
+    public TlsContextRegistry(@Value("${crawler.tls.sessionCacheSize:1000}") int sessionCacheSize,
+                              @Value("${crawler.tls.sessionTimeoutSeconds:3600}") int sessionTimeoutSeconds,
+                              MeterRegistry meterRegistry) {
+        contexts.put(TrustPolicy.SYSTEM, createSystemContext());
+        contexts.put(TrustPolicy.TRUST_ALL, SSLUtil.createTrustAllContext());
+        for (Map.Entry<TrustPolicy, SSLContext> entry : contexts.entrySet()) {
+            SSLSessionContext sessionContext = entry.getValue().getClientSessionContext();
+            sessionContext.setSessionCacheSize(sessionCacheSize);
+            sessionContext.setSessionTimeout(sessionTimeoutSeconds);
+
+            DefaultClientTlsStrategy delegate = entry.getKey() == TrustPolicy.TRUST_ALL
+                    ? new DefaultClientTlsStrategy(entry.getValue(), HostnameVerificationPolicy.CLIENT, NoopHostnameVerifier.INSTANCE)
+                    : new DefaultClientTlsStrategy(entry.getValue(), HttpsSupport.getDefaultHostnameVerifier());
+            strategies.put(entry.getKey(), instrument(delegate, entry.getKey(), meterRegistry));
+        }
+    }
+
+    /**
+     * Returns the shared SSL context for the given trust policy.
+     *
+     * @param policy the trust policy
+     * @return the {@link SSLContext} built for the policy
+     */
+    public SSLContext context(TrustPolicy policy) {
+        return contexts.get(policy);
+    }
+
+    /**
+     * Returns the TLS strategy for the given trust policy, for use in Apache HttpClient connection managers.
+     *
+     * @param policy the trust policy
+     * @return the {@link TlsSocketStrategy} bound to the policy's shared context
+     */
+    public TlsSocketStrategy socketStrategy(TrustPolicy policy) {
+        return strategies.get(policy);
+    }
+
+    /**
+     * Returns a TLS strategy that trusts all certificates on proxied routes and verifies them on direct ones.
+     *
+     * @return the route-aware {@link TlsSocketStrategy}
+     */
+    public TlsSocketStrategy proxyAwareSocketStrategy() {
+        TlsSocketStrategy system = socketStrategy(TrustPolicy.SYSTEM);
+        TlsSocketStrategy trustAll = socketStrategy(TrustPolicy.TRUST_ALL);
+        return (socket, target, port, attachment, context) ->
+                (ProxyRoutePlanner.isProxied(context) ? trustAll : system)
+                        .upgrade(socket, target, port, attachment, context);
+    }
+
+    /**
+     * Wraps a strategy to count full handshakes and resumed sessions.
+     * A resumed session keeps the creation time of the session it was resumed from,
+     * so a session created before the upgrade started was not negotiated from scratch.
+     */
+    private TlsSocketStrategy instrument(TlsSocketStrategy delegate, TrustPolicy policy, MeterRegistry meterRegistry) {
+        Counter full = Counter.builder("scraper.tls.handshakes")
+                .tag("policy", policy.name())
+                .tag("type", "full")
+                .register(meterRegistry);
+        Counter resumed = Counter.builder("scraper.tls.handshakes")
+                .tag("policy", policy.name())
+                .tag("type", "resumed")
+                .register(meterRegistry);
+        return (socket, target, port, attachment, context) -> {
+            long startedAt = System.currentTimeMillis();
+            SSLSocket sslSocket = delegate.upgrade(socket, target, port, attachment, context);
+            if (sslSocket.getSession().getCreationTime() < startedAt) {
+                resumed.increment();
+            } else {
+                full.increment();
+            }
+            return sslSocket;
+        };
+    }
+
+    private SSLContext createSystemContext() {
+        try {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, null, null);
+            return context;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to create system SSL context", e);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.webscraper.infrastructure.image;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.webscraper.infrastructure.db.entities.ImageEntity;
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import com.webscraper.infrastructure.image.storage.ImagesMovedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Answers "is this content already stored?" for downloaded images, by SHA-256 of the original bytes.
+ * Images stored in the last minute are answered from memory, including rows still queued for the
+ * metadata writer, so identical images processed close together share one file. Older content is
+ * looked up in the database only on a hit in a Bloom filter of all stored hashes, which is rebuilt
+ * from {@code image_entity} at startup; new content thus costs no query.
+ */
+@Slf4j
+@Component
+public class ContentHashIndex {
+
+    private static final int REBUILD_PAGE_SIZE = 10_000;
+    private static final Duration RECENT_TTL = Duration.ofMinutes(1);
+    private static final long RECENT_MAX_ENTRIES = 10_000;
+
+    private final ImageRepository imageRepository;
+    private final ExecutorService rebuildExecutor;
+    private final Cache<String, Recent> recent;
+    private final BloomFilter<CharSequence> bloomFilter;
+    private volatile boolean bloomReady;
+
+    private final Counter recentHits;
+    private final Counter bloomMisses;
+    private final Counter databaseLookups;
+
+    /**
+     * Constructs a ContentHashIndex.
+     *
+     * @param imageRepository   the repository of processed images
+     * @param rebuildExecutor   the executor loading stored hashes at startup
+     * @param expectedImages    the number of images the Bloom filter is sized for
+     * @param falsePositiveRate the Bloom filter's false positive probability at the expected size
+     * @param meterRegistry     the registry for index metrics
+     */
+    public ContentHashIndex(ImageRepository imageRepository,
+                            @Qualifier("indexRebuildThreadPool") ExecutorService rebuildExecutor,
+                            @Value("${images.dedup.expectedImages:1000000}") long expectedImages,
+                            @Value("${images.dedup.falsePositiveRate:0.01}") double falsePositiveRate,
+                            MeterRegistry meterRegistry) {
+        this.imageRepository = imageRepository;
+        this.rebuildExecutor = rebuildExecutor;
+        this.recent = CacheBuilder.newBuilder()
+                .expireAfterWrite(RECENT_TTL)
+                .maximumSize(RECENT_MAX_ENTRIES)
+                .build();
+        this.bloomFilter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedImages, falsePositiveRate);
+        this.recentHits = meterRegistry.counter("scraper.images.content.lookups", "source", "recent");
+        this.bloomMisses = meterRegistry.counter("scraper.images.content.lookups", "source", "bloom");
+        this.databaseLookups = meterRegistry.counter("scraper.images.content.lookups", "source", "database");
+    }
+
+    /**
+     * Loads all stored content hashes into the Bloom filter in the background once the application is up.
+     * Until the load finishes every lookup that misses the recent images goes to the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        CompletableFuture.runAsync(() -> {
+            long startTime = System.currentTimeMillis();
+            long afterId = 0;
+            long loaded = 0;
+            while (true) {
+                List<ImageRepository.ContentHashView> page =
+                        imageRepository.findContentHashesAfter(afterId, PageRequest.ofSize(REBUILD_PAGE_SIZE));
+                for (ImageRepository.ContentHashView image : page) {
+                    bloomFilter.put(image.getContentHash());
+                }
+                loaded += page.size();
+                if (page.size() < REBUILD_PAGE_SIZE) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            bloomReady = true;
+            log.info("Content hash index loaded {} hashes in {} ms", loaded, System.currentTimeMillis() - startTime);
+        }, rebuildExecutor).exceptionally(ex -> {
+            log.error("Failed to load content hash index; falling back to database lookups: {}", ex.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Finds a stored image with the given content. A recently stored image is returned once its file
+     * has been written, and its file is then kept even if its own row is not inserted.
+     *
+     * @param contentHash the SHA-256 of the original image bytes
+     * @return the stored image, or null if the content is new
+     * @throws InterruptedException if interrupted while waiting for the file of a recent image
+     */
+    public ImageEntity find(String contentHash) throws InterruptedException {
+        Recent stored = recent.getIfPresent(contentHash);
+        if (stored != null && stored.share()) {
+            try {
+                stored.written().get();
+                recentHits.increment();
+                return stored.entity();
+            } catch (ExecutionException e) {
+                // Файл не записано, рядок буде видалено: шукаємо далі
+            }
+        }
+        if (bloomReady && !bloomFilter.mightContain(contentHash)) {
+            bloomMisses.increment();
+            return null;
+        }
+        databaseLookups.increment();
+        return imageRepository.findFirstByContentHash(contentHash).orElse(null);
+    }
+
+    /**
+     * Records an image whose file was handed to the storage and whose row was queued.
+     *
+     * @param entity  the queued row
+     * @param written completes when the file has been written
+     * @return the recorded image, to be passed to {@link #forget(Recent)} if its row is not inserted
+     */
+    public Recent add(ImageEntity entity, CompletableFuture<Void> written) {
+        Recent stored = new Recent(entity, written);
+        bloomFilter.put(entity.getContentHash());
+        recent.put(entity.getContentHash(), stored);
+        return stored;
+    }
+
+    /**
+     * Records the content of an image stored as a link to another image's file.
+     *
+     * @param contentHash the SHA-256 of the original image bytes
+     */
+    public void addLink(String contentHash) {
+        bloomFilter.put(contentHash);
+    }
+
+    /**
+     * Drops a recent image whose row was not inserted. The Bloom filter keeps its hash,
+     * so the next lookup falls through to the database.
+     *
+     * @param stored the image recorded by {@link #add}
+     * @return true if the image's file may be deleted; false if another image was linked to it in the meantime
+     */
+    public boolean forget(Recent stored) {
+        recent.asMap().remove(stored.entity().getContentHash(), stored);
+        return stored.drop();
+    }
+
+    /**
+     * Drops the recent images stored at a file that is being moved or deleted.
+     *
+     * @param path the location of the file
+     */
+    public void forgetPath(String path) {
+        recent.asMap().values().removeIf(stored -> path.equals(stored.entity().getPath()));
+    }
+
+    /**
+     * Drops the recent images whose files were moved; lookups of their content go to the repointed rows.
+     *
+     * @param event the moved files
+     */
+    @EventListener
+    public void onImagesMoved(ImagesMovedEvent event) {
+        recent.asMap().values().removeIf(stored -> event.moves().containsKey(stored.entity().getPath()));
+    }
+
+    /**
+     * A recently stored image. Once it is handed out for a link its file is no longer deleted
+     * when its own row fails, and once dropped it is no longer handed out.
+     */
+    public static final class Recent {
+
+        private final ImageEntity entity;
+        private final CompletableFuture<Void> written;
+        private boolean shared;
+        private boolean dropped;
+
+        private Recent(ImageEntity entity, CompletableFuture<Void> written) {
+            this.entity = entity;
+            this.written = written;
+        }
+
+        ImageEntity entity() {
+            return entity;
+        }
+
+        CompletableFuture<Void> written() {
+            return written;
+        }
+
+        synchronized boolean share() {
+            if (!dropped) {
+                shared = true;
+            }
+            return !dropped;
+        }
+
+        synchronized boolean drop() {
+            dropped = true;
+            return !shared;
+        }
+    }
+}
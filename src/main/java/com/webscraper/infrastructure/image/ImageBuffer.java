@@ -0,0 +1,120 @@
+package com.webscraper.infrastructure.image;
+
+import javax.imageio.stream.ImageInputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The complete body of a downloaded image, held in a pooled direct buffer, a memory-mapped temp file
+ * or a plain heap array. Must be closed once processing is done so pooled memory can be reused.
+ */
+public final class ImageBuffer implements AutoCloseable {
+
+    private final ByteBuffer content;
+    private final Runnable release;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile String contentHash;
+
+    ImageBuffer(ByteBuffer content, Runnable release) {
+        this.content = content.asReadOnlyBuffer();
+        this.release = release;
+    }
+
+    /**
+     * Wraps an in-memory image, e.g. one decoded from a data URI.
+     *
+     * @param bytes the image bytes
+     * @return a buffer over the array; closing it is a no-op
+     */
+    public static ImageBuffer wrap(byte[] bytes) {
+        return new ImageBuffer(ByteBuffer.wrap(bytes), () -> {
+        });
+    }
+
+    /**
+     * Returns the image size in bytes.
+     *
+     * @return the number of bytes of the image
+     */
+    public int size() {
+        return content.limit();
+    }
+
+    /**
+     * Returns an independent read-only view of the image bytes, positioned at 0.
+     *
+     * @return the image bytes
+     */
+    public ByteBuffer contents() {
+        return content.duplicate();
+    }
+
+    /**
+     * Detects the image format from the leading bytes.
+     *
+     * @return the format, or null if the bytes match no supported format
+     */
+    public ImageFormat format() {
+        byte[] header = new byte[Math.min(ImageFormat.HEADER_LENGTH, size())];
+        content.get(0, header);
+        return ImageFormat.detect(header, header.length);
+    }
+
+    /**
+     * Returns the SHA-256 of the image bytes as lowercase hex. Downloads get it computed while the body
+     * streams in; for other images it is computed on first use.
+     *
+     * @return the content hash
+     */
+    public String contentHash() {
+        String hash = contentHash;
+        if (hash == null) {
+            MessageDigest digest = newContentDigest();
+            digest.update(contents());
+            hash = HexFormat.of().formatHex(digest.digest());
+            contentHash = hash;
+        }
+        return hash;
+    }
+
+    /**
+     * Records the hash of a digest that has seen exactly the image bytes.
+     *
+     * @param digest the digest fed while the image was read
+     */
+    void setContentHash(MessageDigest digest) {
+        contentHash = HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Creates a digest of the algorithm used for content hashes.
+     *
+     * @return a new SHA-256 digest
+     */
+    static MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Opens a seekable stream over the image for ImageIO readers.
+     *
+     * @return a new {@link ImageInputStream} starting at the first byte
+     */
+    public ImageInputStream newImageInputStream() {
+        return new ByteBufferImageInputStream(contents());
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.webscraper.infrastructure.image;
+
+import com.webscraper.infrastructure.exceptions.ImageTooLargeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads image bodies into reusable direct buffers instead of per-image heap arrays.
+ * Bodies larger than one buffer are spilled to a temp file and memory-mapped; bodies over the
+ * maximum image size are aborted as soon as the limit is crossed.
+ */
+@Component
+public class ImageBufferPool {
+
+    private static final long SPILL_CHUNK = 1024 * 1024;
+
+    private final int bufferSize;
+    @Getter
+    private final long maxImageBytes;
+    private final Path spillDirectory;
+    private final BlockingQueue<ByteBuffer> pooled;
+
+    private final Counter spills;
+
+    /**
+     * Constructs an ImageBufferPool.
+     *
+     * @param bufferSize     the capacity of one pooled direct buffer; larger images spill to disk
+     * @param maxPooled      how many idle buffers are kept for reuse
+     * @param maxImageBytes  the maximum accepted image size
+     * @param spillDirectory the directory for temp files of large images
+     * @param meterRegistry  the registry for buffer metrics
+     */
+    public ImageBufferPool(@Value("${images.buffer.size:4194304}") int bufferSize,
+                           @Value("${images.buffer.maxPooled:16}") int maxPooled,
+                           @Value("${images.maxSizeBytes:52428800}") long maxImageBytes,
+                           @Value("${images.buffer.spillDirectory:${java.io.tmpdir}}") String spillDirectory,
+                           MeterRegistry meterRegistry) {
+        this.bufferSize = bufferSize;
+        this.maxImageBytes = Math.min(maxImageBytes, Integer.MAX_VALUE);
+        this.spillDirectory = Paths.get(spillDirectory);
+        this.pooled = new ArrayBlockingQueue<>(Math.max(1, maxPooled));
+        this.spills = meterRegistry.counter("scraper.images.buffer.spills");
+    }
+
+    /**
+     * Reads the whole stream into a pooled buffer, or into a mapped temp file if it does not fit.
+     *
+     * @param in            the image body
+     * @param contentLength the announced body length, or -1 if unknown
+     * @return the image; the caller must close it
+     * @throws ImageTooLargeException if the body is larger than the maximum image size
+     * @throws IOException            if reading fails
+     */
+    public ImageBuffer read(InputStream in, long contentLength) throws IOException {
+        if (contentLength > maxImageBytes) {
+            throw new ImageTooLargeException(contentLength, maxImageBytes);
+        }
+        ReadableByteChannel source = Channels.newChannel(in);
+        if (contentLength > bufferSize) {
+            return spill(source, null);
+        }
+        ByteBuffer buffer = acquire();
+        try {
+            while (buffer.hasRemaining()) {
+                if (source.read(buffer) < 0) {
+                    buffer.flip();
+                    return new ImageBuffer(buffer, () -> release(buffer));
+                }
+            }
+            buffer.flip();
+            ImageBuffer spilled = spill(source, buffer);
+            release(buffer);
+            return spilled;
+        } catch (IOException | RuntimeException e) {
+            release(buffer);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the already buffered prefix and the rest of the stream to a temp file and maps it.
+     * The file is deleted when its channel closes; the mapping stays valid until the buffer is unreachable.
+     */
+    private ImageBuffer spill(ReadableByteChannel source, ByteBuffer prefix) throws IOException {
+        spills.increment();
+        Path file = Files.createTempFile(spillDirectory, "image-", ".tmp");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE)) {
+            long position = 0;
+            if (prefix != null) {
+                while (prefix.hasRemaining()) {
+                    position += channel.write(prefix, position);
+                }
+            }
+            while (true) {
+                long transferred = channel.transferFrom(source, position, SPILL_CHUNK);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                if (position > maxImageBytes) {
+                    throw new ImageTooLargeException(position, maxImageBytes);
+                }
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, position);
+            return new ImageBuffer(mapped, () -> {
+            });
+        }
+    }
+
+    private ByteBuffer acquire() {
+        ByteBuffer buffer = pooled.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private void release(ByteBuffer buffer) {
+        pooled.offer(buffer);
+    }
+}
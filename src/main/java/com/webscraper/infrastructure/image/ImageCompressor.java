@@ -1,26 +1,33 @@
 package com.webscraper.infrastructure.image;
 
-import com.webscraper.domain.entities.CompressionResult;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.UUID;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Service for compressing JPEG images.
@@ -32,63 +39,100 @@ public class ImageCompressor {
     @Value("${jpeg.compression.quality:0.8}")
     private float initialQuality;
 
+    @Value("${images.vector.enabled:true}")
+    private boolean vectorEnabled;
+
 
     private static final double SCALE_FACTOR = 0.5;
+    private static final int SUBSAMPLING = (int) Math.round(1 / SCALE_FACTOR);
     private static final float MIN_QUALITY = 0.1f;
+    private static final double TARGET_RATIO = 0.5;
+
+    private static final ThreadLocal<ImageWriter> JPEG_WRITER = ThreadLocal.withInitial(ImageCompressor::createJpegWriter);
+    private static final ThreadLocal<EncodeBuffer> ENCODE_BUFFER = ThreadLocal.withInitial(EncodeBuffer::new);
 
     /**
-     * Compresses the provided image bytes and saves the result to the output directory.
+     * The smallest strip, in source rows, worth a separate task in tiled mode.
+     */
+    private static final int MIN_STRIP_ROWS = 256;
+
+    private final JpegQualityModel qualityModel = new JpegQualityModel();
+    private final ForkJoinPool tilePool;
+    private final long tilingMinPixels;
+
+    /**
+     * Constructs an ImageCompressor that processes every image on the calling thread.
+     */
+    public ImageCompressor() {
+        this(ForkJoinPool.commonPool(), 0);
+    }
+
+    /**
+     * Constructs an ImageCompressor that splits very large TIFF images into strips decoded in parallel.
      *
-     * @param imageBytes      the original image bytes
-     * @param outputDirectory the directory where the compressed image will be saved
-     * @return a CompressionResult containing the compressed size and file link
-     * @throws IOException if an I/O error occurs or the image cannot be processed
+     * @param tilePool        the pool decoding the strips
+     * @param tilingMinPixels TIFF images with at least this many pixels are decoded in strips; 0 disables tiling
      */
-    public CompressionResult compressAndSave(byte[] imageBytes, Path outputDirectory) throws IOException {
-        if (imageBytes == null || imageBytes.length == 0) {
-            throw new IOException("Received an empty byte array.");
-        }
-        log.debug("Original size: {} bytes", imageBytes.length);
+    @Autowired
+    public ImageCompressor(@Qualifier("imageTilePool") ForkJoinPool tilePool,
+                           @Value("${images.tiling.minPixels:0}") long tilingMinPixels) {
+        this.tilePool = tilePool;
+        this.tilingMinPixels = tilingMinPixels;
+    }
+
+    /**
+     * Compresses an image whose headers have already been probed, leaving storage to the caller.
+     * The quality is predicted from past results of the domain, so most images are encoded exactly once.
+     *
+     * @param image  the original image
+     * @param header the format and dimensions of the image
+     * @param domain the domain the image comes from, or null if unknown
+     * @return the compressed JPEG
+     * @throws IOException if the image cannot be processed
+     */
+    public byte[] compress(ImageBuffer image, ImageHeader header, String domain) throws IOException {
+        log.debug("Original size: {} bytes, {}x{} {}", image.size(), header.width(), header.height(), header.format());
 
-        BufferedImage bufferedImage = decodeImage(imageBytes);
-        if (bufferedImage == null) {
+        // Декодування одразу в зменшеному масштабі та в RGB
+        BufferedImage scaledImage = decodeImage(image, header);
+        if (scaledImage == null) {
             throw new IOException("Failed to decode image");
         }
 
-        // Конвертація в RGB
-        BufferedImage rgbImage = convertToRgb(bufferedImage);
-
-        // Масштабування
-        BufferedImage scaledImage = scaleImage(rgbImage, SCALE_FACTOR);
-
-        long targetSize = imageBytes.length / 2;
+        long targetSize = (long) (image.size() * TARGET_RATIO);
         log.debug("Target size: {} bytes", targetSize);
 
-        // Перше стиснення
-        float quality = initialQuality;
-        byte[] compressedBytes = compressJpegToByteArray(scaledImage, quality);
+        // Перше стиснення з якістю, передбаченою моделлю домену
+        float quality = qualityModel.predict(domain, TARGET_RATIO, initialQuality);
+        EncodeBuffer compressed = compressJpeg(scaledImage, quality);
+        qualityModel.record(domain, quality, (double) compressed.size() / image.size());
         int iterations = 1;
 
-        // Корекція якості
-        if (compressedBytes.length > targetSize) {
-            quality = Math.max((float) targetSize / compressedBytes.length * quality, MIN_QUALITY);
-            compressedBytes = compressJpegToByteArray(scaledImage, quality);
+        // Корекція якості, якщо передбачення не влучило
+        if (compressed.size() > targetSize && quality > MIN_QUALITY) {
+            quality = Math.max(JpegQualityModel.bucketed((float) targetSize / compressed.size() * quality), MIN_QUALITY);
+            compressed = compressJpeg(scaledImage, quality);
+            qualityModel.record(domain, quality, (double) compressed.size() / image.size());
             iterations++;
             log.debug("Quality adjusted to: {}", quality);
         }
 
-        // Збереження
-        String outputFileName = UUID.randomUUID() + ".jpg";
-        Path outputPath = outputDirectory.resolve(outputFileName);
-        Files.write(outputPath, compressedBytes);
+        // Копія з буфера потоку: запис на диск відбувається вже в іншому потоці
+        byte[] result;
+        try {
+            result = compressed.toByteArray();
+        } finally {
+            compressed.recycle();
+        }
 
-        log.info("Compressed in {} passes. Final size: {} bytes", iterations, compressedBytes.length);
-        return new CompressionResult(compressedBytes.length, outputPath.toString());
+        log.info("Compressed in {} passes at quality {}. Final size: {} bytes", iterations, quality, result.length);
+        return result;
     }
 
-
     private BufferedImage convertToRgb(BufferedImage src) {
         if (src.getType() == BufferedImage.TYPE_INT_RGB) return src;
+        BufferedImage converted = kernels().toRgb(src);
+        if (converted != null) return converted;
         BufferedImage rgbImage = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_RGB);
         Graphics2D g = rgbImage.createGraphics();
         g.drawImage(src, 0, 0, null);
@@ -96,104 +140,178 @@ public class ImageCompressor {
         return rgbImage;
     }
 
-    private BufferedImage scaleImage(BufferedImage src, double factor) {
-        int newWidth = (int) (src.getWidth() * factor);
-        int newHeight = (int) (src.getHeight() * factor);
-        BufferedImage scaled = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g = scaled.createGraphics();
-        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g.drawImage(src, 0, 0, newWidth, newHeight, null);
-        g.dispose();
-        return scaled;
-    }
-
     /**
-     * Compresses the given image to a JPEG byte array with the specified quality.
+     * Decodes the image from its buffer straight at {@link #SCALE_FACTOR}, so the full-resolution raster
+     * is never materialized. TIFF images of at least {@code tilingMinPixels} are decoded as horizontal strips
+     * in parallel; the strips start on the subsampling grid, so the stitched result equals a whole-image decode.
+     * Only TIFF is split: its reader seeks straight to the strips or tiles of a source region, while the JPEG
+     * and PNG readers decode every row above the region, so strips would multiply their CPU cost.
      *
-     * @param image   the image to compress
-     * @param quality the JPEG quality (0.0 to 1.0)
-     * @return the compressed image as a byte array
-     * @throws IOException if an error occurs during compression
+     * @param image  the raw image
+     * @param header the probed format of the image
+     * @return the decoded and scaled RGB image, or null if no reader can decode it
+     * @throws IOException if an error occurs during reading
      */
-    private byte[] compressJpegToByteArray(BufferedImage image, float quality) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        compressJpeg(image, baos, quality);
-        return baos.toByteArray();
+    private BufferedImage decodeImage(ImageBuffer image, ImageHeader header) throws IOException {
+        if (tilingMinPixels > 0 && header.format() == ImageFormat.TIFF && header.pixels() >= tilingMinPixels
+                && header.height() >= 2 * MIN_STRIP_ROWS) {
+            return decodeTiled(image, header);
+        }
+        return decodeRegion(image, header, null);
     }
 
     /**
-     * Decodes the image from the provided byte array. Supports JPEG and attempts WebP if needed.
-     *
-     * @param imageBytes the raw image bytes
-     * @return the decoded BufferedImage, or null if decoding fails
-     * @throws IOException if an error occurs during reading
+     * Decodes the image strip by strip on the tile pool, each task with its own reader and stream,
+     * and stitches the converted strips into one raster.
      */
-    private BufferedImage decodeImage(byte[] imageBytes) throws IOException {
-        BufferedImage img;
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(imageBytes)) {
-            img = ImageIO.read(bais);
+    private BufferedImage decodeTiled(ImageBuffer image, ImageHeader header) throws IOException {
+        int strips = Math.min(tilePool.getParallelism() * 2, header.height() / MIN_STRIP_ROWS);
+        int rows = (header.height() + strips - 1) / strips;
+        rows += (SUBSAMPLING - rows % SUBSAMPLING) % SUBSAMPLING;
+
+        List<Callable<BufferedImage>> tasks = new ArrayList<>();
+        for (int y = 0; y < header.height(); y += rows) {
+            Rectangle region = new Rectangle(0, y, header.width(), Math.min(rows, header.height() - y));
+            tasks.add(() -> decodeRegion(image, header, region));
+        }
+        log.debug("Decoding {}x{} image in {} strips", header.width(), header.height(), tasks.size());
+
+        List<BufferedImage> decoded = new ArrayList<>(tasks.size());
+        try {
+            for (Future<BufferedImage> strip : tilePool.invokeAll(tasks)) {
+                decoded.add(strip.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decoding image strips");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to decode image strip", e.getCause());
         }
-        if (img != null) {
-            return img;
+        if (decoded.contains(null)) {
+            return null;
         }
-        if (isWebP(imageBytes)) {
-            log.info("WebP format detected. Attempting to decode WebP image.");
-            return decodeWebP(imageBytes);
+
+        // Зшивання смуг в одне зображення
+        int height = decoded.stream().mapToInt(BufferedImage::getHeight).sum();
+        BufferedImage stitched = new BufferedImage(decoded.get(0).getWidth(), height, BufferedImage.TYPE_INT_RGB);
+        int y = 0;
+        for (BufferedImage strip : decoded) {
+            stitched.getRaster().setDataElements(0, y, strip.getRaster());
+            y += strip.getHeight();
         }
-        return null;
+        return stitched;
     }
 
     /**
-     * Checks if the provided bytes represent a WebP image.
+     * Decodes a region of the image, or all of it, subsampled at {@link #SCALE_FACTOR}.
+     * The reader writes into a {@code TYPE_INT_RGB} destination when it supports one;
+     * otherwise only the already subsampled image is converted, by the {@link PixelKernels} where the layout allows.
+     * Readers that ignore subsampling get their output halved with a box filter instead.
+     * The reader is picked by the format detected from the magic bytes.
      *
-     * @param imageBytes the image bytes
-     * @return true if the image is WebP; false otherwise
+     * @param image  the raw image
+     * @param header the probed format of the image
+     * @param region the source rows and columns to decode, or null for the whole image
+     * @return the decoded and scaled RGB image, or null if no reader can decode it
+     * @throws IOException if an error occurs during reading
      */
-    private boolean isWebP(byte[] imageBytes) {
-        if (imageBytes.length < 12) return false;
-        String header = new String(imageBytes, 0, 12, StandardCharsets.US_ASCII);
-        return header.startsWith("RIFF") && header.substring(8, 12).equals("WEBP");
+    private BufferedImage decodeRegion(ImageBuffer image, ImageHeader header, Rectangle region) throws IOException {
+        ImageReader reader = header.createReader();
+        if (reader == null) {
+            return null;
+        }
+        try (ImageInputStream in = image.newImageInputStream()) {
+            reader.setInput(in, true, true);
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (region != null) {
+                param.setSourceRegion(region);
+            }
+            param.setSourceSubsampling(SUBSAMPLING, SUBSAMPLING, 0, 0);
+            ImageTypeSpecifier rgbType = findRgbType(reader);
+            if (rgbType != null) {
+                param.setDestinationType(rgbType);
+            }
+            BufferedImage decoded = convertToRgb(reader.read(0, param));
+            // Деякі плагіни ігнорують subsampling — зменшуємо самі
+            int sourceWidth = region != null ? region.width : header.width();
+            int sourceHeight = region != null ? region.height : header.height();
+            if (decoded.getWidth() == sourceWidth && decoded.getHeight() == sourceHeight && sourceWidth > 1) {
+                return kernels().downscale2x(decoded);
+            }
+            return decoded;
+        } finally {
+            reader.dispose();
+        }
     }
 
-    /**
-     * Attempts to decode a WebP image.
-     *
-     * @param imageBytes the image bytes
-     * @return the decoded BufferedImage, or null if decoding fails
-     * @throws IOException if an error occurs during reading
-     */
-    private BufferedImage decodeWebP(byte[] imageBytes) throws IOException {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(imageBytes)) {
-            BufferedImage img = ImageIO.read(bais);
-            if (img == null) {
-                log.error("Failed to decode WebP image. Ensure the appropriate plugin is installed.");
+    private PixelKernels kernels() {
+        return PixelKernels.select(vectorEnabled);
+    }
+
+    private ImageTypeSpecifier findRgbType(ImageReader reader) throws IOException {
+        Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+        while (types.hasNext()) {
+            ImageTypeSpecifier type = types.next();
+            if (type.getBufferedImageType() == BufferedImage.TYPE_INT_RGB) {
+                return type;
             }
-            return img;
         }
+        return null;
     }
 
     /**
-     * Compresses the BufferedImage as a JPEG and writes it to the provided OutputStream.
+     * Compresses the BufferedImage as a JPEG into this thread's reusable buffer.
+     * The JPEG writer is also kept per thread instead of being looked up and disposed on every call,
+     * and output goes through an in-memory stream rather than ImageIO's disk cache.
      *
      * @param image   the image to compress
-     * @param os      the output stream to write the compressed image
      * @param quality the JPEG quality (0.0 to 1.0)
+     * @return this thread's buffer holding the JPEG; valid until the next call on the same thread
      * @throws IOException if an error occurs during writing
      */
-    private void compressJpeg(BufferedImage image, OutputStream os, float quality) throws IOException {
-        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
-        if (!writers.hasNext()) throw new IllegalStateException("No JPEG writers found");
-
-        ImageWriter writer = writers.next();
+    private EncodeBuffer compressJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = JPEG_WRITER.get();
         ImageWriteParam params = writer.getDefaultWriteParam();
         params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
         params.setCompressionQuality(quality);
 
-        try (ImageOutputStream ios = ImageIO.createImageOutputStream(os)) {
+        EncodeBuffer buffer = ENCODE_BUFFER.get();
+        buffer.reset();
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(buffer)) {
             writer.setOutput(ios);
             writer.write(null, new IIOImage(image, null, null), params);
         } finally {
-            writer.dispose();
+            writer.reset();
+        }
+        return buffer;
+    }
+
+    private static ImageWriter createJpegWriter() {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
+        if (!writers.hasNext()) throw new IllegalStateException("No JPEG writers found");
+        return writers.next();
+    }
+
+    /**
+     * Per-thread output buffer that keeps its capacity between images unless an unusually large image grew it.
+     */
+    private static final class EncodeBuffer extends ByteArrayOutputStream {
+
+        private static final int INITIAL_CAPACITY = 256 * 1024;
+        private static final int MAX_RETAINED_CAPACITY = 8 * 1024 * 1024;
+
+        EncodeBuffer() {
+            super(INITIAL_CAPACITY);
+        }
+
+        void recycle() {
+            if (buf.length > MAX_RETAINED_CAPACITY) {
+                buf = new byte[INITIAL_CAPACITY];
+            }
+            reset();
         }
     }
 }
@@ -0,0 +1,118 @@
+package com.webscraper.infrastructure.image;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.webscraper.application.ports.ImageContentService;
+import com.webscraper.domain.entities.ImageContent;
+import com.webscraper.infrastructure.db.entities.ImageEntity;
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import com.webscraper.infrastructure.image.storage.ImageStorage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Serves stored images straight from {@link ImageStorage}, usually as a memory-mapped buffer. Small images
+ * that are requested repeatedly are also kept on the heap, keyed by their storage location, so a hot image
+ * costs neither a page fault nor a storage lookup; a location never changes its bytes, so entries need no
+ * invalidation when a row is repointed. An image is admitted on its second read among the recently read
+ * locations, so a scan of images read once (an export, a crawler of our own API) does not evict the hot ones.
+ */
+@Service
+public class ImageContentServiceImpl implements ImageContentService {
+
+    private static final String DEFAULT_MEDIA_TYPE = "application/octet-stream";
+    private static final long READ_ONCE_MAX_ENTRIES = 32_768;
+
+    private final ImageRepository imageRepository;
+    private final ImageStorage imageStorage;
+    private final int maxEntryBytes;
+    private final Cache<String, ImageContent> hotCache;
+    private final Cache<String, Boolean> readOnce;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Constructs an ImageContentServiceImpl.
+     *
+     * @param imageRepository the repository of stored images
+     * @param imageStorage    the storage holding the image bytes
+     * @param maxBytes        the total size of cached images; 0 disables the cache
+     * @param maxEntryBytes   the largest image that is cached
+     * @param meterRegistry   the registry for cache metrics
+     */
+    public ImageContentServiceImpl(ImageRepository imageRepository,
+                                   ImageStorage imageStorage,
+                                   @Value("${images.content.cache.maxBytes:67108864}") long maxBytes,
+                                   @Value("${images.content.cache.maxEntryBytes:1048576}") int maxEntryBytes,
+                                   MeterRegistry meterRegistry) {
+        this.imageRepository = imageRepository;
+        this.imageStorage = imageStorage;
+        this.maxEntryBytes = maxBytes > 0 ? maxEntryBytes : 0;
+        this.hotCache = CacheBuilder.newBuilder()
+                .maximumWeight(Math.max(0, maxBytes))
+                .<String, ImageContent>weigher((location, content) -> content.data().remaining())
+                .build();
+        this.readOnce = CacheBuilder.newBuilder()
+                .maximumSize(READ_ONCE_MAX_ENTRIES)
+                .build();
+        this.hits = meterRegistry.counter("scraper.images.content.reads", "result", "hit");
+        this.misses = meterRegistry.counter("scraper.images.content.reads", "result", "miss");
+    }
+
+    @Override
+    public Optional<ImageEntity> findImage(long id) {
+        return imageRepository.findById(id);
+    }
+
+    @Override
+    public String entityTag(ImageEntity image) {
+        if (image.getContentHash() == null) {
+            return null;
+        }
+        // Розмір змінюється, коли рядок перенаправляють на більший варіант того ж зображення
+        return "\"" + image.getContentHash() + "-" + Long.toHexString(image.getSizeAfterCompression()) + "\"";
+    }
+
+    @Override
+    public ImageContent readContent(ImageEntity image) throws IOException {
+        String location = image.getPath();
+        ImageContent cached = hotCache.getIfPresent(location);
+        if (cached != null) {
+            hits.increment();
+            return new ImageContent(cached.data().duplicate(), cached.mediaType());
+        }
+        misses.increment();
+        ByteBuffer data = imageStorage.read(location);
+        ImageContent content = new ImageContent(data, mediaType(data));
+        if (data.remaining() <= maxEntryBytes && readBefore(location)) {
+            ByteBuffer copy = ByteBuffer.allocate(data.remaining()).put(data.duplicate()).flip();
+            hotCache.put(location, new ImageContent(copy.asReadOnlyBuffer(), content.mediaType()));
+        }
+        return content;
+    }
+
+    /**
+     * Remembers a location on its first read and reports the second one.
+     */
+    private boolean readBefore(String location) {
+        if (readOnce.asMap().remove(location) != null) {
+            return true;
+        }
+        readOnce.put(location, Boolean.TRUE);
+        return false;
+    }
+
+    private static String mediaType(ByteBuffer data) {
+        byte[] header = new byte[Math.min(ImageFormat.HEADER_LENGTH, data.remaining())];
+        data.get(data.position(), header);
+        ImageFormat format = ImageFormat.detect(header, header.length);
+        return format == null ? DEFAULT_MEDIA_TYPE : "image/" + format.formatName();
+    }
+}
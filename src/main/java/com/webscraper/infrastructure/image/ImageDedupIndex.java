@@ -0,0 +1,216 @@
+package com.webscraper.infrastructure.image;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Answers "was this image URL already processed?" before any download happens.
+ * A size-bounded LRU of recent answers sits in front of a Bloom filter of all stored URLs,
+ * which is rebuilt from {@code image_entity} at startup. Only Bloom hits (and lookups made while
+ * the filter is still loading) reach the database, and concurrent lookups are batched into one query.
+ */
+@Slf4j
+@Component
+public class ImageDedupIndex {
+
+    private static final int REBUILD_PAGE_SIZE = 10_000;
+    private static final long LOOKUP_TIMEOUT_SECONDS = 30;
+
+    private final ImageRepository imageRepository;
+    private final ExecutorService lookupExecutor;
+    private final ExecutorService rebuildExecutor;
+    private final int batchSize;
+    private final Cache<String, Boolean> recent;
+    private final BloomFilter<CharSequence> bloomFilter;
+    private volatile boolean bloomReady;
+
+    private final Queue<Lookup> pendingLookups = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final Counter cacheHits;
+    private final Counter bloomMisses;
+    private final Counter databaseLookups;
+    private final Counter databaseQueries;
+
+    /**
+     * Constructs an ImageDedupIndex.
+     *
+     * @param imageRepository    the repository of processed images
+     * @param lookupExecutor     the executor running batched database lookups
+     * @param rebuildExecutor    the executor loading stored URLs at startup, kept apart from the lookups
+     * @param expectedImages     the number of images the Bloom filter is sized for
+     * @param falsePositiveRate  the Bloom filter's false positive probability at the expected size
+     * @param cacheMaxBytes      the approximate memory budget of the LRU of recent answers
+     * @param batchSize          the maximum number of URLs looked up in one query
+     * @param meterRegistry      the registry for index metrics
+     */
+    public ImageDedupIndex(ImageRepository imageRepository,
+                           @Qualifier("dedupLookupThreadPool") ExecutorService lookupExecutor,
+                           @Qualifier("indexRebuildThreadPool") ExecutorService rebuildExecutor,
+                           @Value("${images.dedup.expectedImages:1000000}") long expectedImages,
+                           @Value("${images.dedup.falsePositiveRate:0.01}") double falsePositiveRate,
+                           @Value("${images.dedup.cacheMaxBytes:16777216}") long cacheMaxBytes,
+                           @Value("${images.dedup.batchSize:100}") int batchSize,
+                           MeterRegistry meterRegistry) {
+        this.imageRepository = imageRepository;
+        this.lookupExecutor = lookupExecutor;
+        this.rebuildExecutor = rebuildExecutor;
+        this.batchSize = Math.max(1, batchSize);
+        this.recent = CacheBuilder.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((String url, Boolean known) -> 64 + 2 * url.length())
+                .build();
+        this.bloomFilter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedImages, falsePositiveRate);
+        this.cacheHits = meterRegistry.counter("scraper.images.dedup", "source", "cache");
+        this.bloomMisses = meterRegistry.counter("scraper.images.dedup", "source", "bloom");
+        this.databaseLookups = meterRegistry.counter("scraper.images.dedup", "source", "database");
+        this.databaseQueries = meterRegistry.counter("scraper.images.dedup.queries");
+    }
+
+    /**
+     * Loads all stored image URLs into the Bloom filter in the background once the application is up.
+     * Until the load finishes every lookup that misses the LRU goes to the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        CompletableFuture.runAsync(() -> {
+            long startTime = System.currentTimeMillis();
+            long afterId = 0;
+            long loaded = 0;
+            while (true) {
+                List<ImageRepository.OriginalUrlView> page =
+                        imageRepository.findOriginalUrlsAfter(afterId, PageRequest.ofSize(REBUILD_PAGE_SIZE));
+                for (ImageRepository.OriginalUrlView image : page) {
+                    bloomFilter.put(image.getOriginalUrl());
+                }
+                loaded += page.size();
+                if (page.size() < REBUILD_PAGE_SIZE) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            bloomReady = true;
+            log.info("Image dedup index loaded {} URLs in {} ms", loaded, System.currentTimeMillis() - startTime);
+        }, rebuildExecutor).exceptionally(ex -> {
+            log.error("Failed to load image dedup index; falling back to database lookups: {}", ex.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Checks whether the image URL was already processed.
+     *
+     * @param originalUrl the original image URL
+     * @return true if the image is stored; false if it is not or the lookup failed
+     */
+    public boolean isProcessed(String originalUrl) {
+        Boolean known = recent.getIfPresent(originalUrl);
+        if (known != null) {
+            cacheHits.increment();
+            return known;
+        }
+        if (bloomReady && !bloomFilter.mightContain(originalUrl)) {
+            bloomMisses.increment();
+            return false;
+        }
+        databaseLookups.increment();
+        Lookup lookup = new Lookup(originalUrl, new CompletableFuture<>());
+        pendingLookups.add(lookup);
+        scheduleDrain();
+        try {
+            boolean exists = lookup.result().get(LOOKUP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            recent.put(originalUrl, exists);
+            return exists;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Dedup lookup for {} failed: {}", originalUrl, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Records that the image URL has been processed and stored.
+     *
+     * @param originalUrl the original image URL
+     */
+    public void markProcessed(String originalUrl) {
+        bloomFilter.put(originalUrl);
+        recent.put(originalUrl, Boolean.TRUE);
+    }
+
+    /**
+     * Drops the mark of an image URL whose row could not be stored. The Bloom filter keeps the URL,
+     * so the next check falls through to the database.
+     *
+     * @param originalUrl the original image URL
+     */
+    public void forgetProcessed(String originalUrl) {
+        recent.invalidate(originalUrl);
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            lookupExecutor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Answers pending lookups in batches; lookups arriving while a query runs are picked up by the next batch.
+     */
+    private void drain() {
+        while (true) {
+            List<Lookup> batch = new ArrayList<>(batchSize);
+            Lookup lookup;
+            while (batch.size() < batchSize && (lookup = pendingLookups.poll()) != null) {
+                batch.add(lookup);
+            }
+            if (batch.isEmpty()) {
+                draining.set(false);
+                if (pendingLookups.isEmpty() || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                Set<String> urls = new HashSet<>();
+                batch.forEach(l -> urls.add(l.url()));
+                databaseQueries.increment();
+                Set<String> existing = new HashSet<>(imageRepository.findExistingOriginalUrls(urls));
+                batch.forEach(l -> l.result().complete(existing.contains(l.url())));
+            } catch (Exception e) {
+                batch.forEach(l -> l.result().completeExceptionally(e));
+            }
+        }
+    }
+
+    private record Lookup(String url, CompletableFuture<Boolean> result) {
+    }
+}
@@ -0,0 +1,239 @@
+package com.webscraper.infrastructure.image;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.webscraper.infrastructure.exceptions.ImageTooLargeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpHead;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.io.Closer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Downloads images over HTTP, deciding before the body is transferred whether the image is worth it.
+ * Images below the size threshold or of an unsupported type are rejected from a HEAD response where the host
+ * supports it, otherwise from the GET response headers or the first bytes of the body, which is then abandoned.
+ */
+@Slf4j
+@Component
+public class ImageDownloader {
+
+    /**
+     * Up to this many unread bytes an abandoned body is drained to keep the connection; beyond it the connection is dropped.
+     */
+    private static final long DRAIN_LIMIT = 64 * 1024;
+
+    private static final Set<String> UNSUPPORTED_IMAGE_TYPES = Set.of(
+            "image/svg+xml", "image/x-icon", "image/vnd.microsoft.icon", "image/avif", "image/heic", "image/heif");
+
+    private final CloseableHttpClient imageHttpClient;
+    private final ImageBufferPool imageBufferPool;
+    private final long minSizeBytes;
+    private final Cache<String, Boolean> headSupport = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    private final Counter skippedSmall;
+    private final Counter skippedType;
+    private final Counter skippedLarge;
+    private final Counter bytesAvoided;
+    private final Counter bytesDownloaded;
+
+    /**
+     * Constructs an ImageDownloader.
+     *
+     * @param imageHttpClient the pooled HTTP client for images
+     * @param imageBufferPool the pool image bodies are read into
+     * @param minSizeBytes    images smaller than this are not downloaded
+     * @param meterRegistry   the registry for download metrics
+     */
+    public ImageDownloader(@Qualifier("imageHttpClient") CloseableHttpClient imageHttpClient,
+                           ImageBufferPool imageBufferPool,
+                           @Value("${images.minSizeBytes:204800}") long minSizeBytes,
+                           MeterRegistry meterRegistry) {
+        this.imageHttpClient = imageHttpClient;
+        this.imageBufferPool = imageBufferPool;
+        this.minSizeBytes = minSizeBytes;
+        this.skippedSmall = meterRegistry.counter("scraper.images.probe.skipped", "reason", "size");
+        this.skippedType = meterRegistry.counter("scraper.images.probe.skipped", "reason", "type");
+        this.skippedLarge = meterRegistry.counter("scraper.images.probe.skipped", "reason", "too_large");
+        this.bytesAvoided = meterRegistry.counter("scraper.images.bytes.avoided");
+        this.bytesDownloaded = meterRegistry.counter("scraper.images.bytes.downloaded");
+    }
+
+    /**
+     * Downloads the image unless probing shows it is too small, too large or not a supported image.
+     *
+     * @param url the image URL
+     * @return the image, which the caller must close, or null if the image was skipped or could not be downloaded
+     */
+    public ImageBuffer download(URI url) {
+        String host = url.getHost() != null ? url.getHost().toLowerCase(Locale.ROOT) : null;
+        if (host != null && !Boolean.FALSE.equals(headSupport.getIfPresent(host)) && !headAllowsDownload(url, host)) {
+            return null;
+        }
+        return get(url);
+    }
+
+    /**
+     * Probes the image with a HEAD request and records whether the host answers HEAD usefully.
+     *
+     * @return false if the image is known to be too small, unsupported or missing
+     */
+    private boolean headAllowsDownload(URI url, String host) {
+        HttpHead request = new HttpHead(url);
+        ClassicHttpResponse response = null;
+        try {
+            response = imageHttpClient.executeOpen(null, request, null);
+            int code = response.getCode();
+            if (code == 404 || code == 410) {
+                log.info("Image {} not found (HTTP {}); skipping download.", url, code);
+                return false;
+            }
+            if (code < 200 || code >= 300) {
+                if (code == 403 || code == 405 || code == 501) {
+                    headSupport.put(host, Boolean.FALSE);
+                }
+                return true;
+            }
+            Header lengthHeader = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+            Header typeHeader = response.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+            long length = lengthHeader != null ? parseLength(lengthHeader.getValue()) : -1;
+            headSupport.put(host, length >= 0);
+            return accept(url, typeHeader != null ? typeHeader.getValue() : null, length);
+        } catch (IOException e) {
+            log.debug("HEAD probe of {} failed: {}", url, e.getMessage());
+            return true;
+        } finally {
+            Closer.closeQuietly(response);
+        }
+    }
+
+    /**
+     * Downloads the image body, abandoning it as soon as the headers or the first bytes rule it out.
+     */
+    private ImageBuffer get(URI url) {
+        HttpGet request = new HttpGet(url);
+        ClassicHttpResponse response = null;
+        try {
+            response = imageHttpClient.executeOpen(null, request, null);
+            HttpEntity entity = response.getEntity();
+            if (response.getCode() < 200 || response.getCode() >= 300 || entity == null) {
+                log.warn("Failed to download image {}: HTTP {}", url, response.getCode());
+                return null;
+            }
+            long length = entity.getContentLength();
+            if (!accept(url, entity.getContentType(), length)) {
+                abandon(request, length, 0);
+                return null;
+            }
+            InputStream in = entity.getContent();
+            byte[] header = in.readNBytes(ImageFormat.HEADER_LENGTH);
+            if (ImageFormat.detect(header, header.length) == null) {
+                log.info("Image {} is not in a supported format; skipping download.", url);
+                skippedType.increment();
+                countAvoided(length, header.length);
+                abandon(request, length, header.length);
+                return null;
+            }
+            MessageDigest digest = ImageBuffer.newContentDigest();
+            ImageBuffer image = imageBufferPool.read(
+                    new DigestInputStream(new SequenceInputStream(new ByteArrayInputStream(header), in), digest), length);
+            image.setContentHash(digest);
+            bytesDownloaded.increment(image.size());
+            return image;
+        } catch (ImageTooLargeException e) {
+            log.info("Image {} is larger than {} bytes; download aborted.", url, imageBufferPool.getMaxImageBytes());
+            skippedLarge.increment();
+            request.cancel();
+            return null;
+        } catch (IOException e) {
+            log.error("Error downloading image {}: {}", url, e.getMessage());
+            request.cancel();
+            return null;
+        } finally {
+            Closer.closeQuietly(response);
+        }
+    }
+
+    /**
+     * Decides from the content type and length whether the image is worth downloading.
+     */
+    private boolean accept(URI url, String contentType, long length) {
+        if (!isSupportedType(contentType)) {
+            log.info("Image {} has unsupported type {}; skipping download.", url, contentType);
+            skippedType.increment();
+            countAvoided(length, 0);
+            return false;
+        }
+        if (length >= 0 && length < minSizeBytes) {
+            log.info("Image {} is less than {} bytes; skipping download.", url, minSizeBytes);
+            skippedSmall.increment();
+            countAvoided(length, 0);
+            return false;
+        }
+        if (length > imageBufferPool.getMaxImageBytes()) {
+            log.info("Image {} is larger than {} bytes; skipping download.", url, imageBufferPool.getMaxImageBytes());
+            skippedLarge.increment();
+            countAvoided(length, 0);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops reading a rejected body: small remainders are drained so the connection can be reused,
+     * larger ones are cut off by cancelling the request.
+     */
+    private void abandon(HttpGet request, long length, long bytesRead) {
+        if (length < 0 || length - bytesRead > DRAIN_LIMIT) {
+            request.cancel();
+        }
+    }
+
+    private void countAvoided(long length, long bytesRead) {
+        if (length > bytesRead) {
+            bytesAvoided.increment(length - bytesRead);
+        }
+    }
+
+    private boolean isSupportedType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return true;
+        }
+        String mimeType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        if (mimeType.startsWith("image/")) {
+            return !UNSUPPORTED_IMAGE_TYPES.contains(mimeType);
+        }
+        return mimeType.equals("application/octet-stream") || mimeType.equals("binary/octet-stream");
+    }
+
+    private long parseLength(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.webscraper.infrastructure.image;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.webscraper.application.ports.ImageExportService;
+import com.webscraper.infrastructure.db.entities.ImageEntity;
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import com.webscraper.infrastructure.image.storage.ImageStorage;
+import com.webscraper.infrastructure.utils.URLUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams the stored images of a site as a zip archive. The archive starts with {@code manifest.jsonl}, one
+ * row per line in id order, followed by one {@code images/<id>.<ext>} entry per row. The image entries follow
+ * the order of their stored paths, which is the order of the bytes in pack segments and of the shard
+ * directories on disk, so the storage is read sequentially. Rows are read page by page with keyset queries
+ * and every image is copied from its storage buffer straight into the response, so memory stays flat however
+ * many images the site has. Images are already compressed, so their entries are stored rather than deflated.
+ */
+@Slf4j
+@Service
+public class ImageExportServiceImpl implements ImageExportService {
+
+    static final String MANIFEST_ENTRY = "manifest.jsonl";
+    private static final int COPY_CHUNK_BYTES = 256 * 1024;
+
+    private final ImageRepository imageRepository;
+    private final ImageStorage imageStorage;
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+    private final int bufferBytes;
+
+    private final Counter exported;
+    private final Counter missing;
+
+    /**
+     * Constructs an ImageExportServiceImpl.
+     *
+     * @param imageRepository the repository of stored images
+     * @param imageStorage    the storage holding the image bytes
+     * @param objectMapper    the mapper writing manifest rows
+     * @param pageSize        the number of rows read per query
+     * @param bufferBytes     the size of the output buffer in front of the response
+     * @param meterRegistry   the registry for export metrics
+     */
+    public ImageExportServiceImpl(ImageRepository imageRepository,
+                                  ImageStorage imageStorage,
+                                  ObjectMapper objectMapper,
+                                  @Value("${images.export.pageSize:500}") int pageSize,
+                                  @Value("${images.export.bufferBytes:1048576}") int bufferBytes,
+                                  MeterRegistry meterRegistry) {
+        this.imageRepository = imageRepository;
+        this.imageStorage = imageStorage;
+        this.objectMapper = objectMapper;
+        this.pageSize = Math.max(1, pageSize);
+        this.bufferBytes = Math.max(8192, bufferBytes);
+        this.exported = meterRegistry.counter("scraper.images.export.files", "result", "exported");
+        this.missing = meterRegistry.counter("scraper.images.export.files", "result", "missing");
+    }
+
+    @Override
+    public void exportSite(String site, OutputStream out) throws IOException {
+        String domain = URLUtil.toDomain(site);
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, bufferBytes));
+        // Маніфест першим: id останнього рядка обмежує другий прохід, тож архів узгоджений
+        long lastId = writeManifest(zip, domain);
+        writeImages(zip, domain, lastId);
+        zip.finish();
+        zip.flush();
+    }
+
+    private long writeManifest(ZipOutputStream zip, String domain) throws IOException {
+        zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+        JsonGenerator json = objectMapper.getFactory().createGenerator(zip);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long lastId = 0;
+        List<ImageEntity> page;
+        do {
+            page = imageRepository.findByDomainAndIdGreaterThanOrderByIdAsc(domain, lastId, Limit.of(pageSize));
+            for (ImageEntity image : page) {
+                ObjectNode row = objectMapper.valueToTree(image);
+                row.put("file", entryName(image));
+                objectMapper.writeValue(json, row);
+                json.writeRaw('\n');
+                lastId = image.getId();
+            }
+        } while (page.size() == pageSize);
+        json.flush();
+        zip.closeEntry();
+        return lastId;
+    }
+
+    private void writeImages(ZipOutputStream zip, String domain, long lastId) throws IOException {
+        if (lastId == 0) {
+            return;
+        }
+        byte[] chunk = null;
+        String afterPath = "";
+        long afterId = 0;
+        List<ImageEntity> page;
+        do {
+            page = imageRepository.findByDomainInPathOrder(domain, lastId, afterPath, afterId, Limit.of(pageSize));
+            for (ImageEntity image : page) {
+                afterPath = image.getPath();
+                afterId = image.getId();
+                ByteBuffer data;
+                try {
+                    data = imageStorage.read(image.getPath());
+                } catch (IOException e) {
+                    log.warn("Skipping image {} in export of {}: {}", image.getId(), domain, e.getMessage());
+                    missing.increment();
+                    continue;
+                }
+                if (!data.hasArray() && chunk == null) {
+                    chunk = new byte[COPY_CHUNK_BYTES];
+                }
+                writeStored(zip, entryName(image), data, chunk);
+                exported.increment();
+            }
+        } while (page.size() == pageSize);
+    }
+
+    private static void writeStored(ZipOutputStream zip, String name, ByteBuffer data, byte[] chunk) throws IOException {
+        int length = data.remaining();
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(length);
+        entry.setCompressedSize(length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        if (data.hasArray()) {
+            zip.write(data.array(), data.arrayOffset() + data.position(), length);
+        } else {
+            ByteBuffer source = data.duplicate();
+            while (source.hasRemaining()) {
+                int count = Math.min(chunk.length, source.remaining());
+                source.get(chunk, 0, count);
+                zip.write(chunk, 0, count);
+            }
+        }
+        zip.closeEntry();
+    }
+
+    /**
+     * Names the archive entry of an image by its id, keeping the extension of its stored file. Pack locations
+     * have no extension; both compressed and passed-through images are JPEG.
+     */
+    static String entryName(ImageEntity image) {
+        String path = image.getPath();
+        int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        int dot = path.lastIndexOf('.');
+        String extension = dot > slash ? path.substring(dot) : ".jpg";
+        return "images/" + image.getId() + extension;
+    }
+}
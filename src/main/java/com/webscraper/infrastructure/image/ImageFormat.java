@@ -0,0 +1,78 @@
+package com.webscraper.infrastructure.image;
+
+/**
+ * Raster image formats the pipeline can decode, recognized by their magic bytes.
+ */
+public enum ImageFormat {
+
+    JPEG("jpeg"),
+    PNG("png"),
+    GIF("gif"),
+    BMP("bmp"),
+    WEBP("webp"),
+    TIFF("tiff");
+
+    /**
+     * The number of leading bytes {@link #detect} needs to recognize every format.
+     */
+    public static final int HEADER_LENGTH = 12;
+
+    private final String formatName;
+
+    ImageFormat(String formatName) {
+        this.formatName = formatName;
+    }
+
+    /**
+     * Returns the ImageIO format name of this format.
+     *
+     * @return the format name, e.g. "jpeg"
+     */
+    public String formatName() {
+        return formatName;
+    }
+
+    /**
+     * Returns the usual file extension of this format.
+     *
+     * @return the extension without a dot, e.g. "jpg"
+     */
+    public String fileExtension() {
+        return this == JPEG ? "jpg" : formatName;
+    }
+
+    /**
+     * Detects the format from the first bytes of an image.
+     *
+     * @param header the leading bytes of the image
+     * @param length how many bytes of {@code header} are valid
+     * @return the detected format, or null if the bytes match no supported format
+     */
+    public static ImageFormat detect(byte[] header, int length) {
+        if (length >= 3 && u(header[0]) == 0xFF && u(header[1]) == 0xD8 && u(header[2]) == 0xFF) {
+            return JPEG;
+        }
+        if (length >= 4 && u(header[0]) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G') {
+            return PNG;
+        }
+        if (length >= 4 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8') {
+            return GIF;
+        }
+        if (length >= 2 && header[0] == 'B' && header[1] == 'M') {
+            return BMP;
+        }
+        if (length >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return WEBP;
+        }
+        if (length >= 4 && ((header[0] == 'I' && header[1] == 'I' && header[2] == 42 && header[3] == 0)
+                || (header[0] == 'M' && header[1] == 'M' && header[2] == 0 && header[3] == 42))) {
+            return TIFF;
+        }
+        return null;
+    }
+
+    private static int u(byte b) {
+        return b & 0xFF;
+    }
+}
@@ -0,0 +1,61 @@
+package com.webscraper.infrastructure.image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Format and dimensions of an image, read from its headers without decoding any pixels.
+ *
+ * @param format the format recognized from the magic bytes
+ * @param width  the image width in pixels
+ * @param height the image height in pixels
+ */
+public record ImageHeader(ImageFormat format, int width, int height) {
+
+    /**
+     * Returns the number of pixels of the full-resolution image.
+     *
+     * @return width times height
+     */
+    public long pixels() {
+        return (long) width * height;
+    }
+
+    /**
+     * Creates a reader for this image's format, chosen by magic bytes rather than by asking every
+     * registered reader whether it can decode the stream.
+     *
+     * @return a new reader, or null if no reader for the format is installed
+     */
+    public ImageReader createReader() {
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(format.formatName());
+        return readers.hasNext() ? readers.next() : null;
+    }
+
+    /**
+     * Reads the format from the magic bytes and the dimensions from the image headers.
+     *
+     * @param image the raw image
+     * @return the header, or null if the format is not supported or no reader for it is installed
+     * @throws IOException if the headers are corrupt
+     */
+    public static ImageHeader read(ImageBuffer image) throws IOException {
+        ImageFormat format = image.format();
+        if (format == null) {
+            return null;
+        }
+        ImageReader reader = new ImageHeader(format, 0, 0).createReader();
+        if (reader == null) {
+            return null;
+        }
+        try (ImageInputStream in = image.newImageInputStream()) {
+            reader.setInput(in, true, true);
+            return new ImageHeader(format, reader.getWidth(0), reader.getHeight(0));
+        } finally {
+            reader.dispose();
+        }
+    }
+}
@@ -1,10 +1,15 @@
     package com.webscraper.infrastructure.image;
 
-    import com.webscraper.domain.entities.CompressionResult;
     import com.webscraper.infrastructure.db.entities.ImageEntity;
+    import com.webscraper.infrastructure.db.repositories.ImageMetadataWriter;
     import com.webscraper.infrastructure.db.repositories.ImageRepository;
     import com.webscraper.application.ports.ImageProcessingService;
+    import com.webscraper.infrastructure.image.storage.ImageStorage;
+    import com.webscraper.infrastructure.image.storage.StoredImage;
+    import com.webscraper.infrastructure.image.storage.StoredPathGuard;
     import com.webscraper.infrastructure.image.strategy.ImageFetchStrategy;
+    import io.micrometer.core.instrument.Counter;
+    import io.micrometer.core.instrument.MeterRegistry;
     import lombok.extern.slf4j.Slf4j;
     import org.springframework.beans.factory.annotation.Autowired;
     import org.springframework.boot.web.client.RestTemplateBuilder;
@@ -12,13 +17,11 @@
     import org.springframework.stereotype.Service;
 
     import java.net.URLDecoder;
+    import java.nio.ByteBuffer;
     import java.nio.charset.StandardCharsets;
-    import java.nio.file.Files;
-    import java.nio.file.Path;
-    import java.nio.file.Paths;
     import java.util.List;
-    import java.util.concurrent.ConcurrentHashMap;
-    import java.util.concurrent.ConcurrentMap;
+    import java.util.concurrent.CompletableFuture;
+    import java.util.concurrent.ExecutionException;
 
     /**
      * Implementation of {@link ImageProcessingService} for processing images:
@@ -30,61 +33,81 @@
 
         private final ImageCompressor jpegCompressor;
         private final ImageRepository imageRepository;
-        private final ConcurrentMap<String, Boolean> processedImagesCache = new ConcurrentHashMap<>();
-        private final ConcurrentMap<String, Path> domainDirectories = new ConcurrentHashMap<>();
+        private final ImageMetadataWriter imageMetadataWriter;
+        private final ImageDedupIndex imageDedupIndex;
+        private final ContentHashIndex contentHashIndex;
+        private final PixelMemoryBudget pixelMemoryBudget;
+        private final RecompressionPolicy recompressionPolicy;
+        private final NearDuplicateIndex nearDuplicateIndex;
+        private final ImageStorage imageStorage;
+        private final StoredPathGuard storedPathGuard;
         private final List<ImageFetchStrategy> imageFetchStrategies;
-        private final Path outputDirectory;
+        private final long minSizeBytes;
+        private final long maxPixels;
+        private final int minWidth;
+        private final int minHeight;
+
+        private final Counter contentDuplicates;
+        private final Counter storageSaved;
+        private final Counter cpuSaved;
 
         /**
          * Constructs a new ImageProcessingServiceImpl.
          *
          * @param restTemplateBuilder a RestTemplateBuilder for HTTP requests
          * @param imageRepository     the repository for storing image data
+         * @param imageMetadataWriter the batched asynchronous writer of image rows
          * @param jpegCompressor      the JPEG compressor service
+         * @param imageStorage        the storage of processed images
+         * @param storedPathGuard     the guard refusing links to files being moved or deleted
          * @param imageFetchStrategies the list of strategies to fetch images
+         * @param imageDedupIndex     the index of already processed image URLs
+         * @param contentHashIndex    the index of stored image contents
+         * @param pixelMemoryBudget   the budget admitting image decodes by raster size
+         * @param recompressionPolicy the policy passing efficiently encoded images through unchanged
+         * @param nearDuplicateIndex  the index of perceptual hashes of stored images
+         * @param meterRegistry       the registry for content deduplication metrics
          * @param env                 the environment for configuration properties
          */
         @Autowired
         public ImageProcessingServiceImpl(RestTemplateBuilder restTemplateBuilder,
                                           ImageRepository imageRepository,
+                                          ImageMetadataWriter imageMetadataWriter,
                                           ImageCompressor jpegCompressor,
+                                          ImageStorage imageStorage,
+                                          StoredPathGuard storedPathGuard,
                                           List<ImageFetchStrategy> imageFetchStrategies,
+                                          ImageDedupIndex imageDedupIndex,
+                                          ContentHashIndex contentHashIndex,
+                                          PixelMemoryBudget pixelMemoryBudget,
+                                          RecompressionPolicy recompressionPolicy,
+                                          NearDuplicateIndex nearDuplicateIndex,
+                                          MeterRegistry meterRegistry,
                                           Environment env) {
             this.imageRepository = imageRepository;
+            this.imageMetadataWriter = imageMetadataWriter;
+            this.imageDedupIndex = imageDedupIndex;
+            this.contentHashIndex = contentHashIndex;
+            this.pixelMemoryBudget = pixelMemoryBudget;
+            this.recompressionPolicy = recompressionPolicy;
+            this.nearDuplicateIndex = nearDuplicateIndex;
             this.jpegCompressor = jpegCompressor;
+            this.imageStorage = imageStorage;
+            this.storedPathGuard = storedPathGuard;
             this.imageFetchStrategies = imageFetchStrategies;
-            String outputDirStr = env.getProperty("images.output.directory", "compressed-images");
-            this.outputDirectory = Paths.get(outputDirStr);
-            createOutputDirectory();
-        }
-
-        /**
-         * Creates the output directory if it does not exist.
-         */
-        private void createOutputDirectory() {
-            try {
-                Files.createDirectories(outputDirectory);
-            } catch (Exception e) {
-                log.error("Failed to create directory: {}", outputDirectory, e);
-            }
-        }
-
-        /**
-         * Retrieves (or creates) the directory for a specific domain.
-         *
-         * @param domain the domain name
-         * @return the {@link Path} to the domain-specific directory
-         */
-        private Path getDomainOutputDirectory(String domain) {
-            return domainDirectories.computeIfAbsent(domain, d -> {
-                Path domainDir = outputDirectory.resolve(d);
-                try {
-                    Files.createDirectories(domainDir);
-                } catch (Exception e) {
-                    log.error("Failed to create directory for domain {}: {}", d, domainDir, e);
-                }
-                return domainDir;
-            });
+            this.minSizeBytes = env.getProperty("images.minSizeBytes", Long.class, 200L * 1024);
+            this.maxPixels = env.getProperty("images.maxPixels", Long.class, 40_000_000L);
+            this.minWidth = env.getProperty("images.minWidth", Integer.class, 100);
+            this.minHeight = env.getProperty("images.minHeight", Integer.class, 100);
+            this.contentDuplicates = meterRegistry.counter("scraper.images.content.duplicates");
+            this.storageSaved = Counter.builder("scraper.images.content.storage.saved")
+                    .baseUnit("bytes")
+                    .description("Compressed bytes not stored again for images whose content was already stored")
+                    .register(meterRegistry);
+            this.cpuSaved = Counter.builder("scraper.images.content.cpu.saved")
+                    .baseUnit("seconds")
+                    .description("Estimated CPU time not spent recompressing images whose content was already stored")
+                    .register(meterRegistry);
         }
 
         /**
@@ -95,33 +118,200 @@
          */
         @Override
         public void processImage(String imagePath, String domain) {
-            if (processedImagesCache.containsKey(imagePath)) {
+            if (imageDedupIndex.isProcessed(imagePath)) {
                 log.info("Image {} has already been processed.", imagePath);
                 return;
             }
-            try {
-                byte[] imageBytes = getImageBytes(imagePath);
-                if (imageBytes == null) {
-                    log.warn("Failed to obtain image data for URL: {}", imagePath);
+            try (ImageBuffer image = getImage(imagePath)) {
+                if (image == null) {
+                    log.info("No image data obtained for URL: {}", imagePath);
+                    return;
+                }
+                if (image.size() < minSizeBytes) {
+                    log.info("Image {} is less than {} bytes; skipping processing.", imagePath, minSizeBytes);
                     return;
                 }
-                if (imageBytes.length < 200 * 1024) {
-                    log.info("Image {} is less than 200 KB; skipping processing.", imagePath);
+                ImageHeader header = ImageHeader.read(image);
+                if (!isWorthDecoding(header, imagePath)) {
                     return;
                 }
-                processImageBytes(imageBytes, imagePath, domain);
+                if (linkToExistingContent(image, header, imagePath, domain)) {
+                    return;
+                }
+                Long perceptualHash = nearDuplicateIndex.hash(image, header);
+                NearDuplicateIndex.Variant variant = perceptualHash == null ? null : nearDuplicateIndex.findLargest(perceptualHash);
+                if (variant != null && variant.pixels() >= header.pixels()) {
+                    if (linkToNearDuplicate(variant, image, imagePath, domain)) {
+                        return;
+                    }
+                    // Варіант уже замінено або видалено: зберігаємо зображення як нове
+                    variant = null;
+                }
+                StoredRow stored;
+                if (recompressionPolicy.shouldPassThrough(image, header)) {
+                    stored = processImageBytes(image, header, imagePath, domain, true, perceptualHash);
+                } else {
+                    try (PixelMemoryBudget.Reservation ignored = pixelMemoryBudget.reserve(PixelMemoryBudget.estimate(header))) {
+                        stored = processImageBytes(image, header, imagePath, domain, false, perceptualHash);
+                    }
+                }
+                if (stored != null && perceptualHash != null && (variant == null || replaceVariant(variant, stored))) {
+                    nearDuplicateIndex.add(new NearDuplicateIndex.Variant(perceptualHash, header.pixels(), stored.entity().getPath()));
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting to process image {}", imagePath);
             } catch (Exception ex) {
                 log.error("Error processing image {}: ", imagePath, ex);
             }
         }
 
         /**
-         * Attempts to fetch image bytes using the registered image fetch strategies.
+         * Decides from the probed headers whether the image should be decoded at all: unsupported formats,
+         * images over the pixel limit (decompression bombs included) and images too small to be worth
+         * compressing are skipped before any pixel is allocated.
+         *
+         * @param header    the probed header, or null if the format is not supported
+         * @param imagePath the original image URL, for logging
+         * @return true if the image should be decoded and compressed
+         */
+        private boolean isWorthDecoding(ImageHeader header, String imagePath) {
+            if (header == null) {
+                log.info("Image {} is not in a supported format; skipping processing.", imagePath);
+                return false;
+            }
+            if (header.pixels() > maxPixels) {
+                log.warn("Image {} is {}x{}, more than {} pixels; rejecting.", imagePath, header.width(), header.height(), maxPixels);
+                return false;
+            }
+            if (header.width() < minWidth || header.height() < minHeight) {
+                log.info("Image {} is only {}x{}; skipping processing.", imagePath, header.width(), header.height());
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Maps the URL onto an already stored image with the same content hash, without decoding or
+         * encoding again. CDN variants, cache-busting query strings and mirrors thus share one file.
+         *
+         * @param image     the downloaded image
+         * @param header    the probed header, used to estimate the CPU saved
+         * @param imagePath the new original URL
+         * @param domain    the domain associated with the image
+         * @return true if the content was already stored and the URL now points to it, false if it is new or its
+         *         file is being moved or deleted
+         */
+        private boolean linkToExistingContent(ImageBuffer image, ImageHeader header, String imagePath, String domain)
+                throws InterruptedException {
+            ImageEntity existing = contentHashIndex.find(image.contentHash());
+            if (existing == null || !saveLink(existing, imagePath, domain, existing.getOriginalSize(), existing.getContentHash())) {
+                return false;
+            }
+            log.info("Image {} has the same content as {}; reusing {}", imagePath, existing.getOriginalUrl(), existing.getPath());
+            contentDuplicates.increment();
+            storageSaved.increment(existing.getSizeAfterCompression());
+            if (!existing.isPassthrough()) {
+                cpuSaved.increment(recompressionPolicy.estimatedCpuSeconds(header));
+            }
+            return true;
+        }
+
+        /**
+         * Maps the URL onto the stored file of a variant of the same picture that is at least as large,
+         * so only the largest variant is kept on disk.
+         *
+         * @param variant   the largest stored near-duplicate
+         * @param image     the downloaded image
+         * @param imagePath the new original URL
+         * @param domain    the domain associated with the image
+         * @return true if the URL now points to the variant, false if the variant is no longer stored or is being moved or replaced
+         */
+        private boolean linkToNearDuplicate(NearDuplicateIndex.Variant variant, ImageBuffer image, String imagePath,
+                                            String domain) {
+            ImageEntity existing = imageRepository.findFirstByPath(variant.path()).orElse(null);
+            if (existing == null || !saveLink(existing, imagePath, domain, image.size(), image.contentHash())) {
+                return false;
+            }
+            nearDuplicateIndex.linked();
+            log.info("Image {} is a smaller variant of {}; reusing {}", imagePath, existing.getOriginalUrl(), existing.getPath());
+            return true;
+        }
+
+        /**
+         * Stores the URL as another image served by the file of an existing one, unless that file has been
+         * retired for a move or deletion in the meantime.
+         *
+         * @param existing     the stored image whose file is reused
+         * @param imagePath    the new original URL
+         * @param domain       the domain associated with the image
+         * @param originalSize the size of the downloaded image
+         * @param contentHash  the content hash of the downloaded image
+         * @return true if the row was queued
+         */
+        private boolean saveLink(ImageEntity existing, String imagePath, String domain, long originalSize, String contentHash) {
+            ImageEntity imageEntity = new ImageEntity();
+            imageEntity.setOriginalUrl(imagePath);
+            imageEntity.setPath(existing.getPath());
+            imageEntity.setDomain(domain);
+            imageEntity.setOriginalSize(originalSize);
+            imageEntity.setSizeAfterCompression(existing.getSizeAfterCompression());
+            imageEntity.setPassthrough(existing.isPassthrough());
+            imageEntity.setContentHash(contentHash);
+            imageEntity.setPerceptualHash(existing.getPerceptualHash());
+            imageEntity.setWidth(existing.getWidth());
+            imageEntity.setHeight(existing.getHeight());
+            return storedPathGuard.link(existing.getPath(), () -> {
+                imageDedupIndex.markProcessed(imagePath);
+                contentHashIndex.addLink(contentHash);
+                // Another worker may store the same URL in the meantime; the shared file must stay.
+                imageMetadataWriter.write(imageEntity, () -> log.info("Image {} has already in db.", imagePath),
+                        () -> imageDedupIndex.forgetProcessed(imagePath));
+            });
+        }
+
+        /**
+         * Points the images stored at a smaller variant to the newly stored larger one and deletes the old file.
+         * Nothing is replaced unless the larger image's file was written and its row inserted; otherwise the
+         * smaller variant stays in use.
+         *
+         * @param variant the superseded variant
+         * @param stored  the newly stored larger image
+         * @return true if the variant was replaced
+         */
+        private boolean replaceVariant(NearDuplicateIndex.Variant variant, StoredRow stored) throws InterruptedException {
+            ImageEntity entity = stored.entity();
+            try {
+                stored.written().get();
+            } catch (ExecutionException ex) {
+                log.warn("Larger variant {} was not written; keeping {}", entity.getPath(), variant.path());
+                return false;
+            }
+            imageMetadataWriter.flush();
+            if (entity.getId() == 0) {
+                // Рядок не вставлено (конфлікт або помилка запису), файл уже видалено
+                log.info("Larger variant {} was not stored; keeping {}", entity.getPath(), variant.path());
+                return false;
+            }
+            nearDuplicateIndex.supersede(variant);
+            contentHashIndex.forgetPath(variant.path());
+            // No link to the old variant is queued after this; the ones queued before are written by the flush.
+            storedPathGuard.retire(List.of(variant.path()));
+            imageMetadataWriter.flush();
+            int repointed = imageRepository.repointToVariant(variant.path(), entity.getPath(), entity.getSizeAfterCompression(),
+                    entity.getWidth(), entity.getHeight(), entity.getPerceptualHash());
+            log.info("Replaced {} images stored at {} with larger variant {}", repointed, variant.path(), entity.getPath());
+            imageStorage.delete(variant.path());
+            return true;
+        }
+
+        /**
+         * Attempts to fetch the image using the registered image fetch strategies.
          *
          * @param imageUrl the URL of the image
-         * @return a byte array containing the image data, or null if no strategy supports the URL
+         * @return the image data, or null if no strategy supports the URL
          */
-        private byte[] getImageBytes(String imageUrl) {
+        private ImageBuffer getImage(String imageUrl) {
             for (ImageFetchStrategy strategy : imageFetchStrategies) {
                 if (strategy.supports(imageUrl)) {
                     return strategy.fetchImage(imageUrl, this);
@@ -148,30 +338,80 @@
         }
 
         /**
-         * Compresses and saves the image bytes, then updates the repository.
+         * Compresses the image, or keeps it unchanged when passed through, hands it to the storage
+         * and queues its row for the repository. The file is written by the storage's I/O stage.
          *
-         * @param imageBytes the original image data
-         * @param imagePath  the original image URL or path
-         * @param domain     the domain associated with the image
+         * @param image          the original image data
+         * @param header         the probed format and dimensions of the image
+         * @param imagePath      the original image URL or path
+         * @param domain         the domain associated with the image
+         * @param passthrough    whether the image is stored without recompression
+         * @param perceptualHash the perceptual hash of the image, or null if it was not computed
+         * @return the queued row and the pending write of its file, or null if nothing was stored
          */
-        private void processImageBytes(byte[] imageBytes, String imagePath, String domain) {
+        private StoredRow processImageBytes(ImageBuffer image, ImageHeader header, String imagePath, String domain,
+                                              boolean passthrough, Long perceptualHash) {
             try {
-                if(imageRepository.existsByOriginalUrl(imagePath)) {
-                    log.info("Image {} has already in db.", imagePath);
-                    return;
+                StoredImage stored;
+                if (passthrough) {
+                    // Буфер зображення повертається в пул після обробки, тому зберігаємо копію
+                    ByteBuffer original = ByteBuffer.allocate(image.size()).put(image.contents()).flip();
+                    stored = imageStorage.store(domain, header.format().fileExtension(), original);
+                    log.info("Stored without recompression. Size: {} bytes", image.size());
+                } else {
+                    long cpuStart = RecompressionPolicy.threadCpuNanos();
+                    byte[] compressed = jpegCompressor.compress(image, header, domain);
+                    recompressionPolicy.recordCompression(header, RecompressionPolicy.threadCpuNanos() - cpuStart);
+                    stored = imageStorage.store(domain, ImageFormat.JPEG.fileExtension(), ByteBuffer.wrap(compressed));
                 }
-                Path domainDir = getDomainOutputDirectory(domain);
-                CompressionResult result = jpegCompressor.compressAndSave(imageBytes, domainDir);
 
                 ImageEntity imageEntity = new ImageEntity();
                 imageEntity.setOriginalUrl(imagePath);
-                imageEntity.setPath(result.fileLink());
-                imageEntity.setOriginalSize(imageBytes.length);
-                imageEntity.setSizeAfterCompression(result.compressedSize());
-                imageRepository.save(imageEntity);
-                processedImagesCache.put(imagePath, Boolean.TRUE);
+                imageEntity.setPath(stored.location());
+                imageEntity.setDomain(domain);
+                imageEntity.setOriginalSize(image.size());
+                imageEntity.setSizeAfterCompression(stored.size());
+                imageEntity.setPassthrough(passthrough);
+                imageEntity.setContentHash(image.contentHash());
+                imageEntity.setPerceptualHash(perceptualHash);
+                imageEntity.setWidth(header.width());
+                imageEntity.setHeight(header.height());
+                imageDedupIndex.markProcessed(imagePath);
+                ContentHashIndex.Recent recent = contentHashIndex.add(imageEntity, stored.written());
+                imageMetadataWriter.write(imageEntity, () -> {
+                    // Another worker stored the same URL in the meantime; drop our copy of the file
+                    // unless an image with the same content was linked to it.
+                    log.info("Image {} has already in db.", imagePath);
+                    if (contentHashIndex.forget(recent)) {
+                        imageStorage.delete(stored.location());
+                    }
+                }, () -> {
+                    // The row was not written; drop the file and let the URL be processed again.
+                    if (contentHashIndex.forget(recent)) {
+                        imageStorage.delete(stored.location());
+                    }
+                    imageDedupIndex.forgetProcessed(imagePath);
+                });
+                stored.written().exceptionally(ex -> {
+                    // The file never reached the disk; drop the row pointing to it.
+                    contentHashIndex.forget(recent);
+                    imageMetadataWriter.flush();
+                    imageRepository.deleteByOriginalUrl(imagePath);
+                    return null;
+                });
+                return new StoredRow(imageEntity, stored.written());
             } catch (Exception e) {
                 log.error("Error processing image {}: ", imagePath, e);
             }
+            return null;
+        }
+
+        /**
+         * A row queued for an image handed to the storage.
+         *
+         * @param entity  the queued row; its id is set once inserted
+         * @param written completes when the file has been written
+         */
+        private record StoredRow(ImageEntity entity, CompletableFuture<Void> written) {
         }
     }
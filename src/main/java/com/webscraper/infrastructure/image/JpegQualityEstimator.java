@@ -0,0 +1,88 @@
+package com.webscraper.infrastructure.image;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Estimates the IJG quality a JPEG was saved with from its luminance quantization table,
+ * scanning only the marker segments before the first scan.
+ */
+public final class JpegQualityEstimator {
+
+    /**
+     * Sum of the IJG standard luminance quantization table (ITU T.81 Annex K), which quality 50 uses unscaled.
+     */
+    private static final int STANDARD_LUMINANCE_SUM = 3688;
+
+    private static final int MARKER_SOI = 0xD8;
+    private static final int MARKER_EOI = 0xD9;
+    private static final int MARKER_SOS = 0xDA;
+    private static final int MARKER_DQT = 0xDB;
+
+    private JpegQualityEstimator() {
+    }
+
+    /**
+     * Estimates the quality of a JPEG.
+     *
+     * @param jpeg the JPEG bytes, positioned at the start of the image
+     * @return the estimated quality from 1 to 100, or -1 if the data has no readable luminance table
+     */
+    public static int estimate(ByteBuffer jpeg) {
+        ByteBuffer data = jpeg.duplicate();
+        if (data.remaining() < 4 || (data.get() & 0xFF) != 0xFF || (data.get() & 0xFF) != MARKER_SOI) {
+            return -1;
+        }
+        while (data.remaining() >= 4) {
+            if ((data.get() & 0xFF) != 0xFF) {
+                return -1;
+            }
+            int marker = data.get() & 0xFF;
+            while (marker == 0xFF && data.hasRemaining()) {
+                marker = data.get() & 0xFF;
+            }
+            if (marker == MARKER_SOS || marker == MARKER_EOI || data.remaining() < 2) {
+                return -1;
+            }
+            int segmentLength = data.getShort() & 0xFFFF;
+            if (segmentLength < 2 || segmentLength - 2 > data.remaining()) {
+                return -1;
+            }
+            int segmentEnd = data.position() + segmentLength - 2;
+            if (marker == MARKER_DQT) {
+                int quality = readLuminanceQuality(data, segmentEnd);
+                if (quality > 0) {
+                    return quality;
+                }
+            }
+            data.position(segmentEnd);
+        }
+        return -1;
+    }
+
+    /**
+     * Walks the tables of one DQT segment and converts table 0 to a quality using the IJG scaling formula.
+     */
+    private static int readLuminanceQuality(ByteBuffer data, int segmentEnd) {
+        while (data.position() < segmentEnd) {
+            int info = data.get() & 0xFF;
+            boolean sixteenBit = (info >> 4) != 0;
+            int tableId = info & 0x0F;
+            int tableBytes = sixteenBit ? 128 : 64;
+            if (segmentEnd - data.position() < tableBytes) {
+                return -1;
+            }
+            if (tableId != 0) {
+                data.position(data.position() + tableBytes);
+                continue;
+            }
+            long sum = 0;
+            for (int i = 0; i < 64; i++) {
+                sum += sixteenBit ? data.getShort() & 0xFFFF : data.get() & 0xFF;
+            }
+            double scale = sum * 100.0 / STANDARD_LUMINANCE_SUM;
+            double quality = scale <= 100 ? (200 - scale) / 2 : 5000 / scale;
+            return (int) Math.max(1, Math.min(100, Math.round(quality)));
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.webscraper.infrastructure.image;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Learns, per domain, how large the JPEG output is relative to the original file at each quality,
+ * so the compressor can pick a quality that meets the size target in a single encode pass.
+ * Qualities are bucketed in steps of {@link #STEP}; each bucket keeps an exponentially weighted
+ * average of the observed output/original size ratio. Domains without enough history fall back
+ * to the model learned across all domains.
+ */
+public final class JpegQualityModel {
+
+    /**
+     * The quality granularity of the model; predicted qualities are multiples of it.
+     */
+    public static final float STEP = 0.05f;
+
+    private static final int BUCKETS = Math.round(1 / STEP) + 1;
+    private static final double SMOOTHING = 0.2;
+    /**
+     * Predictions aim this much below the target ratio to absorb the spread between images.
+     */
+    private static final double SAFETY_MARGIN = 0.9;
+    private static final int MIN_SAMPLES = 3;
+
+    private final Table global = new Table();
+    private final Cache<String, Table> domains = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    /**
+     * Predicts the highest quality not above {@code maxQuality} whose output is expected to stay within
+     * {@code targetRatio} of the original size.
+     *
+     * @param domain      the domain of the image, or null to use the global model only
+     * @param targetRatio the wanted output/original size ratio
+     * @param maxQuality  the quality used when the model has no better answer
+     * @return the predicted quality, or {@code maxQuality} if no trained bucket meets the target
+     */
+    public float predict(String domain, double targetRatio, float maxQuality) {
+        Table table = domain != null ? domains.getIfPresent(domain) : null;
+        Float quality = table != null ? table.predict(targetRatio, maxQuality) : null;
+        if (quality == null) {
+            quality = global.predict(targetRatio, maxQuality);
+        }
+        return quality != null ? quality : maxQuality;
+    }
+
+    /**
+     * Records the outcome of an encode.
+     *
+     * @param domain  the domain of the image, or null
+     * @param quality the quality the image was encoded with
+     * @param ratio   the output/original size ratio achieved
+     */
+    public void record(String domain, float quality, double ratio) {
+        global.record(quality, ratio);
+        if (domain != null) {
+            try {
+                domains.get(domain, Table::new).record(quality, ratio);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Rounds a quality down to the model granularity.
+     *
+     * @param quality the quality
+     * @return the largest multiple of {@link #STEP} not above it
+     */
+    public static float bucketed(float quality) {
+        return bucket(quality) * STEP;
+    }
+
+    private static int bucket(float quality) {
+        return Math.max(0, Math.min(BUCKETS - 1, (int) Math.floor(quality / STEP + 1e-4)));
+    }
+
+    private static final class Table {
+
+        private final double[] ratios = new double[BUCKETS];
+        private final int[] samples = new int[BUCKETS];
+
+        synchronized void record(float quality, double ratio) {
+            int b = bucket(quality);
+            ratios[b] = samples[b] == 0 ? ratio : ratios[b] + SMOOTHING * (ratio - ratios[b]);
+            samples[b]++;
+        }
+
+        synchronized Float predict(double targetRatio, float maxQuality) {
+            for (int b = bucket(maxQuality); b >= 0; b--) {
+                if (samples[b] >= MIN_SAMPLES && ratios[b] <= targetRatio * SAFETY_MARGIN) {
+                    return b * STEP;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.webscraper.infrastructure.image;
+
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import com.webscraper.infrastructure.image.storage.ImagesMovedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Finds stored images that look like a new one: the same photo at another size, crop or compression.
+ * Perceptual hashes of stored files live in a BK-tree, which answers "everything within Hamming radius r"
+ * without comparing against every hash. Only the largest variant of a picture is kept on disk; smaller ones
+ * are mapped onto it, and a larger newcomer replaces the file of the variants it supersedes.
+ */
+@Slf4j
+@Component
+public class NearDuplicateIndex {
+
+    private static final int REBUILD_PAGE_SIZE = 10_000;
+
+    @Getter
+    private final boolean enabled;
+    private final int radius;
+    private final ImageRepository imageRepository;
+    private final ExecutorService rebuildExecutor;
+
+    private Node root;
+    private final Set<String> supersededPaths = ConcurrentHashMap.newKeySet();
+
+    private final Counter linked;
+    private final Counter replaced;
+
+    /**
+     * Constructs a NearDuplicateIndex.
+     *
+     * @param enabled         whether near-duplicate detection is on
+     * @param radius          the maximum Hamming distance between hashes of the same picture
+     * @param imageRepository the repository of processed images
+     * @param rebuildExecutor the executor loading stored hashes at startup
+     * @param meterRegistry   the registry for near-duplicate metrics
+     */
+    public NearDuplicateIndex(@Value("${images.nearDuplicates.enabled:true}") boolean enabled,
+                              @Value("${images.nearDuplicates.radius:6}") int radius,
+                              ImageRepository imageRepository,
+                              @Qualifier("indexRebuildThreadPool") ExecutorService rebuildExecutor,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.radius = radius;
+        this.imageRepository = imageRepository;
+        this.rebuildExecutor = rebuildExecutor;
+        this.linked = meterRegistry.counter("scraper.images.near.duplicates", "action", "linked");
+        this.replaced = meterRegistry.counter("scraper.images.near.duplicates", "action", "replaced");
+    }
+
+    /**
+     * Loads the hashes of stored images in the background once the application is up.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            long afterId = 0;
+            long loaded = 0;
+            while (true) {
+                List<ImageRepository.PerceptualHashView> page =
+                        imageRepository.findPerceptualHashesAfter(afterId, PageRequest.ofSize(REBUILD_PAGE_SIZE));
+                for (ImageRepository.PerceptualHashView image : page) {
+                    add(new Variant(image.getPerceptualHash(), (long) image.getWidth() * image.getHeight(), image.getPath()));
+                }
+                loaded += page.size();
+                if (page.size() < REBUILD_PAGE_SIZE) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            log.info("Near-duplicate index loaded {} hashes", loaded);
+        }, rebuildExecutor).exceptionally(ex -> {
+            log.error("Failed to load near-duplicate index: {}", ex.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Hashes an image for lookups, logging instead of failing if it cannot be decoded.
+     *
+     * @param image  the raw image
+     * @param header the probed header of the image
+     * @return the perceptual hash, or null if detection is off or the image could not be hashed
+     */
+    public Long hash(ImageBuffer image, ImageHeader header) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            return PerceptualHash.dHash(image, header);
+        } catch (Exception e) {
+            log.warn("Failed to compute perceptual hash: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the largest stored variant within the Hamming radius of the hash.
+     *
+     * @param hash the perceptual hash of the new image
+     * @return the largest near-duplicate, or null if there is none
+     */
+    public synchronized Variant findLargest(long hash) {
+        Variant largest = null;
+        Deque<Node> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.push(root);
+        }
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = PerceptualHash.distance(node.hash, hash);
+            if (distance <= radius) {
+                for (Variant variant : node.variants) {
+                    if (!supersededPaths.contains(variant.path()) && (largest == null || variant.pixels() > largest.pixels())) {
+                        largest = variant;
+                    }
+                }
+            }
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= radius) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Adds a stored image.
+     *
+     * @param variant the hash, size and file of the image
+     */
+    public synchronized void add(Variant variant) {
+        if (root == null) {
+            root = new Node(variant.hash());
+        }
+        Node node = root;
+        while (true) {
+            int distance = PerceptualHash.distance(node.hash, variant.hash());
+            if (distance == 0) {
+                node.variants.add(variant);
+                return;
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                child = new Node(variant.hash());
+                node.children.put(distance, child);
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Counts a new image mapped onto a stored variant.
+     */
+    public void linked() {
+        linked.increment();
+    }
+
+    /**
+     * Removes a variant whose file was replaced by a larger one from future lookups.
+     *
+     * @param variant the replaced variant
+     */
+    public synchronized void supersede(Variant variant) {
+        supersededPaths.add(variant.path());
+        replaced.increment();
+    }
+
+    /**
+     * Points the variants of moved files to their new locations.
+     *
+     * @param event the moved files
+     */
+    @EventListener
+    public synchronized void onImagesMoved(ImagesMovedEvent event) {
+        Deque<Node> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.push(root);
+        }
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            node.variants.replaceAll(variant -> {
+                String path = event.moves().get(variant.path());
+                return path == null ? variant : new Variant(variant.hash(), variant.pixels(), path);
+            });
+            node.children.values().forEach(pending::push);
+        }
+    }
+
+    /**
+     * A stored image as seen by the index.
+     *
+     * @param hash   the perceptual hash
+     * @param pixels the pixel count of the original image
+     * @param path   the stored file
+     */
+    public record Variant(long hash, long pixels, String path) {
+    }
+
+    private static final class Node {
+
+        private final long hash;
+        private final List<Variant> variants = new ArrayList<>(1);
+        private final Map<Integer, Node> children = new HashMap<>();
+
+        private Node(long hash) {
+            this.hash = hash;
+        }
+    }
+}
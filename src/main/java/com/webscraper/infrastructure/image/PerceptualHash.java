@@ -0,0 +1,103 @@
+package com.webscraper.infrastructure.image;
+
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Difference hash (dHash) of an image: 64 bits telling, on a 9x8 grid of average luminance, whether each cell
+ * is darker than its right neighbour. Resized, recompressed or slightly cropped copies of a picture get hashes
+ * a few bits apart. The image is decoded with heavy subsampling, so hashing costs a fraction of a full decode.
+ */
+public final class PerceptualHash {
+
+    private static final int COLUMNS = 9;
+    private static final int ROWS = 8;
+    /**
+     * The decode is subsampled down to roughly this many pixels per grid cell in each direction.
+     */
+    private static final int SAMPLES_PER_CELL = 8;
+
+    private PerceptualHash() {
+    }
+
+    /**
+     * Computes the dHash of an image.
+     *
+     * @param image  the raw image
+     * @param header the probed format and dimensions of the image
+     * @return the 64-bit hash
+     * @throws IOException if the image cannot be decoded
+     */
+    public static long dHash(ImageBuffer image, ImageHeader header) throws IOException {
+        ImageReader reader = header.createReader();
+        if (reader == null) {
+            throw new IOException("No reader for " + header.format());
+        }
+        BufferedImage small;
+        try (ImageInputStream in = image.newImageInputStream()) {
+            reader.setInput(in, true, true);
+            ImageReadParam param = reader.getDefaultReadParam();
+            int period = Math.max(1, Math.min(header.width() / (COLUMNS * SAMPLES_PER_CELL),
+                    header.height() / (ROWS * SAMPLES_PER_CELL)));
+            param.setSourceSubsampling(period, period, 0, 0);
+            small = reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+        return dHash(small);
+    }
+
+    /**
+     * Computes the dHash of a decoded image.
+     *
+     * @param image the decoded image, at least 9x8 pixels for a meaningful hash
+     * @return the 64-bit hash
+     */
+    public static long dHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+
+        // Середня яскравість кожної клітинки сітки 9x8
+        long[] sums = new long[COLUMNS * ROWS];
+        int[] counts = new int[COLUMNS * ROWS];
+        for (int y = 0; y < height; y++) {
+            int row = Math.min(ROWS - 1, y * ROWS / height);
+            for (int x = 0; x < width; x++) {
+                int cell = row * COLUMNS + Math.min(COLUMNS - 1, x * COLUMNS / width);
+                int p = argb[y * width + x];
+                sums[cell] += 299 * ((p >> 16) & 0xFF) + 587 * ((p >> 8) & 0xFF) + 114 * (p & 0xFF);
+                counts[cell]++;
+            }
+        }
+        long hash = 0;
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS - 1; column++) {
+                int left = row * COLUMNS + column;
+                hash <<= 1;
+                if (average(sums, counts, left) < average(sums, counts, left + 1)) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the number of differing bits of two hashes.
+     *
+     * @param a the first hash
+     * @param b the second hash
+     * @return the Hamming distance, from 0 to 64
+     */
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static double average(long[] sums, int[] counts, int cell) {
+        return counts[cell] == 0 ? 0 : (double) sums[cell] / counts[cell];
+    }
+}
@@ -0,0 +1,162 @@
+package com.webscraper.infrastructure.image;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Pixel loops working directly on raster arrays, replacing Java2D's software blits for the conversions
+ * and the downscale the compressor needs. Translucent pixels are composited over black, as drawing onto a
+ * fresh {@code TYPE_INT_RGB} image does; every implementation produces bit-identical output.
+ */
+public interface PixelKernels {
+
+    /**
+     * Converts packed ARGB pixels to RGB, compositing them over black.
+     *
+     * @param src the ARGB pixels
+     * @param dst the RGB pixels
+     * @param n   the number of pixels
+     */
+    void argbToRgb(int[] src, int[] dst, int n);
+
+    /**
+     * Converts interleaved A, B, G, R bytes to RGB, compositing them over black.
+     *
+     * @param src the pixel bytes, four per pixel
+     * @param dst the RGB pixels
+     * @param n   the number of pixels
+     */
+    void abgrToRgb(byte[] src, int[] dst, int n);
+
+    /**
+     * Converts gray bytes to RGB.
+     *
+     * @param src the gray levels, one byte per pixel
+     * @param dst the RGB pixels
+     * @param n   the number of pixels
+     */
+    void grayToRgb(byte[] src, int[] dst, int n);
+
+    /**
+     * Halves an RGB image by averaging each 2x2 block; an odd last row or column is dropped.
+     *
+     * @param src       the RGB pixels
+     * @param srcWidth  the source width
+     * @param srcHeight the source height
+     * @param dst       the RGB pixels of size {@code (srcWidth / 2) * (srcHeight / 2)}
+     */
+    void downscale2x(int[] src, int srcWidth, int srcHeight, int[] dst);
+
+    /**
+     * Returns the kernels to use: the Vector API ones if requested and the {@code jdk.incubator.vector}
+     * module is present, the scalar ones otherwise.
+     *
+     * @param vectorEnabled whether the Vector API may be used
+     * @return the kernels
+     */
+    static PixelKernels select(boolean vectorEnabled) {
+        return vectorEnabled && Holder.VECTOR != null ? Holder.VECTOR : ScalarPixelKernels.INSTANCE;
+    }
+
+    /**
+     * Converts an image to {@code TYPE_INT_RGB} if its layout is one the kernels handle.
+     *
+     * @param src the decoded image
+     * @return the RGB image, or null if the layout is not supported and Java2D must convert it
+     */
+    default BufferedImage toRgb(BufferedImage src) {
+        int n = src.getWidth() * src.getHeight();
+        int type = src.getType();
+        if (type == BufferedImage.TYPE_INT_ARGB && isPacked(src.getRaster(), 1)) {
+            BufferedImage rgb = newRgbImage(src.getWidth(), src.getHeight());
+            argbToRgb(((DataBufferInt) src.getRaster().getDataBuffer()).getData(), pixels(rgb), n);
+            return rgb;
+        }
+        if (type == BufferedImage.TYPE_4BYTE_ABGR && isPacked(src.getRaster(), 4)) {
+            BufferedImage rgb = newRgbImage(src.getWidth(), src.getHeight());
+            abgrToRgb(((DataBufferByte) src.getRaster().getDataBuffer()).getData(), pixels(rgb), n);
+            return rgb;
+        }
+        if (type == BufferedImage.TYPE_BYTE_GRAY && isPacked(src.getRaster(), 1)) {
+            BufferedImage rgb = newRgbImage(src.getWidth(), src.getHeight());
+            grayToRgb(((DataBufferByte) src.getRaster().getDataBuffer()).getData(), pixels(rgb), n);
+            return rgb;
+        }
+        return null;
+    }
+
+    /**
+     * Halves a {@code TYPE_INT_RGB} image with a 2x2 box filter.
+     *
+     * @param src the RGB image
+     * @return the half-size RGB image
+     */
+    default BufferedImage downscale2x(BufferedImage src) {
+        if (src.getType() != BufferedImage.TYPE_INT_RGB || !isPacked(src.getRaster(), 1)) {
+            throw new IllegalArgumentException("Expected a TYPE_INT_RGB image");
+        }
+        BufferedImage scaled = newRgbImage(Math.max(1, src.getWidth() / 2), Math.max(1, src.getHeight() / 2));
+        if (src.getWidth() < 2 || src.getHeight() < 2) {
+            return scaled;
+        }
+        downscale2x(pixels(src), src.getWidth(), src.getHeight(), pixels(scaled));
+        return scaled;
+    }
+
+    private static BufferedImage newRgbImage(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static int[] pixels(BufferedImage rgb) {
+        return ((DataBufferInt) rgb.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * Checks that the raster is a plain array without offsets or row padding, as decoders produce.
+     */
+    private static boolean isPacked(Raster raster, int pixelStride) {
+        if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || raster.getDataBuffer().getNumBanks() != 1 || raster.getDataBuffer().getOffset() != 0) {
+            return false;
+        }
+        if (raster.getSampleModel() instanceof SinglePixelPackedSampleModel packed) {
+            return pixelStride == 1 && packed.getScanlineStride() == raster.getWidth();
+        }
+        if (raster.getSampleModel() instanceof ComponentSampleModel component) {
+            return component.getPixelStride() == pixelStride && component.getScanlineStride() == raster.getWidth() * pixelStride;
+        }
+        return false;
+    }
+
+    /**
+     * Loads the Vector API kernels only if the incubator module is resolved, so the class is never linked without it.
+     */
+    @Slf4j
+    final class Holder {
+
+        static final PixelKernels VECTOR = loadVectorKernels();
+
+        private Holder() {
+        }
+
+        private static PixelKernels loadVectorKernels() {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+                log.info("jdk.incubator.vector is not available; using scalar pixel kernels.");
+                return null;
+            }
+            try {
+                return (PixelKernels) Class.forName("com.webscraper.infrastructure.image.VectorPixelKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Failed to load Vector API pixel kernels; using scalar ones: {}", e.getMessage());
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.webscraper.infrastructure.image;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits image decodes against a global budget of raster memory, so concurrency follows the size of the
+ * images rather than the number of image threads. Small images are admitted as long as the budget allows;
+ * a large image waits until enough memory is free. An image that has waited longer than the starvation
+ * threshold gets priority: later requests queue behind it until it is admitted.
+ */
+@Slf4j
+@Component
+public class PixelMemoryBudget {
+
+    private final long capacity;
+    private final long starvationNanos;
+    private final Timer waitTimer;
+
+    private long used;
+    private Thread priorityWaiter;
+
+    /**
+     * Constructs a PixelMemoryBudget.
+     *
+     * @param capacityBytes     the budget in bytes; 0 or less means a quarter of the maximum heap
+     * @param starvationMillis  how long a reservation may wait before later ones queue behind it
+     * @param meterRegistry     the registry for budget metrics
+     */
+    public PixelMemoryBudget(@Value("${images.memoryBudget.bytes:0}") long capacityBytes,
+                             @Value("${images.memoryBudget.starvationMillis:5000}") long starvationMillis,
+                             MeterRegistry meterRegistry) {
+        this.capacity = capacityBytes > 0 ? capacityBytes : Runtime.getRuntime().maxMemory() / 4;
+        this.starvationNanos = TimeUnit.MILLISECONDS.toNanos(starvationMillis);
+        this.waitTimer = meterRegistry.timer("scraper.images.memory.budget.wait");
+        meterRegistry.gauge("scraper.images.memory.budget.used", this, PixelMemoryBudget::used);
+        meterRegistry.gauge("scraper.images.memory.budget.utilization", this, b -> (double) b.used() / b.capacity);
+        log.info("Image decode memory budget: {} MB", capacity / (1024 * 1024));
+    }
+
+    /**
+     * Estimates the raster memory of decoding an image at full resolution with 4 bytes per pixel.
+     *
+     * @param header the probed image header
+     * @return the estimated number of bytes
+     */
+    public static long estimate(ImageHeader header) {
+        return header.pixels() * 4;
+    }
+
+    /**
+     * Blocks until the requested memory fits into the budget and reserves it.
+     * Requests larger than the whole budget are capped to it and therefore run alone.
+     *
+     * @param bytes the memory to reserve
+     * @return the reservation, which must be closed after decoding
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public Reservation reserve(long bytes) throws InterruptedException {
+        long amount = Math.min(Math.max(bytes, 0), capacity);
+        long start = System.nanoTime();
+        synchronized (this) {
+            try {
+                while (!admissible(amount, start)) {
+                    wait(TimeUnit.NANOSECONDS.toMillis(starvationNanos) + 1);
+                }
+            } catch (InterruptedException e) {
+                clearPriority();
+                throw e;
+            }
+            clearPriority();
+            used += amount;
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Reservation(amount);
+    }
+
+    /**
+     * Returns the currently reserved memory.
+     *
+     * @return the reserved bytes
+     */
+    public synchronized long used() {
+        return used;
+    }
+
+    private boolean admissible(long amount, long start) {
+        Thread current = Thread.currentThread();
+        if (priorityWaiter != null && priorityWaiter != current) {
+            return false;
+        }
+        if (used + amount <= capacity) {
+            return true;
+        }
+        if (priorityWaiter == null && System.nanoTime() - start > starvationNanos) {
+            priorityWaiter = current;
+        }
+        return false;
+    }
+
+    private void clearPriority() {
+        if (priorityWaiter == Thread.currentThread()) {
+            priorityWaiter = null;
+            notifyAll();
+        }
+    }
+
+    private synchronized void release(long amount) {
+        used -= amount;
+        notifyAll();
+    }
+
+    /**
+     * Memory reserved for one decode; closing it returns the memory to the budget.
+     */
+    public final class Reservation implements AutoCloseable {
+
+        private final long amount;
+        private boolean released;
+
+        private Reservation(long amount) {
+            this.amount = amount;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(amount);
+            }
+        }
+    }
+}
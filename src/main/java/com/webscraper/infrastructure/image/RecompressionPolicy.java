@@ -0,0 +1,112 @@
+package com.webscraper.infrastructure.image;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Decides whether recompressing an image is worth the CPU. JPEGs that were already saved at a low quality
+ * and few bytes per pixel gain little from another encode, so they are stored as they are.
+ * The CPU time saved is estimated from the measured cost per pixel of recent recompressions.
+ */
+@Slf4j
+@Component
+public class RecompressionPolicy {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final double SMOOTHING = 0.1;
+
+    private final boolean enabled;
+    private final int maxQuality;
+    private final double maxBytesPerPixel;
+
+    private final Counter passthroughs;
+    private final Counter cpuSaved;
+    private double nanosPerPixel;
+
+    /**
+     * Constructs a RecompressionPolicy.
+     *
+     * @param enabled          whether efficiently encoded JPEGs are passed through
+     * @param maxQuality       JPEGs with an estimated quality up to this are candidates for passthrough
+     * @param maxBytesPerPixel JPEGs with at most this many bytes per pixel are candidates for passthrough
+     * @param meterRegistry    the registry for passthrough metrics
+     */
+    public RecompressionPolicy(@Value("${images.passthrough.enabled:true}") boolean enabled,
+                               @Value("${images.passthrough.maxQuality:60}") int maxQuality,
+                               @Value("${images.passthrough.maxBytesPerPixel:0.1}") double maxBytesPerPixel,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxQuality = maxQuality;
+        this.maxBytesPerPixel = maxBytesPerPixel;
+        this.passthroughs = meterRegistry.counter("scraper.images.passthrough");
+        this.cpuSaved = Counter.builder("scraper.images.passthrough.cpu.saved")
+                .baseUnit("seconds")
+                .description("Estimated CPU time not spent recompressing passed-through images")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks whether the image should be stored without recompression.
+     *
+     * @param image  the original image
+     * @param header the probed format and dimensions of the image
+     * @return true if the image is an already efficiently encoded JPEG
+     */
+    public boolean shouldPassThrough(ImageBuffer image, ImageHeader header) {
+        if (!enabled || header.format() != ImageFormat.JPEG || header.pixels() == 0) {
+            return false;
+        }
+        int quality = JpegQualityEstimator.estimate(image.contents());
+        double bytesPerPixel = (double) image.size() / header.pixels();
+        if (quality < 0 || quality > maxQuality || bytesPerPixel > maxBytesPerPixel) {
+            return false;
+        }
+        log.debug("JPEG at quality {} with {} bytes per pixel; storing without recompression.", quality, bytesPerPixel);
+        passthroughs.increment();
+        cpuSaved.increment(estimatedCpuSeconds(header));
+        return true;
+    }
+
+    /**
+     * Estimates the CPU time a recompression of the image would take, from the cost of recent ones.
+     *
+     * @param header the probed header of the image
+     * @return the estimated CPU time in seconds, or 0 before any recompression was measured
+     */
+    public double estimatedCpuSeconds(ImageHeader header) {
+        return estimatedNanosPerPixel() * header.pixels() / 1e9;
+    }
+
+    /**
+     * Records the CPU cost of a recompression, which calibrates the CPU saved by later passthroughs.
+     *
+     * @param header   the probed header of the recompressed image
+     * @param cpuNanos the CPU time the recompression took on its thread
+     */
+    public synchronized void recordCompression(ImageHeader header, long cpuNanos) {
+        if (header.pixels() == 0 || cpuNanos <= 0) {
+            return;
+        }
+        double sample = (double) cpuNanos / header.pixels();
+        nanosPerPixel = nanosPerPixel == 0 ? sample : nanosPerPixel + SMOOTHING * (sample - nanosPerPixel);
+    }
+
+    /**
+     * Returns the CPU time consumed by the current thread.
+     *
+     * @return the thread CPU time in nanoseconds, or 0 if the JVM does not measure it
+     */
+    public static long threadCpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private synchronized double estimatedNanosPerPixel() {
+        return nanosPerPixel;
+    }
+}
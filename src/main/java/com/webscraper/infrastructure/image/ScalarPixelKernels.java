@@ -0,0 +1,87 @@
+package com.webscraper.infrastructure.image;
+
+/**
+ * Plain-Java {@link PixelKernels}; the reference the Vector API kernels must match bit for bit
+ * and the fallback when the incubator module is not available.
+ */
+public final class ScalarPixelKernels implements PixelKernels {
+
+    static final ScalarPixelKernels INSTANCE = new ScalarPixelKernels();
+
+    /**
+     * Masks of the red and blue channels, whose 2x2 sums fit side by side in one int.
+     */
+    static final int RB_MASK = 0x00FF00FF;
+
+    @Override
+    public void argbToRgb(int[] src, int[] dst, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[i] = argbPixel(src[i]);
+        }
+    }
+
+    @Override
+    public void abgrToRgb(byte[] src, int[] dst, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[i] = abgrPixel(src, 4 * i);
+        }
+    }
+
+    @Override
+    public void grayToRgb(byte[] src, int[] dst, int n) {
+        for (int i = 0; i < n; i++) {
+            dst[i] = (src[i] & 0xFF) * 0x010101;
+        }
+    }
+
+    @Override
+    public void downscale2x(int[] src, int srcWidth, int srcHeight, int[] dst) {
+        int dstWidth = srcWidth / 2;
+        int dstHeight = srcHeight / 2;
+        for (int y = 0; y < dstHeight; y++) {
+            int top = 2 * y * srcWidth;
+            int bottom = top + srcWidth;
+            int out = y * dstWidth;
+            for (int x = 0; x < dstWidth; x++) {
+                dst[out + x] = average4(src[top + 2 * x], src[top + 2 * x + 1], src[bottom + 2 * x], src[bottom + 2 * x + 1]);
+            }
+        }
+    }
+
+    /**
+     * Converts one ARGB pixel to RGB over black.
+     */
+    static int argbPixel(int p) {
+        int a = p >>> 24;
+        if (a == 0xFF) {
+            return p & 0xFFFFFF;
+        }
+        return mulDiv255((p >> 16) & 0xFF, a) << 16 | mulDiv255((p >> 8) & 0xFF, a) << 8 | mulDiv255(p & 0xFF, a);
+    }
+
+    /**
+     * Converts the A, B, G, R bytes at {@code offset} to RGB over black.
+     */
+    static int abgrPixel(byte[] src, int offset) {
+        int a = src[offset] & 0xFF;
+        return mulDiv255(src[offset + 3] & 0xFF, a) << 16 | mulDiv255(src[offset + 2] & 0xFF, a) << 8
+                | mulDiv255(src[offset + 1] & 0xFF, a);
+    }
+
+    /**
+     * Returns {@code round(c * a / 255)} for 8-bit values without a division.
+     */
+    static int mulDiv255(int c, int a) {
+        int t = c * a + 128;
+        return (t + (t >> 8)) >> 8;
+    }
+
+    /**
+     * Averages four RGB pixels per channel, rounding half up.
+     */
+    static int average4(int p0, int p1, int p2, int p3) {
+        int rb = (p0 & RB_MASK) + (p1 & RB_MASK) + (p2 & RB_MASK) + (p3 & RB_MASK) + 0x00020002;
+        int g = ((p0 >> 8) & 0xFF) + ((p1 >> 8) & 0xFF) + ((p2 >> 8) & 0xFF) + ((p3 >> 8) & 0xFF) + 2;
+        return (rb >> 2) & RB_MASK | ((g >> 2) << 8);
+    }
+}
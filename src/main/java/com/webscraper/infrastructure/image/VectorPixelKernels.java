@@ -0,0 +1,116 @@
+package com.webscraper.infrastructure.image;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+import static com.webscraper.infrastructure.image.ScalarPixelKernels.RB_MASK;
+
+/**
+ * {@link PixelKernels} built on the incubating Vector API. Loaded reflectively by {@link PixelKernels#select}
+ * only when {@code jdk.incubator.vector} is resolved; tails shorter than a vector use the scalar kernels,
+ * whose results these match exactly.
+ */
+final class VectorPixelKernels implements PixelKernels {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> PIXEL_BYTES = ByteVector.SPECIES_PREFERRED;
+    /**
+     * Bytes loaded per gray step: one per int lane, but at least the smallest vector shape.
+     */
+    private static final VectorSpecies<Byte> GRAY_BYTES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(Math.max(64, INTS.length() * 8)));
+    private static final VectorShuffle<Integer> EVEN = VectorShuffle.fromOp(INTS, i -> 2 * i);
+    private static final VectorShuffle<Integer> ODD = VectorShuffle.fromOp(INTS, i -> 2 * i + 1);
+
+    @Override
+    public void argbToRgb(int[] src, int[] dst, int n) {
+        int i = 0;
+        for (int bound = INTS.loopBound(n); i < bound; i += INTS.length()) {
+            IntVector p = IntVector.fromArray(INTS, src, i);
+            IntVector a = p.lanewise(VectorOperators.LSHR, 24);
+            IntVector r = mulDiv255(p.lanewise(VectorOperators.LSHR, 16).and(0xFF), a);
+            IntVector g = mulDiv255(p.lanewise(VectorOperators.LSHR, 8).and(0xFF), a);
+            IntVector b = mulDiv255(p.and(0xFF), a);
+            r.lanewise(VectorOperators.LSHL, 16).or(g.lanewise(VectorOperators.LSHL, 8)).or(b).intoArray(dst, i);
+        }
+        for (; i < n; i++) {
+            dst[i] = ScalarPixelKernels.argbPixel(src[i]);
+        }
+    }
+
+    @Override
+    public void abgrToRgb(byte[] src, int[] dst, int n) {
+        int pixelsPerVector = PIXEL_BYTES.length() / 4;
+        int i = 0;
+        for (int bound = n - n % pixelsPerVector; i < bound; i += pixelsPerVector) {
+            // Reinterpreting is little-endian, so each int holds R<<24 | G<<16 | B<<8 | A
+            IntVector p = ByteVector.fromArray(PIXEL_BYTES, src, 4 * i).reinterpretAsInts();
+            IntVector a = p.and(0xFF);
+            IntVector b = mulDiv255(p.lanewise(VectorOperators.LSHR, 8).and(0xFF), a);
+            IntVector g = mulDiv255(p.lanewise(VectorOperators.LSHR, 16).and(0xFF), a);
+            IntVector r = mulDiv255(p.lanewise(VectorOperators.LSHR, 24), a);
+            r.lanewise(VectorOperators.LSHL, 16).or(g.lanewise(VectorOperators.LSHL, 8)).or(b).intoArray(dst, i);
+        }
+        for (; i < n; i++) {
+            dst[i] = ScalarPixelKernels.abgrPixel(src, 4 * i);
+        }
+    }
+
+    @Override
+    public void grayToRgb(byte[] src, int[] dst, int n) {
+        int i = 0;
+        for (; i + GRAY_BYTES.length() <= n; i += INTS.length()) {
+            IntVector gray = (IntVector) ByteVector.fromArray(GRAY_BYTES, src, i)
+                    .convertShape(VectorOperators.B2I, INTS, 0);
+            gray.and(0xFF).mul(0x010101).intoArray(dst, i);
+        }
+        for (; i < n; i++) {
+            dst[i] = (src[i] & 0xFF) * 0x010101;
+        }
+    }
+
+    @Override
+    public void downscale2x(int[] src, int srcWidth, int srcHeight, int[] dst) {
+        int dstWidth = srcWidth / 2;
+        int dstHeight = srcHeight / 2;
+        int lanes = INTS.length();
+        for (int y = 0; y < dstHeight; y++) {
+            int top = 2 * y * srcWidth;
+            int bottom = top + srcWidth;
+            int out = y * dstWidth;
+            int x = 0;
+            for (; x + lanes <= dstWidth; x += lanes) {
+                IntVector t0 = IntVector.fromArray(INTS, src, top + 2 * x);
+                IntVector t1 = IntVector.fromArray(INTS, src, top + 2 * x + lanes);
+                IntVector b0 = IntVector.fromArray(INTS, src, bottom + 2 * x);
+                IntVector b1 = IntVector.fromArray(INTS, src, bottom + 2 * x + lanes);
+                IntVector p0 = t0.rearrange(EVEN, t1);
+                IntVector p1 = t0.rearrange(ODD, t1);
+                IntVector p2 = b0.rearrange(EVEN, b1);
+                IntVector p3 = b0.rearrange(ODD, b1);
+                IntVector rb = p0.and(RB_MASK).add(p1.and(RB_MASK)).add(p2.and(RB_MASK)).add(p3.and(RB_MASK)).add(0x00020002);
+                IntVector g = green(p0).add(green(p1)).add(green(p2)).add(green(p3)).add(2);
+                rb.lanewise(VectorOperators.ASHR, 2).and(RB_MASK)
+                        .or(g.lanewise(VectorOperators.ASHR, 2).lanewise(VectorOperators.LSHL, 8))
+                        .intoArray(dst, out + x);
+            }
+            for (; x < dstWidth; x++) {
+                dst[out + x] = ScalarPixelKernels.average4(src[top + 2 * x], src[top + 2 * x + 1],
+                        src[bottom + 2 * x], src[bottom + 2 * x + 1]);
+            }
+        }
+    }
+
+    private static IntVector green(IntVector p) {
+        return p.lanewise(VectorOperators.ASHR, 8).and(0xFF);
+    }
+
+    private static IntVector mulDiv255(IntVector c, IntVector a) {
+        IntVector t = c.mul(a).add(128);
+        return t.add(t.lanewise(VectorOperators.ASHR, 8)).lanewise(VectorOperators.ASHR, 8);
+    }
+}
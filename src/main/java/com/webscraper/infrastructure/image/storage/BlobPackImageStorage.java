@@ -0,0 +1,508 @@
+package com.webscraper.infrastructure.image.storage;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.webscraper.infrastructure.db.repositories.ImageMetadataWriter;
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stores images appended to large segment files instead of one file per image, so millions of images
+ * take a few hundred files and every write is sequential. A location, {@code pack:<segment>:<offset>:<length>},
+ * is the index: it is recorded in {@code image_entity.path} and reads go straight to a memory-mapped slice
+ * of the segment. Segment and offset are zero-padded, so locations sort in the order of the bytes on disk. Deleted images are listed in a {@code .dead} file next to their segment; once enough of a
+ * sealed segment is dead, its live images are copied to the active segment, their rows are repointed and the
+ * old segment is removed. Links to the copied images are refused from the moment they are copied until the
+ * rows are repointed, so no row is left pointing into the removed segment.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "images.storage.type", havingValue = "packs")
+public class BlobPackImageStorage implements ImageStorage {
+
+    private static final String LOCATION_PREFIX = "pack:";
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.pack");
+    private static final int RECORD_MAGIC = 0x494D4731;
+    private static final int HEADER_BYTES = 8;
+    private static final int DEAD_ENTRY_BYTES = 12;
+    private static final int MAX_BATCH = 256;
+    private static final long POLL_MILLIS = 100;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final double compactRatio;
+    private final boolean fsync;
+    private final ImageRepository imageRepository;
+    private final ImageMetadataWriter imageMetadataWriter;
+    private final StoredPathGuard storedPathGuard;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private final Semaphore queuePermits;
+    private final Queue<Integer> compactions = new ConcurrentLinkedQueue<>();
+    private final Set<Integer> compactionsRequested = ConcurrentHashMap.newKeySet();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    // Розподіл місця: порядок виділення збігається з порядком у черзі
+    private int activeSegment;
+    private long activeEnd;
+    /**
+     * Every segment below this one has all its appends written and may be compacted.
+     */
+    private volatile int sealedBelow;
+
+    // Стан потоку запису
+    private int openSegment = -1;
+    private FileChannel openChannel;
+
+    private final Map<String, CompletableFuture<Void>> pendingWrites = new ConcurrentHashMap<>();
+    private final Map<Integer, MappedByteBuffer> mappedSegments = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> deadBytes = new ConcurrentHashMap<>();
+    private final Object deadLock = new Object();
+
+    private final Counter written;
+    private final Counter failed;
+    private final Counter reclaimed;
+    private final Timer batchTimer;
+
+    /**
+     * Constructs a BlobPackImageStorage, starting a new segment after any existing ones.
+     *
+     * @param outputDirectory     the root directory of stored images; segments live in its {@code packs} subdirectory
+     * @param segmentBytes        the size at which a segment is sealed and a new one started
+     * @param compactRatio        the dead fraction of a sealed segment that triggers its compaction
+     * @param fsync               whether each batch of appends is synced before its writes complete
+     * @param queueCapacity       the number of queued appends at which producers block
+     * @param imageRepository     the repository whose paths are updated when images move
+     * @param imageMetadataWriter the writer flushed before rows are repointed
+     * @param storedPathGuard     the guard refusing links to images being moved
+     * @param eventPublisher      the publisher of moves to in-memory indexes
+     * @param meterRegistry       the registry for storage metrics
+     * @throws IOException if the segment directory cannot be read
+     */
+    public BlobPackImageStorage(@Value("${images.output.directory:compressed-images}") String outputDirectory,
+                                @Value("${images.storage.pack.segmentBytes:1073741824}") long segmentBytes,
+                                @Value("${images.storage.pack.compactRatio:0.5}") double compactRatio,
+                                @Value("${images.storage.fsync:false}") boolean fsync,
+                                @Value("${images.storage.queueCapacity:256}") int queueCapacity,
+                                ImageRepository imageRepository,
+                                ImageMetadataWriter imageMetadataWriter,
+                                StoredPathGuard storedPathGuard,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry) throws IOException {
+        this.directory = Paths.get(outputDirectory).resolve("packs");
+        this.segmentBytes = Math.min(segmentBytes, Integer.MAX_VALUE);
+        this.compactRatio = compactRatio;
+        this.fsync = fsync;
+        this.imageRepository = imageRepository;
+        this.imageMetadataWriter = imageMetadataWriter;
+        this.storedPathGuard = storedPathGuard;
+        this.eventPublisher = eventPublisher;
+        this.queuePermits = new Semaphore(Math.max(1, queueCapacity));
+        this.written = meterRegistry.counter("scraper.images.storage.writes", "result", "written");
+        this.failed = meterRegistry.counter("scraper.images.storage.writes", "result", "failed");
+        this.reclaimed = Counter.builder("scraper.images.storage.compaction.reclaimed")
+                .baseUnit("bytes")
+                .description("Bytes of deleted images removed from pack segments by compaction")
+                .register(meterRegistry);
+        this.batchTimer = meterRegistry.timer("scraper.images.storage.batch");
+        meterRegistry.gaugeCollectionSize("scraper.images.storage.queue", List.of(), queue);
+
+        Files.createDirectories(directory);
+        int lastSegment = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.pack")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    int segment = Integer.parseInt(matcher.group(1));
+                    lastSegment = Math.max(lastSegment, segment);
+                    loadDeadBytes(segment);
+                }
+            }
+        }
+        // Після перезапуску ніколи не дописуємо в старі сегменти
+        this.activeSegment = lastSegment + 1;
+        this.sealedBelow = activeSegment;
+        deadBytes.keySet().forEach(this::requestCompactionIfNeeded);
+
+        this.writerThread = new ThreadFactoryBuilder().setNameFormat("image-pack-writer-%d").setDaemon(true).build()
+                .newThread(this::run);
+        writerThread.start();
+    }
+
+    @Override
+    public StoredImage store(String domain, String extension, ByteBuffer contents) {
+        int length = contents.remaining();
+        queuePermits.acquireUninterruptibly();
+        Append append;
+        synchronized (this) {
+            PackLocation location = allocate(length);
+            append = new Append(location, contents, new CompletableFuture<>());
+            String key = location.toString();
+            pendingWrites.put(key, append.done());
+            append.done().whenComplete((v, ex) -> pendingWrites.remove(key, append.done()));
+            queue.add(append);
+        }
+        return new StoredImage(append.location().toString(), length, append.done());
+    }
+
+    @Override
+    public ByteBuffer read(String location) throws IOException {
+        PackLocation pack = PackLocation.parse(location);
+        awaitPendingWrite(location);
+        long end = pack.offset() + pack.length();
+        MappedByteBuffer segment = mappedSegments.get(pack.segment());
+        if (segment == null || segment.capacity() < end) {
+            segment = mapSegment(pack.segment(), end);
+        }
+        return segment.slice((int) pack.offset(), pack.length()).asReadOnlyBuffer();
+    }
+
+    @Override
+    public void delete(String location) {
+        PackLocation pack = PackLocation.parse(location);
+        CompletableFuture<Void> pending = pendingWrites.get(location);
+        if (pending == null) {
+            markDead(pack);
+        } else {
+            pending.whenComplete((v, ex) -> markDead(pack));
+        }
+    }
+
+    /**
+     * Writes the queued images and stops the writer thread.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        writerThread.join();
+    }
+
+    private synchronized PackLocation allocate(int length) {
+        if (activeEnd > 0 && activeEnd + HEADER_BYTES + length > segmentBytes) {
+            activeSegment++;
+            activeEnd = 0;
+        }
+        PackLocation location = new PackLocation(activeSegment, activeEnd + HEADER_BYTES, length);
+        activeEnd += HEADER_BYTES + length;
+        return location;
+    }
+
+    private void run() {
+        List<Append> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Append first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    writeBatch(batch);
+                    queuePermits.release(batch.size());
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            Integer segment;
+            while ((segment = compactions.poll()) != null) {
+                compact(segment);
+            }
+        }
+        closeOpenSegment();
+    }
+
+    private void writeBatch(List<Append> batch) {
+        long start = System.nanoTime();
+        List<Append> succeeded = new ArrayList<>(batch.size());
+        for (Append append : batch) {
+            try {
+                writeRecord(append.location(), append.contents());
+                succeeded.add(append);
+            } catch (Exception e) {
+                log.error("Failed to append {}: {}", append.location(), e.getMessage());
+                failed.increment();
+                append.done().completeExceptionally(e);
+            }
+        }
+        try {
+            if (fsync && openChannel != null) {
+                // Один fsync на всю пачку дописів
+                openChannel.force(false);
+            }
+            succeeded.forEach(append -> append.done().complete(null));
+            written.increment(succeeded.size());
+        } catch (IOException e) {
+            log.error("Failed to sync segment {}: {}", openSegment, e.getMessage());
+            failed.increment(succeeded.size());
+            succeeded.forEach(append -> append.done().completeExceptionally(e));
+        }
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Writes one record at its allocated position. Runs on the writer thread only.
+     */
+    private void writeRecord(PackLocation location, ByteBuffer contents) throws IOException {
+        FileChannel channel = channelFor(location.segment());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(RECORD_MAGIC).putInt(location.length()).flip();
+        long position = location.offset() - HEADER_BYTES;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        while (contents.hasRemaining()) {
+            position += channel.write(contents, position);
+        }
+    }
+
+    private FileChannel channelFor(int segment) throws IOException {
+        if (segment != openSegment) {
+            closeOpenSegment();
+            openChannel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            openSegment = segment;
+            sealedBelow = Math.max(sealedBelow, segment);
+        }
+        return openChannel;
+    }
+
+    private void closeOpenSegment() {
+        if (openChannel == null) {
+            return;
+        }
+        try {
+            if (fsync) {
+                openChannel.force(false);
+            }
+            openChannel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close segment {}: {}", openSegment, e.getMessage());
+        }
+        openChannel = null;
+    }
+
+    private MappedByteBuffer mapSegment(int segment, long minSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < minSize) {
+                throw new IOException("Segment " + segment + " is shorter than " + minSize + " bytes");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mappedSegments.put(segment, mapped);
+            return mapped;
+        }
+    }
+
+    private void awaitPendingWrite(String location) throws IOException {
+        CompletableFuture<Void> pending = pendingWrites.get(location);
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + location);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to write " + location, e.getCause());
+        }
+    }
+
+    private void markDead(PackLocation location) {
+        synchronized (deadLock) {
+            Path deadFile = deadPath(location.segment());
+            if (!Files.exists(segmentPath(location.segment()))) {
+                return;
+            }
+            ByteBuffer entry = ByteBuffer.allocate(DEAD_ENTRY_BYTES).putLong(location.offset()).putInt(location.length()).flip();
+            try (FileChannel channel = FileChannel.open(deadFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                while (entry.hasRemaining()) {
+                    channel.write(entry);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to record deletion of {}: {}", location, e.getMessage());
+                return;
+            }
+            deadBytes.merge(location.segment(), (long) HEADER_BYTES + location.length(), Long::sum);
+        }
+        requestCompactionIfNeeded(location.segment());
+    }
+
+    private void requestCompactionIfNeeded(int segment) {
+        try {
+            long size = Files.size(segmentPath(segment));
+            long dead = deadBytes.getOrDefault(segment, 0L);
+            if (size > 0 && dead >= compactRatio * size && compactionsRequested.add(segment)) {
+                compactions.add(segment);
+            }
+        } catch (IOException e) {
+            log.debug("Segment {} is gone: {}", segment, e.getMessage());
+        }
+    }
+
+    /**
+     * Copies the live images of a sealed segment to the active one, repoints their rows and removes the segment.
+     * Runs on the writer thread, between batches of appends. The copied images are retired before the flush,
+     * so every link to them is either written by the flush and repointed, or refused and stored anew.
+     */
+    private void compact(int segment) {
+        if (segment >= sealedBelow) {
+            // Сегмент ще дописується; наступне видалення запросить ущільнення знову
+            compactionsRequested.remove(segment);
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        Map<String, String> moves = new LinkedHashMap<>();
+        try {
+            Set<Long> dead = readDeadOffsets(segment);
+            try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+                MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int position = 0;
+                while (position + HEADER_BYTES <= data.limit()) {
+                    int magic = data.getInt(position);
+                    int length = data.getInt(position + 4);
+                    if (magic != RECORD_MAGIC) {
+                        log.warn("Segment {} has no record at {}; compaction aborted", segment, position);
+                        compactionsRequested.remove(segment);
+                        return;
+                    }
+                    int offset = position + HEADER_BYTES;
+                    if (!dead.contains((long) offset)) {
+                        PackLocation source = new PackLocation(segment, offset, length);
+                        PackLocation target = allocate(length);
+                        writeRecord(target, data.slice(offset, length));
+                        moves.put(source.toString(), target.toString());
+                    }
+                    position = offset + length;
+                }
+            }
+            if (fsync && openChannel != null) {
+                openChannel.force(false);
+            }
+            storedPathGuard.retire(moves.keySet());
+            // Рядки з чергою запису мають бути в БД до перенаправлення шляхів
+            imageMetadataWriter.flush();
+            for (Map.Entry<String, String> move : moves.entrySet()) {
+                int repointed = imageRepository.repointPath(move.getKey(), move.getValue(), PackLocation.parse(move.getKey()).length());
+                if (repointed == 0) {
+                    markDead(PackLocation.parse(move.getValue()));
+                }
+            }
+            eventPublisher.publishEvent(new ImagesMovedEvent(moves));
+            mappedSegments.remove(segment);
+            long deadTotal = deadBytes.getOrDefault(segment, 0L);
+            synchronized (deadLock) {
+                Files.deleteIfExists(segmentPath(segment));
+                Files.deleteIfExists(deadPath(segment));
+                deadBytes.remove(segment);
+            }
+            reclaimed.increment(deadTotal);
+            log.info("Compacted segment {}: moved {} images, reclaimed {} bytes in {} ms",
+                    segment, moves.size(), deadTotal, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("Failed to compact segment {}: {}", segment, e.getMessage());
+        } finally {
+            compactionsRequested.remove(segment);
+        }
+    }
+
+    private void loadDeadBytes(int segment) throws IOException {
+        Path deadFile = deadPath(segment);
+        if (!Files.exists(deadFile)) {
+            return;
+        }
+        ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(deadFile));
+        long total = 0;
+        while (entries.remaining() >= DEAD_ENTRY_BYTES) {
+            entries.getLong();
+            total += HEADER_BYTES + entries.getInt();
+        }
+        deadBytes.put(segment, total);
+    }
+
+    private Set<Long> readDeadOffsets(int segment) throws IOException {
+        Set<Long> offsets = new HashSet<>();
+        Path deadFile = deadPath(segment);
+        if (Files.exists(deadFile)) {
+            ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(deadFile));
+            while (entries.remaining() >= DEAD_ENTRY_BYTES) {
+                offsets.add(entries.getLong());
+                entries.getInt();
+            }
+        }
+        return offsets;
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("segment-%08d.pack", segment));
+    }
+
+    private Path deadPath(int segment) {
+        return directory.resolve(String.format("segment-%08d.dead", segment));
+    }
+
+    private record Append(PackLocation location, ByteBuffer contents, CompletableFuture<Void> done) {
+    }
+
+    /**
+     * Position of an image inside a segment.
+     *
+     * @param segment the segment number
+     * @param offset  the offset of the image bytes, just past the record header
+     * @param length  the number of image bytes
+     */
+    record PackLocation(int segment, long offset, int length) {
+
+        static PackLocation parse(String location) {
+            if (location == null || !location.startsWith(LOCATION_PREFIX)) {
+                throw new IllegalArgumentException("Not a pack location: " + location);
+            }
+            String[] parts = location.substring(LOCATION_PREFIX.length()).split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Not a pack location: " + location);
+            }
+            return new PackLocation(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+        }
+
+        @Override
+        public String toString() {
+            // Доповнення нулями: рядкове сортування збігається з порядком байтів у сегментах
+            return LOCATION_PREFIX + String.format("%08d:%012d:", segment, offset) + length;
+        }
+    }
+}
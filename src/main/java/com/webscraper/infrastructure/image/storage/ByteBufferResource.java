@@ -0,0 +1,86 @@
+package com.webscraper.infrastructure.image.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Resource over a buffer returned by {@link ImageStorage#read}. Every stream reads its own view of the buffer
+ * and skips in constant time, so Spring can serve byte ranges of a memory-mapped image without copying it.
+ */
+public class ByteBufferResource extends AbstractResource {
+
+    private final ByteBuffer buffer;
+    private final String description;
+
+    /**
+     * Constructs a ByteBufferResource over the remaining bytes of a buffer.
+     *
+     * @param buffer      the buffer; it is not modified
+     * @param description the description used in error messages
+     */
+    public ByteBufferResource(ByteBuffer buffer, String description) {
+        this.buffer = buffer.slice();
+        this.description = description;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Image content [" + description + "]";
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new BufferInputStream(buffer.duplicate());
+    }
+
+    @Override
+    public long contentLength() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.webscraper.infrastructure.image.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Where processed images are kept. Writes are handed to the storage's own I/O stage, so the threads
+ * compressing images do not wait for the filesystem; the location is known as soon as a write is accepted.
+ */
+public interface ImageStorage {
+
+    /**
+     * Accepts an image for writing. Blocks while the I/O stage is full, which throttles the producers
+     * to the speed of the disk.
+     *
+     * @param domain    the domain the image comes from
+     * @param extension the file extension, e.g. "jpg"
+     * @param contents  the bytes to store; the buffer must not be modified afterwards
+     * @return the location of the image and a future completed once the bytes are written
+     */
+    StoredImage store(String domain, String extension, ByteBuffer contents);
+
+    /**
+     * Reads a stored image, waiting for its write if that is still pending.
+     *
+     * @param location the location returned by {@link #store}
+     * @return a read-only buffer over the image, usually memory-mapped
+     * @throws IOException if the image does not exist or cannot be read
+     */
+    ByteBuffer read(String location) throws IOException;
+
+    /**
+     * Deletes a stored image, after its write if that is still pending.
+     *
+     * @param location the location returned by {@link #store}
+     */
+    void delete(String location);
+}
@@ -0,0 +1,12 @@
+package com.webscraper.infrastructure.image.storage;
+
+import java.util.Map;
+
+/**
+ * Event published once stored images have been moved and their rows repointed, so in-memory
+ * indexes holding the old locations can follow.
+ *
+ * @param moves the new location of each moved image, by old location
+ */
+public record ImagesMovedEvent(Map<String, String> moves) {
+}
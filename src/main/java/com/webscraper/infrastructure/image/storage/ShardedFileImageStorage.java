@@ -0,0 +1,257 @@
+package com.webscraper.infrastructure.image.storage;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores images as files under {@code <output>/<domain>/<ab>/<cd>/<uuid>.<ext>}. The shard directories come
+ * from the random file name, so files spread evenly and no directory grows past a few thousand entries.
+ * Writes are queued to dedicated I/O threads that write a temp file and atomically rename it into place,
+ * so a crash never leaves a truncated image under its final name. With fsync enabled, files are forced
+ * one by one but their directories are synced once per batch.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "images.storage.type", havingValue = "files", matchIfMissing = true)
+public class ShardedFileImageStorage implements ImageStorage {
+
+    private static final int MAX_BATCH = 64;
+    private static final long POLL_MILLIS = 100;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path root;
+    private final int shardLevels;
+    private final boolean fsync;
+    private final BlockingQueue<WriteTask> queue;
+    private final List<Thread> writerThreads = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private final Map<String, CompletableFuture<Void>> pendingWrites = new ConcurrentHashMap<>();
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+
+    private final Counter written;
+    private final Counter failed;
+    private final Timer batchTimer;
+
+    /**
+     * Constructs a ShardedFileImageStorage and starts its I/O threads.
+     *
+     * @param outputDirectory the root directory of stored images
+     * @param shardLevels     the number of two-hex-digit directory levels below each domain
+     * @param fsync           whether files and directories are synced before a write completes
+     * @param ioThreads       the number of threads writing files
+     * @param queueCapacity   the number of queued writes at which producers block
+     * @param meterRegistry   the registry for storage metrics
+     */
+    public ShardedFileImageStorage(@Value("${images.output.directory:compressed-images}") String outputDirectory,
+                                   @Value("${images.storage.shardLevels:2}") int shardLevels,
+                                   @Value("${images.storage.fsync:false}") boolean fsync,
+                                   @Value("${images.storage.ioThreads:2}") int ioThreads,
+                                   @Value("${images.storage.queueCapacity:256}") int queueCapacity,
+                                   MeterRegistry meterRegistry) {
+        this.root = Paths.get(outputDirectory);
+        this.shardLevels = Math.max(0, Math.min(shardLevels, 4));
+        this.fsync = fsync;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.written = meterRegistry.counter("scraper.images.storage.writes", "result", "written");
+        this.failed = meterRegistry.counter("scraper.images.storage.writes", "result", "failed");
+        this.batchTimer = meterRegistry.timer("scraper.images.storage.batch");
+        meterRegistry.gaugeCollectionSize("scraper.images.storage.queue", List.of(), queue);
+        try {
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            log.error("Failed to create directory: {}", root, e);
+        }
+        ThreadFactoryBuilder threads = new ThreadFactoryBuilder().setNameFormat("image-io-%d").setDaemon(true);
+        for (int i = 0; i < Math.max(1, ioThreads); i++) {
+            Thread thread = threads.build().newThread(this::run);
+            writerThreads.add(thread);
+            thread.start();
+        }
+    }
+
+    @Override
+    public StoredImage store(String domain, String extension, ByteBuffer contents) {
+        String name = UUID.randomUUID().toString();
+        Path directory = root.resolve(domain == null ? "_" : domain);
+        for (int level = 0; level < shardLevels; level++) {
+            directory = directory.resolve(name.substring(2 * level, 2 * level + 2));
+        }
+        Path target = directory.resolve(name + "." + extension);
+        String location = target.toString();
+        long size = contents.remaining();
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        pendingWrites.put(location, done);
+        done.whenComplete((v, ex) -> pendingWrites.remove(location, done));
+        WriteTask task = new WriteTask(target, contents, done);
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            // Не губимо запис: виконуємо його в потоці, що викликав
+            writeBatch(List.of(task));
+        }
+        return new StoredImage(location, size, done);
+    }
+
+    @Override
+    public ByteBuffer read(String location) throws IOException {
+        awaitPendingWrite(location);
+        try (FileChannel channel = FileChannel.open(Path.of(location), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @Override
+    public void delete(String location) {
+        CompletableFuture<Void> pending = pendingWrites.get(location);
+        if (pending == null) {
+            deleteQuietly(Path.of(location));
+        } else {
+            pending.whenComplete((v, ex) -> deleteQuietly(Path.of(location)));
+        }
+    }
+
+    private void awaitPendingWrite(String location) throws IOException {
+        CompletableFuture<Void> pending = pendingWrites.get(location);
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + location);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to write " + location, e.getCause());
+        }
+    }
+
+    /**
+     * Writes the queued images and stops the I/O threads.
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        for (Thread thread : writerThreads) {
+            thread.join();
+        }
+    }
+
+    private void run() {
+        List<WriteTask> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                WriteTask first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<WriteTask> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<WriteTask> succeeded = new ArrayList<>(batch.size());
+        Set<Path> directories = new LinkedHashSet<>();
+        for (WriteTask task : batch) {
+            try {
+                writeFile(task);
+                succeeded.add(task);
+                directories.add(task.target().getParent());
+            } catch (Exception e) {
+                log.error("Failed to write {}: {}", task.target(), e.getMessage());
+                failed.increment();
+                task.done().completeExceptionally(e);
+            }
+        }
+        if (fsync) {
+            // Один fsync каталогу на всю пачку перейменувань
+            directories.forEach(ShardedFileImageStorage::syncDirectory);
+        }
+        succeeded.forEach(task -> task.done().complete(null));
+        written.increment(succeeded.size());
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void writeFile(WriteTask task) throws IOException {
+        Path directory = task.target().getParent();
+        if (!createdDirectories.contains(directory)) {
+            Files.createDirectories(directory);
+            createdDirectories.add(directory);
+        }
+        Path temp = directory.resolve(task.target().getFileName() + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            ByteBuffer contents = task.contents();
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+        Files.move(temp, task.target(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Не всі платформи дозволяють fsync каталогу
+            log.debug("Failed to sync directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (Exception e) {
+            log.warn("Failed to delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    private record WriteTask(Path target, ByteBuffer contents, CompletableFuture<Void> done) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.webscraper.infrastructure.image.storage;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Record representing an image accepted by an {@link ImageStorage}.
+ *
+ * @param location the location to record in {@code image_entity.path}
+ * @param size     the number of bytes stored
+ * @param written  completed once the image is written, or exceptionally if the write failed
+ */
+public record StoredImage(String location, long size, CompletableFuture<Void> written) {
+}
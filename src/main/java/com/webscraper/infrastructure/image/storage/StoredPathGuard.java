@@ -0,0 +1,52 @@
+package com.webscraper.infrastructure.image.storage;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Keeps rows from being queued against a stored file that is being moved or deleted. A row reusing an
+ * existing file is queued under the guard's lock, and a file is retired under the same lock before its
+ * rows are repointed. A link is thus either queued before the retirement, and written by the flush that
+ * precedes the repoint, or refused.
+ */
+@Component
+public class StoredPathGuard {
+
+    /**
+     * Longer than any lookup-to-link window, after which the repointed rows are what lookups return.
+     */
+    private static final Duration RETIRED_TTL = Duration.ofMinutes(10);
+
+    private final Cache<String, Boolean> retired = CacheBuilder.newBuilder()
+            .expireAfterWrite(RETIRED_TTL)
+            .build();
+
+    /**
+     * Queues a row reusing a stored file unless the file has been retired.
+     *
+     * @param path     the location of the reused file
+     * @param queueRow queues the row
+     * @return true if the row was queued, false if the file is being moved or deleted
+     */
+    public synchronized boolean link(String path, Runnable queueRow) {
+        if (retired.getIfPresent(path) != null) {
+            return false;
+        }
+        queueRow.run();
+        return true;
+    }
+
+    /**
+     * Refuses further links to files about to be moved or deleted. Links queued before this
+     * returns must be flushed before the files' rows are repointed.
+     *
+     * @param paths the locations of the files
+     */
+    public synchronized void retire(Collection<String> paths) {
+        paths.forEach(path -> retired.put(path, Boolean.TRUE));
+    }
+}
@@ -1,6 +1,7 @@
 package com.webscraper.infrastructure.image.strategy;
 
 import com.webscraper.application.ports.ImageProcessingService;
+import com.webscraper.infrastructure.image.ImageBuffer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -31,11 +32,11 @@ public class DataUriImageFetchStrategy implements ImageFetchStrategy {
      *
      * @param imageUrl the Data URI
      * @param context  the image processing context
-     * @return a byte array containing the decoded image data
+     * @return an {@link ImageBuffer} wrapping the decoded image data
      * @throws IllegalArgumentException if the Data URI format is invalid
      */
     @Override
-    public byte[] fetchImage(String imageUrl, ImageProcessingService context) {
+    public ImageBuffer fetchImage(String imageUrl, ImageProcessingService context) {
         int commaIndex = imageUrl.indexOf(',');
         if (commaIndex == -1) {
             throw new IllegalArgumentException("Invalid data URI format: " + imageUrl);
@@ -44,14 +45,14 @@ public class DataUriImageFetchStrategy implements ImageFetchStrategy {
         String data = imageUrl.substring(commaIndex + 1);
         if (meta.contains(";base64")) {
             try {
-                return Base64.getDecoder().decode(data);
+                return ImageBuffer.wrap(Base64.getDecoder().decode(data));
             } catch (IllegalArgumentException e) {
                 throw new IllegalArgumentException("Invalid Base64 format in data URI: " + imageUrl, e);
             }
         } else {
             try {
                 String decoded = URLDecoder.decode(data, StandardCharsets.UTF_8);
-                return decoded.getBytes(StandardCharsets.UTF_8);
+                return ImageBuffer.wrap(decoded.getBytes(StandardCharsets.UTF_8));
             } catch (Exception e) {
                 throw new IllegalArgumentException("Failed to decode data URI: " + imageUrl, e);
             }
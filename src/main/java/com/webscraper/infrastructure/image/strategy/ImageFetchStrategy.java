@@ -1,6 +1,7 @@
 package com.webscraper.infrastructure.image.strategy;
 
 import com.webscraper.application.ports.ImageProcessingService;
+import com.webscraper.infrastructure.image.ImageBuffer;
 
 /**
  * Strategy interface for fetching image data.
@@ -16,11 +17,11 @@ public interface ImageFetchStrategy {
     boolean supports(String imageUrl);
 
     /**
-     * Fetches the image data as a byte array.
+     * Fetches the image data.
      *
      * @param imageUrl the URL of the image
      * @param context  the {@link ImageProcessingService} context used during processing
-     * @return a byte array containing the image data, or null if fetching fails
+     * @return an {@link ImageBuffer} with the image data, which the caller must close, or null if fetching fails
      */
-    byte[] fetchImage(String imageUrl, ImageProcessingService context);
+    ImageBuffer fetchImage(String imageUrl, ImageProcessingService context);
 }
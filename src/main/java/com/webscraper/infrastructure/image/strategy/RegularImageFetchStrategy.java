@@ -1,6 +1,8 @@
 package com.webscraper.infrastructure.image.strategy;
 
 import com.webscraper.application.ports.ImageProcessingService;
+import com.webscraper.infrastructure.image.ImageBuffer;
+import com.webscraper.infrastructure.image.ImageDownloader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
@@ -13,14 +15,17 @@ import org.springframework.web.client.RestTemplate;
 public class RegularImageFetchStrategy implements ImageFetchStrategy {
 
     private final RestTemplate restTemplate;
+    private final ImageDownloader imageDownloader;
 
     /**
      * Constructs a RegularImageFetchStrategy with the provided RestTemplate.
      *
-     * @param restTemplate the RestTemplate to use for HTTP requests
+     * @param restTemplate    the RestTemplate whose URI handler encodes the URL
+     * @param imageDownloader the downloader probing and fetching the image
      */
-    public RegularImageFetchStrategy(RestTemplate restTemplate) {
+    public RegularImageFetchStrategy(RestTemplate restTemplate, ImageDownloader imageDownloader) {
         this.restTemplate = restTemplate;
+        this.imageDownloader = imageDownloader;
     }
 
     /**
@@ -39,13 +44,13 @@ public class RegularImageFetchStrategy implements ImageFetchStrategy {
      *
      * @param imageUrl the image URL
      * @param context  the image processing context
-     * @return a byte array containing the image data, or null if an error occurs
+     * @return the downloaded image, or null if the image was skipped or an error occurs
      */
     @Override
-    public byte[] fetchImage(String imageUrl, ImageProcessingService context) {
+    public ImageBuffer fetchImage(String imageUrl, ImageProcessingService context) {
         String preparedUrl = context.prepareImageUrl(imageUrl);
         try {
-            return restTemplate.getForObject(preparedUrl, byte[].class);
+            return imageDownloader.download(restTemplate.getUriTemplateHandler().expand(preparedUrl));
         } catch (Exception ex) {
             log.error("Error processing URL {}: {}", imageUrl, ex.getMessage(), ex);
             return null;
@@ -1,6 +1,8 @@
 package com.webscraper.infrastructure.image.strategy;
 
 import com.webscraper.application.ports.ImageProcessingService;
+import com.webscraper.infrastructure.image.ImageBuffer;
+import com.webscraper.infrastructure.image.ImageDownloader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
@@ -18,14 +20,17 @@ import java.util.regex.Pattern;
 public class TemplateImageFetchStrategy implements ImageFetchStrategy {
 
     private final RestTemplate restTemplate;
+    private final ImageDownloader imageDownloader;
 
     /**
      * Constructs a TemplateImageFetchStrategy with the provided RestTemplate.
      *
-     * @param restTemplate the RestTemplate to use for HTTP requests
+     * @param restTemplate    the RestTemplate whose URI handler expands the template
+     * @param imageDownloader the downloader probing and fetching the image
      */
-    public TemplateImageFetchStrategy(RestTemplate restTemplate) {
+    public TemplateImageFetchStrategy(RestTemplate restTemplate, ImageDownloader imageDownloader) {
         this.restTemplate = restTemplate;
+        this.imageDownloader = imageDownloader;
     }
 
     /**
@@ -44,17 +49,17 @@ public class TemplateImageFetchStrategy implements ImageFetchStrategy {
      *
      * @param imageUrl the image URL with template variables
      * @param context  the image processing context
-     * @return a byte array containing the image data, or null if an error occurs
+     * @return the downloaded image, or null if the image was skipped or an error occurs
      */
     @Override
-    public byte[] fetchImage(String imageUrl, ImageProcessingService context) {
+    public ImageBuffer fetchImage(String imageUrl, ImageProcessingService context) {
         Map<String, String> uriVariables = extractUriVariables(imageUrl);
         if (uriVariables.isEmpty()) {
             log.warn("URL {} contains template variables but no values were provided.", imageUrl);
             return null;
         }
         try {
-            return restTemplate.getForObject(imageUrl, byte[].class, uriVariables);
+            return imageDownloader.download(restTemplate.getUriTemplateHandler().expand(imageUrl, uriVariables));
         } catch (Exception ex) {
             log.error("Error processing template URL {}: {}", imageUrl, ex.getMessage(), ex);
             return null;
@@ -7,7 +7,9 @@ import org.jsoup.select.Elements;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
@@ -51,6 +53,36 @@ public class LinkExtractorUtil {
         return imagesLinks;
     }
 
+    /**
+     * Extracts the pixel counts that <code>img</code> tags declare through their width and height attributes.
+     *
+     * @param document the JSoup Document to extract declared sizes from
+     * @return a Map from absolute image URLs to declared pixel counts; images without both attributes are absent
+     */
+    public static Map<String, Long> extractDeclaredImageSizes(Document document) {
+        Map<String, Long> sizes = new HashMap<>();
+        for (Element element : document.select("img[src][width][height]")) {
+            long width = parseDimension(element.attr("width"));
+            long height = parseDimension(element.attr("height"));
+            if (width > 0 && height > 0) {
+                sizes.merge(element.attr("abs:src"), width * height, Math::max);
+            }
+        }
+        return sizes;
+    }
+
+    private static long parseDimension(String value) {
+        String digits = value.trim();
+        if (digits.endsWith("px")) {
+            digits = digits.substring(0, digits.length() - 2).trim();
+        }
+        try {
+            return Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     /**
      * Extracts image URLs from inline CSS style attributes and embedded &lt;style&gt; tags.
      *
@@ -1,25 +1,26 @@
 package com.webscraper.infrastructure.utils;
 
-import javax.net.ssl.HostnameVerifier;
-import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSession;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
+import java.security.GeneralSecurityException;
 
 /**
  * Utility class for SSL configuration.
- * This class provides a method to disable SSL certificate verification for HTTPS connections.
+ * This class provides a factory for SSL contexts that skip certificate verification for HTTPS connections.
  */
 public class SSLUtil {
 
     /**
-     * Disables SSL certificate and hostname verification.
-     * This method configures the SSL context to trust all certificates and sets a hostname verifier
-     * that accepts all hostnames. Use this method only for testing or specific scenarios (e.g., web scraping),
+     * Creates an SSL context that trusts all certificates.
+     * Unlike installing it as the JVM-wide default, the returned context only affects the clients it is
+     * explicitly attached to. Use it only for specific scenarios (e.g., scraping through untrusted proxies),
      * not in production environments.
+     *
+     * @return a new {@link SSLContext} that does not validate certificate chains
+     * @throws IllegalStateException if the TLS provider is not available
      */
-    public static void disableSslVerification() {
+    public static SSLContext createTrustAllContext() {
         try {
             // Create a trust manager that does not validate certificate chains
             TrustManager[] trustAllCerts = new TrustManager[]{
@@ -58,26 +59,11 @@ public class SSLUtil {
                     }
             };
 
-            SSLContext sc = SSLContext.getInstance("SSL");
+            SSLContext sc = SSLContext.getInstance("TLS");
             sc.init(null, trustAllCerts, new java.security.SecureRandom());
-            HttpsURLConnection.setDefaultSSLSocketFactory(sc.getSocketFactory());
-
-            HostnameVerifier allHostsValid = new HostnameVerifier() {
-                /**
-                 * Always returns true, meaning any hostname is accepted.
-                 *
-                 * @param hostname the hostname
-                 * @param session  the current SSL session
-                 * @return true always
-                 */
-                @Override
-                public boolean verify(String hostname, SSLSession session) {
-                    return true;
-                }
-            };
-            HttpsURLConnection.setDefaultHostnameVerifier(allHostsValid);
-        } catch (Exception e) {
-            e.printStackTrace();
+            return sc;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to create trust-all SSL context", e);
         }
     }
-}
\ No newline at end of file
+}
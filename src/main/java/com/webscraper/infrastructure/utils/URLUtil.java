@@ -67,4 +67,24 @@ public class URLUtil {
             return false;
         }
     }
+
+    /**
+     * Returns the domain that stored images of a site are grouped under.
+     *
+     * @param site the domain, or a URL of the site
+     * @return the host of the URL, or {@code site} itself if it is not a URL
+     */
+    public static String toDomain(String site) {
+        if (site.contains("://")) {
+            try {
+                String host = new URI(site).getHost();
+                if (host != null) {
+                    return host;
+                }
+            } catch (URISyntaxException e) {
+                log.debug("Site {} is not a valid URL; using it as a domain.", site);
+            }
+        }
+        return site;
+    }
 }
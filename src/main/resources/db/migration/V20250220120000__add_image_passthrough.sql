@@ -0,0 +1,2 @@
+alter table image_entity
+    add column passthrough boolean not null default false;
@@ -0,0 +1,3 @@
+alter table image_entity
+    add column content_hash varchar(64);
+create index idx_images_content_hash ON image_entity (content_hash);
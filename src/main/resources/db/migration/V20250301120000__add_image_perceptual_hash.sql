@@ -0,0 +1,4 @@
+alter table image_entity
+    add column perceptual_hash bigint,
+    add column width           integer,
+    add column height          integer;
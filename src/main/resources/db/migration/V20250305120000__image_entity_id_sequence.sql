@@ -0,0 +1,5 @@
+alter table image_entity
+    alter column id type bigint;
+alter sequence image_entity_id_seq as bigint increment by 50;
+select setval('image_entity_id_seq', coalesce(max(id), 0) + 1, false)
+from image_entity;
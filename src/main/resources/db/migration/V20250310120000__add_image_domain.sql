@@ -0,0 +1,7 @@
+alter table image_entity
+    add column domain varchar(255);
+-- Images were stored under <output>/<domain>/<file>; fall back to the image host for anything else.
+update image_entity
+set domain = coalesce(substring(replace(path, '\', '/') from '([^/]+)/[^/]+$'),
+                      substring(original_url from '^[A-Za-z][A-Za-z0-9+.-]*://([^/:?#]+)'));
+create index idx_images_domain_id ON image_entity (domain, id);
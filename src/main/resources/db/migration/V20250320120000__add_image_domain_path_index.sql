@@ -0,0 +1 @@
+create index idx_images_domain_path ON image_entity (domain, path, id);
@@ -0,0 +1,151 @@
+package com.webscraper.services;
+
+import com.webscraper.infrastructure.db.repositories.ImageMetadataWriter;
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import com.webscraper.infrastructure.image.storage.BlobPackImageStorage;
+import com.webscraper.infrastructure.image.storage.ImagesMovedEvent;
+import com.webscraper.infrastructure.image.storage.StoredImage;
+import com.webscraper.infrastructure.image.storage.StoredPathGuard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BlobPackImageStorageTest {
+
+    @TempDir
+    Path root;
+
+    private ImageRepository imageRepository;
+    private ImageMetadataWriter imageMetadataWriter;
+    private StoredPathGuard storedPathGuard;
+    private ApplicationEventPublisher eventPublisher;
+    private BlobPackImageStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        imageRepository = mock(ImageRepository.class);
+        imageMetadataWriter = mock(ImageMetadataWriter.class);
+        storedPathGuard = spy(new StoredPathGuard());
+        eventPublisher = mock(ApplicationEventPublisher.class);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        storage.close();
+    }
+
+    @Test
+    void testStoredImagesAreReadBackFromOneSegment() throws Exception {
+        storage = storage(1 << 20);
+
+        StoredImage first = storage.store("example.com", "jpg", ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        StoredImage second = storage.store("example.com", "jpg", ByteBuffer.wrap(new byte[]{4, 5}));
+
+        assertEquals("pack:00000000:000000000008:3", first.location());
+        assertEquals("pack:00000000:000000000019:2", second.location());
+        assertArrayEquals(new byte[]{1, 2, 3}, bytes(storage.read(first.location())));
+        assertArrayEquals(new byte[]{4, 5}, bytes(storage.read(second.location())));
+        second.written().join();
+        assertTrue(Files.exists(root.resolve("packs/segment-00000000.pack")));
+    }
+
+    @Test
+    void testFullSegmentRollsOverAndRestartStartsNewSegment() throws Exception {
+        storage = storage(64);
+
+        StoredImage[] stored = new StoredImage[3];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = storage.store("example.com", "jpg", ByteBuffer.wrap(filled(20, i)));
+        }
+        stored[2].written().join();
+        assertTrue(stored[1].location().startsWith("pack:00000000:"));
+        assertTrue(stored[2].location().startsWith("pack:00000001:"));
+        storage.close();
+
+        storage = storage(64);
+        StoredImage afterRestart = storage.store("example.com", "jpg", ByteBuffer.wrap(filled(5, 9)));
+        assertTrue(afterRestart.location().startsWith("pack:00000002:"));
+        assertArrayEquals(filled(20, 1), bytes(storage.read(stored[1].location())));
+    }
+
+    @Test
+    void testDeletedImagesAreCompactedAway() throws Exception {
+        when(imageRepository.repointPath(anyString(), anyString(), anyLong())).thenReturn(1);
+        storage = storage(64);
+
+        StoredImage[] stored = new StoredImage[3];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = storage.store("example.com", "jpg", ByteBuffer.wrap(filled(20, i)));
+        }
+        stored[2].written().join();
+        storage.delete(stored[0].location());
+
+        Path sealed = root.resolve("packs/segment-00000000.pack");
+        for (int i = 0; i < 100 && Files.exists(sealed); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(Files.exists(sealed), "Half-dead sealed segment must be compacted");
+        verify(imageMetadataWriter).flush();
+        ArgumentCaptor<String> moved = ArgumentCaptor.forClass(String.class);
+        verify(imageRepository).repointPath(eq(stored[1].location()), moved.capture(), eq(20L));
+        assertArrayEquals(filled(20, 1), bytes(storage.read(moved.getValue())));
+    }
+
+    @Test
+    void testLinksToCompactedImagesAreRefusedBeforeTheFinalFlush() throws Exception {
+        when(imageRepository.repointPath(anyString(), anyString(), anyLong())).thenReturn(1);
+        storage = storage(64);
+
+        StoredImage[] stored = new StoredImage[3];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = storage.store("example.com", "jpg", ByteBuffer.wrap(filled(20, i)));
+        }
+        stored[2].written().join();
+        storage.delete(stored[0].location());
+
+        Path sealed = root.resolve("packs/segment-00000000.pack");
+        for (int i = 0; i < 100 && Files.exists(sealed); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(Files.exists(sealed), "Half-dead sealed segment must be compacted");
+        InOrder order = inOrder(storedPathGuard, imageMetadataWriter, imageRepository, eventPublisher);
+        order.verify(storedPathGuard).retire(argThat(paths -> paths.contains(stored[1].location())));
+        order.verify(imageMetadataWriter).flush();
+        order.verify(imageRepository).repointPath(eq(stored[1].location()), anyString(), eq(20L));
+        ArgumentCaptor<ImagesMovedEvent> event = ArgumentCaptor.forClass(ImagesMovedEvent.class);
+        order.verify(eventPublisher).publishEvent(event.capture());
+        assertTrue(event.getValue().moves().containsKey(stored[1].location()));
+        assertFalse(storedPathGuard.link(stored[1].location(), () -> fail("link to a moved image must not be queued")));
+    }
+
+    private BlobPackImageStorage storage(long segmentBytes) throws Exception {
+        return new BlobPackImageStorage(root.toString(), segmentBytes, 0.5, false, 4,
+                imageRepository, imageMetadataWriter, storedPathGuard, eventPublisher, new SimpleMeterRegistry());
+    }
+
+    private static byte[] filled(int length, int value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
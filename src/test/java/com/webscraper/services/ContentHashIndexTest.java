@@ -0,0 +1,101 @@
+package com.webscraper.services;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.webscraper.infrastructure.db.entities.ImageEntity;
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import com.webscraper.infrastructure.image.ContentHashIndex;
+import com.webscraper.infrastructure.image.storage.ImagesMovedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ContentHashIndexTest {
+
+    private ImageRepository imageRepository;
+    private ContentHashIndex index;
+
+    @BeforeEach
+    void setUp() {
+        imageRepository = mock(ImageRepository.class);
+        when(imageRepository.findFirstByContentHash(anyString())).thenReturn(Optional.empty());
+        index = new ContentHashIndex(imageRepository, MoreExecutors.newDirectExecutorService(), 1000, 0.01, new SimpleMeterRegistry());
+    }
+
+    private static ImageEntity entity(String contentHash, String path) {
+        return new ImageEntity(0, "https://example.com/" + contentHash + ".jpg", path, "example.com", 5000, 100, false,
+                contentHash, null, 400, 300);
+    }
+
+    @Test
+    void testBloomFilterAnswersNewContentWithoutDatabase() throws Exception {
+        ImageRepository.ContentHashView stored = mock(ImageRepository.ContentHashView.class);
+        when(stored.getId()).thenReturn(1L);
+        when(stored.getContentHash()).thenReturn("stored");
+        when(imageRepository.findContentHashesAfter(eq(0L), any())).thenReturn(List.of(stored));
+
+        index.rebuild();
+
+        assertNull(index.find("new"));
+        assertNull(index.find("stored"));
+        verify(imageRepository, never()).findFirstByContentHash("new");
+        verify(imageRepository).findFirstByContentHash("stored");
+    }
+
+    @Test
+    void testQueuedRowIsFoundBeforeItIsInserted() throws Exception {
+        ImageEntity queued = entity("a", "compressed/a.jpg");
+        index.add(queued, CompletableFuture.completedFuture(null));
+
+        assertSame(queued, index.find("a"));
+        verify(imageRepository, never()).findFirstByContentHash(anyString());
+    }
+
+    @Test
+    void testFileOfSharedRowIsKeptWhenItsRowFails() throws Exception {
+        ContentHashIndex.Recent shared = index.add(entity("a", "compressed/a.jpg"), CompletableFuture.completedFuture(null));
+        ContentHashIndex.Recent unshared = index.add(entity("b", "compressed/b.jpg"), CompletableFuture.completedFuture(null));
+
+        assertNotNull(index.find("a"));
+
+        assertFalse(index.forget(shared));
+        assertTrue(index.forget(unshared));
+        assertNull(index.find("b"));
+    }
+
+    @Test
+    void testRowWhoseFileWasNotWrittenIsNotReused() throws Exception {
+        index.add(entity("a", "compressed/a.jpg"), CompletableFuture.failedFuture(new IOException("disk full")));
+
+        assertNull(index.find("a"));
+    }
+
+    @Test
+    void testMovedFileIsNoLongerAnsweredFromMemory() throws Exception {
+        index.add(entity("a", "compressed/a.jpg"), CompletableFuture.completedFuture(null));
+
+        index.forgetPath("compressed/a.jpg");
+
+        assertNull(index.find("a"));
+        verify(imageRepository).findFirstByContentHash("a");
+    }
+
+    @Test
+    void testCompactedFileIsLookedUpAtItsRepointedRow() throws Exception {
+        index.add(entity("a", "pack:00000000:000000000008:20"), CompletableFuture.completedFuture(null));
+
+        index.onImagesMoved(new ImagesMovedEvent(Map.of("pack:00000000:000000000008:20", "pack:00000002:000000000008:20")));
+
+        assertNull(index.find("a"));
+        verify(imageRepository).findFirstByContentHash("a");
+    }
+}
@@ -0,0 +1,94 @@
+package com.webscraper.services;
+
+import com.webscraper.application.ports.ConnectionWarmupService;
+import com.webscraper.application.ports.DocumentService;
+import com.webscraper.application.ports.RobotsTxtService;
+import com.webscraper.application.services.QueueService;
+import com.webscraper.application.workers.CrawlerWorker;
+import com.webscraper.domain.entities.ScraperSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CrawlerWorkerTest {
+
+    private DocumentService documentService;
+    private RobotsTxtService robotsTxtService;
+    private QueueService queueService;
+    private ExecutorService pool;
+    private ScraperSession session;
+
+    @BeforeEach
+    void setUp() {
+        documentService = mock(DocumentService.class);
+        robotsTxtService = mock(RobotsTxtService.class);
+        when(robotsTxtService.getRulesFor(anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        when(robotsTxtService.isAllowed(anyString(), any())).thenReturn(true);
+        queueService = new QueueService(mock(ConnectionWarmupService.class));
+        pool = Executors.newFixedThreadPool(2);
+        session = new ScraperSession("s1", "https://example.com", "example.com");
+        session.setMaxDepth(3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void testCrawlBlocksWhileMaxInFlightCrawlsRun() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(documentService.fetchDocument(anyString(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        CrawlerWorker worker = new CrawlerWorker(documentService, robotsTxtService, pool, queueService, 1);
+
+        CompletableFuture<Void> first = worker.crawl("https://example.com/a", session, 1);
+        CompletableFuture<CompletableFuture<Void>> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return worker.crawl("https://example.com/b", session, 1);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(200);
+        assertFalse(second.isDone(), "A second crawl must wait for the first one");
+        assertFalse(session.getVisitedLinksUrl().contains("https://example.com/b"), "A waiting URL is not visited yet");
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        verify(documentService).fetchDocument("https://example.com/b", session);
+    }
+
+    @Test
+    void testRejectedUrlIsNotMarkedVisited() throws Exception {
+        pool.shutdown();
+        CrawlerWorker worker = new CrawlerWorker(documentService, robotsTxtService, pool, queueService, 10);
+
+        worker.crawl("https://example.com/a", session, 1).get(5, TimeUnit.SECONDS);
+
+        assertFalse(session.getVisitedLinksUrl().contains("https://example.com/a"));
+        verifyNoInteractions(documentService);
+    }
+
+    @Test
+    void testFullFrontierDropsLinksInsteadOfThrowing() {
+        int links = queueService.getUrlQueue().remainingCapacity() + 10;
+        for (int i = 0; i < links; i++) {
+            queueService.addNewUrl("https://other.example.org/" + i, session, 1);
+        }
+        assertEquals(0, queueService.getUrlQueue().remainingCapacity());
+    }
+}
@@ -0,0 +1,49 @@
+package com.webscraper.services;
+
+import com.webscraper.infrastructure.http.DnsCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DnsCacheTest {
+
+    @Test
+    void testResolvedHostIsServedFromCache() throws UnknownHostException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DnsCache dnsCache = new DnsCache(300, 30, 100, registry);
+
+        InetAddress[] first = dnsCache.resolve("localhost");
+        InetAddress[] second = dnsCache.resolve("LOCALHOST");
+
+        assertArrayEquals(first, second);
+        assertEquals(1.0, registry.counter("scraper.dns.lookups", "result", "miss").count());
+        assertEquals(1.0, registry.counter("scraper.dns.lookups", "result", "hit").count());
+    }
+
+    @Test
+    void testFailedLookupIsCachedNegatively() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DnsCache dnsCache = new DnsCache(300, 30, 100, registry);
+
+        assertThrows(UnknownHostException.class, () -> dnsCache.resolve("no-such-host.invalid"));
+        assertThrows(UnknownHostException.class, () -> dnsCache.resolve("no-such-host.invalid"));
+
+        assertEquals(1.0, registry.counter("scraper.dns.lookups", "result", "miss").count());
+        assertEquals(1.0, registry.counter("scraper.dns.lookups", "result", "hit").count());
+    }
+
+    @Test
+    void testExpiredEntryIsResolvedAgain() throws UnknownHostException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DnsCache dnsCache = new DnsCache(0, 0, 100, registry);
+
+        dnsCache.resolve("localhost");
+        dnsCache.resolve("localhost");
+
+        assertEquals(2.0, registry.counter("scraper.dns.lookups", "result", "miss").count());
+    }
+}
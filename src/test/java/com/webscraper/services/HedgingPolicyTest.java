@@ -0,0 +1,55 @@
+package com.webscraper.services;
+
+import com.webscraper.infrastructure.http.HedgingPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingPolicyTest {
+
+    @Test
+    void testNoHedgeDelayUntilEnoughSamples() {
+        HedgingPolicy policy = new HedgingPolicy(true, 0.05, 20, 0, new SimpleMeterRegistry());
+        for (int i = 0; i < 19; i++) {
+            policy.recordHeaderLatency("example.com", 100);
+        }
+        assertTrue(policy.hedgeDelayMillis("example.com").isEmpty());
+        assertTrue(policy.hedgeDelayMillis("unknown.com").isEmpty());
+    }
+
+    @Test
+    void testHedgeDelayIsHostP95() {
+        HedgingPolicy policy = new HedgingPolicy(true, 0.05, 20, 0, new SimpleMeterRegistry());
+        for (int i = 1; i <= 100; i++) {
+            policy.recordHeaderLatency("example.com", i);
+        }
+        assertEquals(OptionalLong.of(95), policy.hedgeDelayMillis("example.com"));
+    }
+
+    @Test
+    void testHedgeDelayRespectsMinimum() {
+        HedgingPolicy policy = new HedgingPolicy(true, 0.05, 1, 50, new SimpleMeterRegistry());
+        policy.recordHeaderLatency("example.com", 5);
+        assertEquals(OptionalLong.of(50), policy.hedgeDelayMillis("example.com"));
+    }
+
+    @Test
+    void testHedgesStayWithinBudget() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HedgingPolicy policy = new HedgingPolicy(true, 0.05, 20, 0, registry);
+        for (int i = 0; i < 100; i++) {
+            policy.recordRequest();
+        }
+        int granted = 0;
+        for (int i = 0; i < 20; i++) {
+            if (policy.tryAcquireHedge()) {
+                granted++;
+            }
+        }
+        assertEquals(5, granted);
+        assertEquals(5.0, registry.counter("scraper.hedge.sent").count());
+    }
+}
@@ -0,0 +1,105 @@
+package com.webscraper.services;
+
+import com.webscraper.domain.entities.ImageContent;
+import com.webscraper.infrastructure.db.entities.ImageEntity;
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import com.webscraper.infrastructure.image.ImageContentServiceImpl;
+import com.webscraper.infrastructure.image.storage.ByteBufferResource;
+import com.webscraper.infrastructure.image.storage.ImageStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ImageContentServiceImplTest {
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 1, 2, 3, 4};
+
+    private ImageStorage imageStorage;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        imageStorage = mock(ImageStorage.class);
+        when(imageStorage.read("compressed/a.jpg")).thenAnswer(invocation -> ByteBuffer.wrap(JPEG).asReadOnlyBuffer());
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testSmallImageIsServedFromHotCacheAfterSecondRead() throws Exception {
+        ImageContentServiceImpl service = new ImageContentServiceImpl(mock(ImageRepository.class), imageStorage, 1024, 512, registry);
+
+        ImageContent first = service.readContent(image());
+        service.readContent(image());
+        ImageContent third = service.readContent(image());
+
+        verify(imageStorage, times(2)).read("compressed/a.jpg");
+        assertEquals("image/jpeg", third.mediaType());
+        assertEquals(ByteBuffer.wrap(JPEG), first.data());
+        assertEquals(ByteBuffer.wrap(JPEG), third.data());
+        assertEquals(1.0, registry.counter("scraper.images.content.reads", "result", "hit").count());
+    }
+
+    @Test
+    void testImagesReadOnceDoNotEvictHotOnes() throws Exception {
+        ImageContentServiceImpl service = new ImageContentServiceImpl(mock(ImageRepository.class), imageStorage, JPEG.length, 512, registry);
+        service.readContent(image());
+        service.readContent(image());
+
+        for (int i = 0; i < 10; i++) {
+            String location = "compressed/scan-" + i + ".jpg";
+            when(imageStorage.read(location)).thenAnswer(invocation -> ByteBuffer.wrap(JPEG).asReadOnlyBuffer());
+            ImageEntity scanned = image();
+            scanned.setPath(location);
+            service.readContent(scanned);
+        }
+        service.readContent(image());
+
+        verify(imageStorage, times(2)).read("compressed/a.jpg");
+        assertEquals(1.0, registry.counter("scraper.images.content.reads", "result", "hit").count());
+    }
+
+    @Test
+    void testDisabledCacheReadsStorageEveryTime() throws Exception {
+        ImageContentServiceImpl service = new ImageContentServiceImpl(mock(ImageRepository.class), imageStorage, 0, 512, registry);
+
+        service.readContent(image());
+        service.readContent(image());
+
+        verify(imageStorage, times(2)).read("compressed/a.jpg");
+    }
+
+    @Test
+    void testEntityTagFollowsContentHashAndStoredSize() {
+        ImageContentServiceImpl service = new ImageContentServiceImpl(mock(ImageRepository.class), imageStorage, 0, 0, registry);
+        ImageEntity image = image();
+
+        assertEquals("\"abc-8\"", service.entityTag(image));
+        image.setContentHash(null);
+        assertNull(service.entityTag(image));
+    }
+
+    @Test
+    void testResourceStreamsSkipWithoutReading() throws Exception {
+        ByteBufferResource resource = new ByteBufferResource(ByteBuffer.wrap(JPEG), "compressed/a.jpg");
+
+        assertEquals(JPEG.length, resource.contentLength());
+        try (InputStream in = resource.getInputStream()) {
+            assertEquals(5, in.skip(5));
+            assertArrayEquals(new byte[]{2, 3, 4}, in.readAllBytes());
+        }
+        try (InputStream in = resource.getInputStream()) {
+            assertEquals(0xFF, in.read(), "Every stream starts at the beginning");
+        }
+    }
+
+    private static ImageEntity image() {
+        return new ImageEntity(7, "https://example.com/a.jpg", "compressed/a.jpg", "example.com", 100, JPEG.length, false,
+                "abc", null, null, null);
+    }
+}
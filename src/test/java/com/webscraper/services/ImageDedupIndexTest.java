@@ -0,0 +1,89 @@
+package com.webscraper.services;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import com.webscraper.infrastructure.image.ImageDedupIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ImageDedupIndexTest {
+
+    private ImageRepository imageRepository;
+    private ImageDedupIndex index;
+
+    @BeforeEach
+    void setUp() {
+        imageRepository = mock(ImageRepository.class);
+        index = new ImageDedupIndex(imageRepository, MoreExecutors.newDirectExecutorService(), MoreExecutors.newDirectExecutorService(),
+                1000, 0.01, 1024 * 1024, 100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testLooksUpDatabaseUntilBloomFilterIsLoaded() {
+        when(imageRepository.findExistingOriginalUrls(anyCollection())).thenReturn(List.of("https://example.com/a.jpg"));
+
+        assertTrue(index.isProcessed("https://example.com/a.jpg"));
+        assertTrue(index.isProcessed("https://example.com/a.jpg"));
+
+        verify(imageRepository, times(1)).findExistingOriginalUrls(Set.of("https://example.com/a.jpg"));
+    }
+
+    @Test
+    void testBloomFilterAnswersUnknownUrlsWithoutDatabase() {
+        ImageRepository.OriginalUrlView stored = mock(ImageRepository.OriginalUrlView.class);
+        when(stored.getId()).thenReturn(1L);
+        when(stored.getOriginalUrl()).thenReturn("https://example.com/stored.jpg");
+        when(imageRepository.findOriginalUrlsAfter(eq(0L), any())).thenReturn(List.of(stored));
+        when(imageRepository.findExistingOriginalUrls(anyCollection())).thenReturn(List.of("https://example.com/stored.jpg"));
+
+        index.rebuild();
+
+        assertFalse(index.isProcessed("https://example.com/new.jpg"));
+        assertTrue(index.isProcessed("https://example.com/stored.jpg"));
+        verify(imageRepository, times(1)).findExistingOriginalUrls(anyCollection());
+    }
+
+    @Test
+    void testMarkProcessedIsAnsweredFromCache() {
+        index.rebuild();
+        index.markProcessed("https://example.com/b.jpg");
+
+        assertTrue(index.isProcessed("https://example.com/b.jpg"));
+        verify(imageRepository, never()).findExistingOriginalUrls(anyCollection());
+    }
+
+    @Test
+    void testLookupsAreDrainedWhileRebuildIsRunning() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(imageRepository.findOriginalUrlsAfter(anyLong(), any())).thenAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+        when(imageRepository.findExistingOriginalUrls(anyCollection())).thenReturn(List.of("https://example.com/a.jpg"));
+        ExecutorService lookups = Executors.newSingleThreadExecutor();
+        ExecutorService rebuilds = Executors.newSingleThreadExecutor();
+        try {
+            ImageDedupIndex index = new ImageDedupIndex(imageRepository, lookups, rebuilds,
+                    1000, 0.01, 1024 * 1024, 100, new SimpleMeterRegistry());
+            index.rebuild();
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertTrue(index.isProcessed("https://example.com/a.jpg")));
+        } finally {
+            release.countDown();
+            lookups.shutdown();
+            rebuilds.shutdown();
+        }
+    }
+}
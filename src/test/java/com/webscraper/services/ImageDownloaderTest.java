@@ -0,0 +1,167 @@
+package com.webscraper.services;
+
+import com.sun.net.httpserver.HttpServer;
+import com.webscraper.infrastructure.image.ImageBuffer;
+import com.webscraper.infrastructure.image.ImageBufferPool;
+import com.webscraper.infrastructure.image.ImageDownloader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageDownloaderTest {
+
+    private static final int MIN_SIZE = 1024;
+    private static final int BUFFER_SIZE = 2 * MIN_SIZE;
+    private static final int MAX_SIZE = 8 * MIN_SIZE;
+
+    @TempDir
+    Path spillDirectory;
+
+    private HttpServer server;
+    private CloseableHttpClient httpClient;
+    private SimpleMeterRegistry registry;
+    private ImageDownloader downloader;
+    private String origin;
+    private final AtomicInteger getRequests = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        origin = "http://127.0.0.1:" + server.getAddress().getPort();
+        serve("/small.jpg", "image/jpeg", jpeg(100), true);
+        serve("/large.jpg", "image/jpeg", jpeg(4 * MIN_SIZE), true);
+        serve("/no-head.jpg", "image/jpeg", jpeg(4 * MIN_SIZE), false);
+        serve("/page.jpg", "image/jpeg", "<html>not an image</html>".repeat(100).getBytes(), false);
+        serve("/huge.jpg", "image/jpeg", jpeg(2 * MAX_SIZE), true);
+        serveChunked("/chunked.jpg", jpeg(3 * MIN_SIZE));
+        serveChunked("/endless.jpg", jpeg(2 * MAX_SIZE));
+        server.start();
+        httpClient = HttpClients.createDefault();
+        registry = new SimpleMeterRegistry();
+        ImageBufferPool pool = new ImageBufferPool(BUFFER_SIZE, 2, MAX_SIZE, spillDirectory.toString(), registry);
+        downloader = new ImageDownloader(httpClient, pool, MIN_SIZE, registry);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void testSmallImageIsRejectedByHeadWithoutGet() {
+        assertNull(downloader.download(URI.create(origin + "/small.jpg")));
+        assertEquals(0, getRequests.get());
+        assertEquals(100.0, registry.counter("scraper.images.bytes.avoided").count());
+    }
+
+    @Test
+    void testLargeImageIsDownloaded() throws Exception {
+        try (ImageBuffer body = downloader.download(URI.create(origin + "/large.jpg"))) {
+            assertNotNull(body);
+            assertEquals(4 * MIN_SIZE, body.size());
+            assertEquals(0xD8, body.contents().get(1) & 0xFF);
+            assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(jpeg(4 * MIN_SIZE))),
+                    body.contentHash());
+        }
+    }
+
+    @Test
+    void testBodyLargerThanBufferIsSpilledToDisk() throws IOException {
+        try (ImageBuffer body = downloader.download(URI.create(origin + "/chunked.jpg"))) {
+            assertNotNull(body);
+            assertEquals(3 * MIN_SIZE, body.size());
+            assertEquals(0xFF, body.contents().get(2) & 0xFF);
+        }
+        assertEquals(1.0, registry.counter("scraper.images.buffer.spills").count());
+        try (var files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testOversizedImageIsRejectedByHead() {
+        assertNull(downloader.download(URI.create(origin + "/huge.jpg")));
+        assertEquals(0, getRequests.get());
+        assertEquals(1.0, registry.counter("scraper.images.probe.skipped", "reason", "too_large").count());
+    }
+
+    @Test
+    void testOversizedBodyWithoutLengthIsAborted() {
+        assertNull(downloader.download(URI.create(origin + "/endless.jpg")));
+        assertEquals(1.0, registry.counter("scraper.images.probe.skipped", "reason", "too_large").count());
+    }
+
+    @Test
+    void testFallsBackToGetWhenHeadIsNotAllowed() {
+        assertNotNull(downloader.download(URI.create(origin + "/no-head.jpg")));
+        assertNotNull(downloader.download(URI.create(origin + "/no-head.jpg")));
+        assertEquals(2, getRequests.get());
+    }
+
+    @Test
+    void testBodyWithoutImageMagicIsAbandoned() {
+        assertNull(downloader.download(URI.create(origin + "/page.jpg")));
+        assertEquals(1.0, registry.counter("scraper.images.probe.skipped", "reason", "type").count());
+    }
+
+    private void serve(String path, String contentType, byte[] body, boolean headAllowed) {
+        server.createContext(path, exchange -> {
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                if (!headAllowed) {
+                    exchange.sendResponseHeaders(405, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Type", contentType);
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(body.length));
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                return;
+            }
+            getRequests.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+    }
+
+    private void serveChunked(String path, byte[] body) {
+        server.createContext(path, exchange -> {
+            getRequests.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Type", "image/jpeg");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            } catch (IOException e) {
+                // the client aborted the download
+            }
+        });
+    }
+
+    private static byte[] jpeg(int length) {
+        byte[] bytes = new byte[length];
+        bytes[0] = (byte) 0xFF;
+        bytes[1] = (byte) 0xD8;
+        bytes[2] = (byte) 0xFF;
+        return bytes;
+    }
+}
@@ -0,0 +1,100 @@
+package com.webscraper.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webscraper.infrastructure.db.entities.ImageEntity;
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import com.webscraper.infrastructure.image.ImageExportServiceImpl;
+import com.webscraper.infrastructure.image.storage.ImageStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ImageExportServiceImplTest {
+
+    @Test
+    void testArchiveHasManifestAndOneEntryPerImage() throws Exception {
+        ImageRepository imageRepository = mock(ImageRepository.class);
+        ImageStorage imageStorage = mock(ImageStorage.class);
+        ImageEntity one = image(1, "compressed/example.com/ab/cd/one.jpg", false);
+        ImageEntity two = image(2, "pack:00000000:000000000008:3", false);
+        ImageEntity three = image(3, "compressed/example.com/ef/01/three.png", true);
+        ImageEntity four = image(4, "compressed/example.com/gone.jpg", false);
+        when(imageRepository.findByDomainAndIdGreaterThanOrderByIdAsc("example.com", 0, Limit.of(2))).thenReturn(List.of(one, two));
+        when(imageRepository.findByDomainAndIdGreaterThanOrderByIdAsc("example.com", 2, Limit.of(2))).thenReturn(List.of(three, four));
+        when(imageRepository.findByDomainAndIdGreaterThanOrderByIdAsc("example.com", 4, Limit.of(2))).thenReturn(List.of());
+        when(imageRepository.findByDomainInPathOrder("example.com", 4, "", 0, Limit.of(2))).thenReturn(List.of(one, three));
+        when(imageRepository.findByDomainInPathOrder("example.com", 4, three.getPath(), 3, Limit.of(2))).thenReturn(List.of(four, two));
+        when(imageRepository.findByDomainInPathOrder("example.com", 4, two.getPath(), 2, Limit.of(2))).thenReturn(List.of());
+        when(imageStorage.read(anyString())).thenAnswer(invocation ->
+                ByteBuffer.wrap(invocation.getArgument(0, String.class).getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer());
+        when(imageStorage.read("compressed/example.com/gone.jpg")).thenThrow(new NoSuchFileException("gone"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ObjectMapper objectMapper = new ObjectMapper();
+        ImageExportServiceImpl service = new ImageExportServiceImpl(imageRepository, imageStorage, objectMapper, 2, 8192, registry);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportSite("https://example.com/gallery", out);
+
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        assertEquals(List.of("manifest.jsonl", "images/1.jpg", "images/3.png", "images/2.jpg"), List.copyOf(entries.keySet()));
+        assertArrayEquals(two.getPath().getBytes(StandardCharsets.UTF_8), entries.get("images/2.jpg"));
+        String[] manifest = new String(entries.get("manifest.jsonl"), StandardCharsets.UTF_8).split("\n");
+        assertEquals(4, manifest.length);
+        JsonNode row = objectMapper.readTree(manifest[2]);
+        assertEquals(3, row.get("id").asLong());
+        assertEquals("images/3.png", row.get("file").asText());
+        assertEquals(1.0, registry.counter("scraper.images.export.files", "result", "missing").count());
+    }
+
+    @Test
+    void testPassedThroughPackImageIsExportedAsJpeg() throws Exception {
+        ImageRepository imageRepository = mock(ImageRepository.class);
+        ImageStorage imageStorage = mock(ImageStorage.class);
+        ImageEntity five = image(5, "pack:00000001:000000000008:3", true);
+        when(imageRepository.findByDomainAndIdGreaterThanOrderByIdAsc("example.com", 0, Limit.of(2))).thenReturn(List.of(five));
+        when(imageRepository.findByDomainInPathOrder("example.com", 5, "", 0, Limit.of(2))).thenReturn(List.of(five));
+        when(imageStorage.read(anyString())).thenAnswer(invocation -> ByteBuffer.wrap(new byte[]{1, 2, 3}).asReadOnlyBuffer());
+        ImageExportServiceImpl service = new ImageExportServiceImpl(imageRepository, imageStorage, new ObjectMapper(), 2, 8192,
+                new SimpleMeterRegistry());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportSite("https://example.com/gallery", out);
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        assertEquals(List.of("manifest.jsonl", "images/5.jpg"), names);
+    }
+
+    private static ImageEntity image(long id, String path, boolean passthrough) {
+        return new ImageEntity(id, "https://example.com/" + id, path, "example.com", 100, 10, passthrough,
+                "hash" + id, null, null, null);
+    }
+}
@@ -0,0 +1,53 @@
+package com.webscraper.services;
+
+import com.webscraper.infrastructure.image.ImageBuffer;
+import com.webscraper.infrastructure.image.ImageFormat;
+import com.webscraper.infrastructure.image.ImageHeader;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageHeaderTest {
+
+    @Test
+    void testDimensionsAreReadFromHeadersOnly() throws Exception {
+        byte[] png = encode(new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB), "png");
+        // Без пікселів: лише сигнатура та IHDR
+        byte[] headersOnly = Arrays.copyOf(png, 64);
+
+        ImageHeader header = ImageHeader.read(ImageBuffer.wrap(headersOnly));
+
+        assertNotNull(header);
+        assertEquals(ImageFormat.PNG, header.format());
+        assertEquals(4000, header.width());
+        assertEquals(3000, header.height());
+        assertEquals(12_000_000L, header.pixels());
+    }
+
+    @Test
+    void testFormatIsPickedByMagicBytes() throws Exception {
+        byte[] jpeg = encode(new BufferedImage(320, 200, BufferedImage.TYPE_INT_RGB), "jpg");
+
+        ImageHeader header = ImageHeader.read(ImageBuffer.wrap(jpeg));
+
+        assertNotNull(header);
+        assertEquals(ImageFormat.JPEG, header.format());
+        assertEquals(320, header.width());
+    }
+
+    @Test
+    void testUnknownFormatReturnsNull() throws Exception {
+        assertNull(ImageHeader.read(ImageBuffer.wrap("<html>not an image</html>".getBytes())));
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+}
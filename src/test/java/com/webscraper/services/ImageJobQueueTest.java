@@ -0,0 +1,127 @@
+package com.webscraper.services;
+
+import com.webscraper.application.ports.ImageProcessingService;
+import com.webscraper.application.services.ImageJobQueue;
+import com.webscraper.domain.entities.ScraperSession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ImageJobQueueTest {
+
+    private ImageProcessingService imageProcessingService;
+    private ExecutorService imageExecutor;
+    private SimpleMeterRegistry registry;
+    private ImageJobQueue queue;
+    private CountDownLatch release;
+    private List<String> processed;
+
+    @BeforeEach
+    void setUp() {
+        imageProcessingService = mock(ImageProcessingService.class);
+        imageExecutor = Executors.newSingleThreadExecutor();
+        registry = new SimpleMeterRegistry();
+        release = new CountDownLatch(1);
+        processed = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            processed.add(invocation.getArgument(0));
+            return null;
+        }).when(imageProcessingService).processImage(anyString(), anyString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        queue.close();
+        imageExecutor.shutdownNow();
+    }
+
+    @Test
+    void testImagesWithLargerExpectedSavingsAreProcessedFirst() throws Exception {
+        queue = new ImageJobQueue(imageProcessingService, imageExecutor, 1, 10, registry);
+        ScraperSession session = session("s1");
+        CompletableFuture<Void> blocker = queue.submit("https://example.com/blocker.jpg", session, null);
+        awaitWorkerBusy();
+
+        CompletableFuture<Void> small = queue.submit("https://example.com/small.jpg", session, 100L * 100);
+        CompletableFuture<Void> bitmap = queue.submit("https://example.com/huge.bmp?x=1", session, 1000L * 1000);
+        CompletableFuture<Void> photo = queue.submit("https://example.com/photo.jpg", session, 1000L * 1000);
+        release.countDown();
+        CompletableFuture.allOf(blocker, small, bitmap, photo).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("https://example.com/blocker.jpg", "https://example.com/huge.bmp?x=1",
+                "https://example.com/photo.jpg", "https://example.com/small.jpg"), processed);
+        assertEquals(4, registry.timer("scraper.images.jobs.wait").count());
+    }
+
+    @Test
+    void testFullQueueBlocksUntilSessionIsStopped() throws Exception {
+        queue = new ImageJobQueue(imageProcessingService, imageExecutor, 1, 1, registry);
+        ScraperSession session = session("s1");
+        queue.submit("https://example.com/a.jpg", session, null);
+        awaitWorkerBusy();
+        queue.submit("https://example.com/b.jpg", session, null);
+
+        CompletableFuture<CompletableFuture<Void>> blocked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.submit("https://example.com/c.jpg", session, null);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(300);
+        assertFalse(blocked.isDone(), "Submitting to a full queue must block");
+
+        session.setCanceled(true);
+        assertEquals(1, queue.cancelSession("s1"));
+        blocked.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        assertEquals(0, queue.size());
+        assertEquals(2.0, registry.counter("scraper.images.jobs", "result", "canceled").count());
+        verify(imageProcessingService, timeout(5000)).processImage("https://example.com/a.jpg", "example.com");
+        verify(imageProcessingService, never()).processImage(eq("https://example.com/b.jpg"), anyString());
+        verify(imageProcessingService, never()).processImage(eq("https://example.com/c.jpg"), anyString());
+    }
+
+    @Test
+    void testWorkerSurvivesErrorAndCompletesTheJob() throws Exception {
+        queue = new ImageJobQueue(imageProcessingService, imageExecutor, 1, 1, registry);
+        release.countDown();
+        doThrow(new StackOverflowError()).when(imageProcessingService).processImage(eq("https://example.com/a.jpg"), anyString());
+        ScraperSession session = session("s1");
+
+        CompletableFuture<Void> failing = queue.submit("https://example.com/a.jpg", session, null);
+        failing.get(5, TimeUnit.SECONDS);
+        CompletableFuture<Void> next = queue.submit("https://example.com/b.jpg", session, null);
+        next.get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("https://example.com/b.jpg"), processed);
+        assertEquals(1.0, registry.counter("scraper.images.jobs", "result", "failed").count());
+    }
+
+    private void awaitWorkerBusy() throws InterruptedException {
+        for (int i = 0; i < 100 && queue.size() > 0; i++) {
+            Thread.sleep(20);
+        }
+        verify(imageProcessingService, timeout(5000)).processImage(anyString(), anyString());
+    }
+
+    private static ScraperSession session(String id) {
+        return new ScraperSession(id, "https://example.com", "example.com");
+    }
+}
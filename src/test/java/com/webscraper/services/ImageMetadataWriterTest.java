@@ -0,0 +1,122 @@
+package com.webscraper.services;
+
+import com.webscraper.infrastructure.db.entities.ImageEntity;
+import com.webscraper.infrastructure.db.repositories.ImageMetadataWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ImageMetadataWriterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry registry;
+    private ImageMetadataWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        registry = new SimpleMeterRegistry();
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any())).thenReturn(List.of(101L));
+        writer = new ImageMetadataWriter(jdbcTemplate, 500, 50, 100, registry);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        writer.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRowsAreWrittenInOneStatementWithSequenceIds() {
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenReturn(List.of("https://a/1.jpg", "https://a/2.jpg"));
+        ImageEntity first = image("https://a/1.jpg");
+        ImageEntity second = image("https://a/2.jpg");
+
+        writer.write(first, () -> fail("no conflict expected"), () -> fail("no failure expected"));
+        writer.write(second, () -> fail("no conflict expected"), () -> fail("no failure expected"));
+        writer.flush();
+
+        verify(jdbcTemplate, times(1)).query(any(PreparedStatementCreator.class), any(RowMapper.class));
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), any());
+        assertEquals(101L, first.getId());
+        assertEquals(102L, second.getId());
+        assertEquals(2.0, registry.counter("scraper.images.metadata.rows", "result", "inserted").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testConflictingUrlsRunTheirHandler() {
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenReturn(List.of("https://a/1.jpg"));
+        AtomicInteger conflicts = new AtomicInteger();
+
+        writer.write(image("https://a/1.jpg"), conflicts::incrementAndGet, () -> fail("no failure expected"));
+        writer.write(image("https://a/1.jpg"), conflicts::incrementAndGet, () -> fail("no failure expected"));
+        writer.write(image("https://a/stored-elsewhere.jpg"), conflicts::incrementAndGet, () -> fail("no failure expected"));
+        writer.flush();
+
+        assertEquals(2, conflicts.get());
+        assertEquals(2.0, registry.counter("scraper.images.metadata.rows", "result", "conflict").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testIdBlockIsReusedAcrossBatches() {
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenReturn(List.of("https://a/1.jpg"), List.of("https://a/2.jpg"));
+        ImageEntity second = image("https://a/2.jpg");
+
+        writer.write(image("https://a/1.jpg"), () -> {
+        }, () -> {
+        });
+        writer.flush();
+        writer.write(second, () -> {
+        }, () -> {
+        });
+        writer.flush();
+
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), any());
+        assertEquals(102L, second.getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedBatchIsRetriedRowByRow() {
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenThrow(new DataIntegrityViolationException("value too long"))
+                .thenReturn(List.of("https://a/1.jpg"))
+                .thenThrow(new DataIntegrityViolationException("value too long"));
+        ImageEntity good = image("https://a/1.jpg");
+        AtomicInteger failures = new AtomicInteger();
+
+        writer.write(good, () -> fail("no conflict expected"), () -> fail("the good row must be written"));
+        writer.write(image("https://a/bad.jpg"), () -> fail("no conflict expected"), failures::incrementAndGet);
+        writer.flush();
+
+        verify(jdbcTemplate, times(3)).query(any(PreparedStatementCreator.class), any(RowMapper.class));
+        assertNotEquals(0L, good.getId());
+        assertEquals(1, failures.get());
+        assertEquals(1.0, registry.counter("scraper.images.metadata.rows", "result", "inserted").count());
+        assertEquals(1.0, registry.counter("scraper.images.metadata.rows", "result", "failed").count());
+    }
+
+    private static ImageEntity image(String url) {
+        ImageEntity entity = new ImageEntity();
+        entity.setOriginalUrl(url);
+        entity.setPath("compressed/" + url.hashCode() + ".jpg");
+        return entity;
+    }
+}
@@ -0,0 +1,283 @@
+package com.webscraper.services;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.webscraper.infrastructure.db.entities.ImageEntity;
+import com.webscraper.infrastructure.db.repositories.ImageMetadataWriter;
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import com.webscraper.infrastructure.image.ContentHashIndex;
+import com.webscraper.infrastructure.image.ImageBuffer;
+import com.webscraper.infrastructure.image.ImageCompressor;
+import com.webscraper.infrastructure.image.ImageDedupIndex;
+import com.webscraper.infrastructure.image.ImageProcessingServiceImpl;
+import com.webscraper.infrastructure.image.NearDuplicateIndex;
+import com.webscraper.infrastructure.image.PixelMemoryBudget;
+import com.webscraper.infrastructure.image.RecompressionPolicy;
+import com.webscraper.infrastructure.image.storage.ImageStorage;
+import com.webscraper.infrastructure.image.storage.StoredImage;
+import com.webscraper.infrastructure.image.storage.StoredPathGuard;
+import com.webscraper.infrastructure.image.strategy.ImageFetchStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ImageProcessingServiceImplTest {
+
+    private static final String URL = "https://cdn.example.com/photo.jpg?v=2";
+
+    private ImageRepository imageRepository;
+    private ImageMetadataWriter imageMetadataWriter;
+    private ImageCompressor imageCompressor;
+    private ImageStorage imageStorage;
+    private ImageDedupIndex imageDedupIndex;
+    private NearDuplicateIndex nearDuplicateIndex;
+    private SimpleMeterRegistry registry;
+    private ImageProcessingServiceImpl service;
+    private byte[] jpeg;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "jpg", out);
+        jpeg = out.toByteArray();
+
+        imageRepository = mock(ImageRepository.class);
+        imageMetadataWriter = mock(ImageMetadataWriter.class);
+        imageCompressor = mock(ImageCompressor.class);
+        imageStorage = mock(ImageStorage.class);
+        when(imageStorage.store(anyString(), anyString(), any()))
+                .thenReturn(new StoredImage("compressed/b.jpg", 100, CompletableFuture.completedFuture(null)));
+        imageDedupIndex = mock(ImageDedupIndex.class);
+        registry = new SimpleMeterRegistry();
+        nearDuplicateIndex = new NearDuplicateIndex(true, 6, imageRepository, null, registry);
+        service = newService(nearDuplicateIndex);
+    }
+
+    private ImageProcessingServiceImpl newService(NearDuplicateIndex index) {
+        ImageFetchStrategy strategy = mock(ImageFetchStrategy.class);
+        when(strategy.supports(anyString())).thenReturn(true);
+        when(strategy.fetchImage(anyString(), any())).thenAnswer(invocation -> ImageBuffer.wrap(jpeg));
+
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("images.minSizeBytes", "0");
+        return new ImageProcessingServiceImpl(null, imageRepository, imageMetadataWriter, imageCompressor, imageStorage, new StoredPathGuard(), List.of(strategy),
+                imageDedupIndex, new ContentHashIndex(imageRepository, null, 1000, 0.01, registry), new PixelMemoryBudget(1 << 30, 5000, registry), new RecompressionPolicy(false, 0, 0, registry),
+                index, registry, env);
+    }
+
+    @Test
+    void testSameContentUnderNewUrlReusesStoredFile() throws Exception {
+        ImageEntity existing = new ImageEntity(7, "https://example.com/photo.jpg", "compressed/a.jpg", "example.com", jpeg.length, 1234, false,
+                ImageBuffer.wrap(jpeg).contentHash(), null, null, null);
+        when(imageRepository.findFirstByContentHash(existing.getContentHash())).thenReturn(Optional.of(existing));
+
+        service.processImage(URL, "example.com");
+
+        verifyNoInteractions(imageCompressor, imageStorage);
+        ArgumentCaptor<ImageEntity> saved = ArgumentCaptor.forClass(ImageEntity.class);
+        verify(imageMetadataWriter).write(saved.capture(), any(), any());
+        assertEquals(URL, saved.getValue().getOriginalUrl());
+        assertEquals("compressed/a.jpg", saved.getValue().getPath());
+        assertEquals(existing.getContentHash(), saved.getValue().getContentHash());
+        assertEquals("example.com", saved.getValue().getDomain());
+        verify(imageDedupIndex).markProcessed(URL);
+        assertEquals(1.0, registry.counter("scraper.images.content.duplicates").count());
+        assertEquals(1234.0, registry.get("scraper.images.content.storage.saved").counter().count());
+    }
+
+    @Test
+    void testNewContentIsCompressedAndHashed() throws Exception {
+        when(imageRepository.findFirstByContentHash(anyString())).thenReturn(Optional.empty());
+        when(imageCompressor.compress(any(ImageBuffer.class), any(), anyString())).thenReturn(new byte[100]);
+
+        service.processImage(URL, "example.com");
+
+        ArgumentCaptor<ImageEntity> saved = ArgumentCaptor.forClass(ImageEntity.class);
+        verify(imageMetadataWriter).write(saved.capture(), any(), any());
+        assertEquals(ImageBuffer.wrap(jpeg).contentHash(), saved.getValue().getContentHash());
+        assertEquals("compressed/b.jpg", saved.getValue().getPath());
+        assertEquals(100, saved.getValue().getSizeAfterCompression());
+        assertEquals(0.0, registry.counter("scraper.images.content.duplicates").count());
+    }
+
+    @Test
+    void testSameContentQueuedMomentsAgoReusesItsFile() throws Exception {
+        when(imageRepository.findFirstByContentHash(anyString())).thenReturn(Optional.empty());
+        when(imageCompressor.compress(any(ImageBuffer.class), any(), anyString())).thenReturn(new byte[100]);
+
+        service.processImage("https://example.com/photo.jpg", "example.com");
+        service.processImage(URL, "example.com");
+
+        verify(imageStorage, times(1)).store(anyString(), anyString(), any());
+        verify(imageRepository, times(1)).findFirstByContentHash(anyString());
+        ArgumentCaptor<ImageEntity> saved = ArgumentCaptor.forClass(ImageEntity.class);
+        verify(imageMetadataWriter, times(2)).write(saved.capture(), any(), any());
+        assertEquals("compressed/b.jpg", saved.getAllValues().get(1).getPath());
+        assertEquals(URL, saved.getAllValues().get(1).getOriginalUrl());
+        assertEquals(1.0, registry.counter("scraper.images.content.duplicates").count());
+    }
+
+    @Test
+    void testFileSharedWithQueuedDuplicateSurvivesConflict() throws Exception {
+        when(imageRepository.findFirstByContentHash(anyString())).thenReturn(Optional.empty());
+        when(imageCompressor.compress(any(ImageBuffer.class), any(), anyString())).thenReturn(new byte[100]);
+        ArgumentCaptor<Runnable> onConflict = ArgumentCaptor.forClass(Runnable.class);
+
+        service.processImage("https://example.com/photo.jpg", "example.com");
+        service.processImage(URL, "example.com");
+        verify(imageMetadataWriter, times(2)).write(any(), onConflict.capture(), any());
+        onConflict.getAllValues().get(0).run();
+
+        verify(imageStorage, never()).delete(anyString());
+    }
+
+    @Test
+    void testSmallerVariantOfStoredPictureReusesLargerFile() throws Exception {
+        ImageEntity larger = new ImageEntity(7, "https://example.com/photo-large.jpg", "compressed/large.jpg", "example.com", 90_000, 4321, false,
+                "other", 0L, 800, 600);
+        nearDuplicateIndex.add(new NearDuplicateIndex.Variant(0L, 800 * 600, "compressed/large.jpg"));
+        when(imageRepository.findFirstByContentHash(anyString())).thenReturn(Optional.empty());
+        when(imageRepository.findFirstByPath("compressed/large.jpg")).thenReturn(Optional.of(larger));
+
+        service.processImage(URL, "example.com");
+
+        verifyNoInteractions(imageCompressor, imageStorage);
+        ArgumentCaptor<ImageEntity> saved = ArgumentCaptor.forClass(ImageEntity.class);
+        verify(imageMetadataWriter).write(saved.capture(), any(), any());
+        assertEquals("compressed/large.jpg", saved.getValue().getPath());
+        assertEquals(jpeg.length, saved.getValue().getOriginalSize());
+        assertEquals(1.0, registry.counter("scraper.images.near.duplicates", "action", "linked").count());
+    }
+
+    @Test
+    void testLargerVariantReplacesStoredFile() throws Exception {
+        nearDuplicateIndex.add(new NearDuplicateIndex.Variant(0L, 200 * 150, "compressed/small.jpg"));
+        when(imageRepository.findFirstByContentHash(anyString())).thenReturn(Optional.empty());
+        when(imageCompressor.compress(any(ImageBuffer.class), any(), anyString())).thenReturn(new byte[100]);
+        doAnswer(invocation -> {
+            invocation.<ImageEntity>getArgument(0).setId(42);
+            return null;
+        }).when(imageMetadataWriter).write(any(), any(), any());
+
+        service.processImage(URL, "example.com");
+
+        verify(imageMetadataWriter, atLeastOnce()).flush();
+        verify(imageRepository).repointToVariant(eq("compressed/small.jpg"), eq("compressed/b.jpg"), eq(100L), eq(400), eq(300), any());
+        verify(imageStorage).delete("compressed/small.jpg");
+        assertEquals("compressed/b.jpg", nearDuplicateIndex.findLargest(0L).path());
+        assertEquals(1.0, registry.counter("scraper.images.near.duplicates", "action", "replaced").count());
+    }
+
+    @Test
+    void testRepointedRowsKeepTheLargestVariantAcrossRebuild() throws Exception {
+        nearDuplicateIndex.add(new NearDuplicateIndex.Variant(0L, 200 * 150, "compressed/small.jpg"));
+        when(imageRepository.findFirstByContentHash(anyString())).thenReturn(Optional.empty());
+        when(imageCompressor.compress(any(ImageBuffer.class), any(), anyString())).thenReturn(new byte[100]);
+        doAnswer(invocation -> {
+            invocation.<ImageEntity>getArgument(0).setId(42);
+            return null;
+        }).when(imageMetadataWriter).write(any(), any(), any());
+
+        service.processImage(URL, "example.com");
+
+        ArgumentCaptor<Integer> width = ArgumentCaptor.forClass(Integer.class);
+        ArgumentCaptor<Integer> height = ArgumentCaptor.forClass(Integer.class);
+        ArgumentCaptor<Long> hash = ArgumentCaptor.forClass(Long.class);
+        verify(imageRepository).repointToVariant(eq("compressed/small.jpg"), eq("compressed/b.jpg"), eq(100L),
+                width.capture(), height.capture(), hash.capture());
+        assertEquals(400, width.getValue());
+        assertEquals(300, height.getValue());
+
+        // After a restart the index is rebuilt from the repointed row of the smaller URL
+        ImageRepository.PerceptualHashView repointed = mock(ImageRepository.PerceptualHashView.class);
+        when(repointed.getId()).thenReturn(7L);
+        when(repointed.getPerceptualHash()).thenReturn(hash.getValue());
+        when(repointed.getWidth()).thenReturn(width.getValue());
+        when(repointed.getHeight()).thenReturn(height.getValue());
+        when(repointed.getPath()).thenReturn("compressed/b.jpg");
+        when(imageRepository.findPerceptualHashesAfter(anyLong(), any())).thenReturn(List.of(repointed));
+        NearDuplicateIndex rebuilt = new NearDuplicateIndex(true, 6, imageRepository, MoreExecutors.newDirectExecutorService(), registry);
+        rebuilt.rebuild();
+        assertEquals(400 * 300, rebuilt.findLargest(hash.getValue()).pixels());
+
+        // A medium-sized newcomer is mapped onto the largest file instead of replacing it
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(300, 225, BufferedImage.TYPE_INT_RGB), "jpg", out);
+        jpeg = out.toByteArray();
+        ImageEntity larger = new ImageEntity(42, URL, "compressed/b.jpg", "example.com", 5000, 100, false,
+                "other", hash.getValue(), 400, 300);
+        when(imageRepository.findFirstByPath("compressed/b.jpg")).thenReturn(Optional.of(larger));
+        clearInvocations(imageRepository, imageStorage, imageCompressor);
+
+        newService(rebuilt).processImage("https://cdn.example.com/photo-medium.jpg", "example.com");
+
+        verifyNoInteractions(imageCompressor, imageStorage);
+        verify(imageRepository, never()).repointToVariant(anyString(), anyString(), anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void testLargerVariantLosingConflictKeepsStoredFile() throws Exception {
+        nearDuplicateIndex.add(new NearDuplicateIndex.Variant(0L, 200 * 150, "compressed/small.jpg"));
+        when(imageRepository.findFirstByContentHash(anyString())).thenReturn(Optional.empty());
+        when(imageCompressor.compress(any(ImageBuffer.class), any(), anyString())).thenReturn(new byte[100]);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(imageMetadataWriter).write(any(), any(), any());
+
+        service.processImage(URL, "example.com");
+
+        verify(imageStorage).delete("compressed/b.jpg");
+        verify(imageRepository, never()).repointToVariant(anyString(), anyString(), anyLong(), any(), any(), any());
+        verify(imageStorage, never()).delete("compressed/small.jpg");
+        assertEquals("compressed/small.jpg", nearDuplicateIndex.findLargest(0L).path());
+        assertEquals(0.0, registry.counter("scraper.images.near.duplicates", "action", "replaced").count());
+    }
+
+    @Test
+    void testLargerVariantNotWrittenKeepsStoredFile() throws Exception {
+        nearDuplicateIndex.add(new NearDuplicateIndex.Variant(0L, 200 * 150, "compressed/small.jpg"));
+        when(imageRepository.findFirstByContentHash(anyString())).thenReturn(Optional.empty());
+        when(imageCompressor.compress(any(ImageBuffer.class), any(), anyString())).thenReturn(new byte[100]);
+        when(imageStorage.store(anyString(), anyString(), any()))
+                .thenReturn(new StoredImage("compressed/b.jpg", 100, CompletableFuture.failedFuture(new IOException("disk full"))));
+
+        service.processImage(URL, "example.com");
+
+        verify(imageRepository).deleteByOriginalUrl(URL);
+        verify(imageRepository, never()).repointToVariant(anyString(), anyString(), anyLong(), any(), any(), any());
+        verify(imageStorage, never()).delete("compressed/small.jpg");
+        assertEquals("compressed/small.jpg", nearDuplicateIndex.findLargest(0L).path());
+    }
+
+    @Test
+    void testFailedRowDropsFileAndDedupMark() throws Exception {
+        when(imageRepository.findFirstByContentHash(anyString())).thenReturn(Optional.empty());
+        when(imageCompressor.compress(any(ImageBuffer.class), any(), anyString())).thenReturn(new byte[100]);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(2).run();
+            return null;
+        }).when(imageMetadataWriter).write(any(), any(), any());
+
+        service.processImage(URL, "example.com");
+
+        verify(imageStorage).delete("compressed/b.jpg");
+        InOrder order = inOrder(imageDedupIndex);
+        order.verify(imageDedupIndex).markProcessed(URL);
+        order.verify(imageDedupIndex).forgetProcessed(URL);
+    }
+}
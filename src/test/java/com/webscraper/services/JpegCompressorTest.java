@@ -1,22 +1,29 @@
 package com.webscraper.services;
 
-import com.webscraper.domain.entities.CompressionResult;
+import com.webscraper.infrastructure.image.ImageBuffer;
 import com.webscraper.infrastructure.image.ImageCompressor;
+import com.webscraper.infrastructure.image.ImageHeader;
 import org.junit.jupiter.api.Test;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
 import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class JpegCompressorTest {
 
     @Test
-    public void testCompressAndSave_JpgFormat() throws Exception {
+    public void testCompress_JpgFormat() throws Exception {
         // Завантажуємо тестове зображення з ресурсів
         BufferedImage image = ImageIO.read(Objects.requireNonNull(getClass().getResourceAsStream("/imagesForTest/test-image2.jpg")));
         assertNotNull(image, "Зображення не завантажилося.");
@@ -27,18 +34,13 @@ public class JpegCompressorTest {
 
         assertTrue(imageBytes.length > 200 * 1024, "Розмір зображення має бути більше 200 КБ для тесту.");
 
-        Path tempDir = Files.createTempDirectory("jpeg-compressor-test");
-
-        ImageCompressor compressor = new ImageCompressor();
-
-        CompressionResult result = compressor.compressAndSave(imageBytes, tempDir);
-        assertNotNull(result, "Результат стиснення не повинен бути null.");
-        assertTrue(Files.exists(Path.of(result.fileLink())), "Файл повинен існувати.");
-        assertTrue(result.compressedSize() <= imageBytes.length / 2, "Розмір стисненого файлу не відповідає очікуванню.");
+        byte[] compressed = compress(new ImageCompressor(), imageBytes);
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(compressed)), "Результат стиснення повинен бути зображенням.");
+        assertTrue(compressed.length <= imageBytes.length / 2, "Розмір стисненого файлу не відповідає очікуванню.");
     }
 
     @Test
-    public void testCompressAndSave_PngFormat() throws Exception {
+    public void testCompress_PngFormat() throws Exception {
         BufferedImage image = ImageIO.read(Objects.requireNonNull(getClass().getResourceAsStream("/imagesForTest/test-image.png")));
         assertNotNull(image, "Зображення не завантажилося.");
 
@@ -48,13 +50,113 @@ public class JpegCompressorTest {
 
         assertTrue(imageBytes.length > 200 * 1024, "Розмір зображення має бути більше 200 КБ для тесту.");
 
-        Path tempDir = Files.createTempDirectory("jpeg-compressor-test");
+        byte[] compressed = compress(new ImageCompressor(), imageBytes);
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(compressed)), "Результат стиснення повинен бути зображенням.");
+        assertTrue(compressed.length <= imageBytes.length / 2, "Розмір стисненого файлу не відповідає очікуванню.");
+    }
+
+    @Test
+    public void testCompress_DecodesAtHalfScale() throws Exception {
+        BufferedImage image = ImageIO.read(Objects.requireNonNull(getClass().getResourceAsStream("/imagesForTest/test-image2.jpg")));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", baos);
+
+        byte[] result = compress(new ImageCompressor(), baos.toByteArray());
+
+        BufferedImage compressed = ImageIO.read(new ByteArrayInputStream(result));
+        assertEquals((image.getWidth() + 1) / 2, compressed.getWidth());
+        assertEquals((image.getHeight() + 1) / 2, compressed.getHeight());
+    }
+
+    @Test
+    public void testCompress_TiledDecodeMatchesWholeImage() throws Exception {
+        BufferedImage image = new BufferedImage(1201, 1103, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(7);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, (x * 255 / image.getWidth()) << 16 | (y * 255 / image.getHeight()) << 8 | random.nextInt(64)
+                        | (random.nextInt(4) == 0 ? 0x80000000 : 0xFF000000));
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (String format : new String[]{"tif", "png", "jpg"}) {
+                BufferedImage source = format.equals("jpg") ? rgb(image) : image;
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                ImageIO.write(source, format, baos);
+
+                byte[] whole = compress(new ImageCompressor(), baos.toByteArray());
+                byte[] tiled = compress(new ImageCompressor(pool, 1), baos.toByteArray());
+
+                assertArrayEquals(whole, tiled, format);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static byte[] compress(ImageCompressor compressor, byte[] imageBytes) throws Exception {
+        ImageBuffer buffer = ImageBuffer.wrap(imageBytes);
+        return compressor.compress(buffer, ImageHeader.read(buffer), null);
+    }
 
-        ImageCompressor compressor = new ImageCompressor();
+    private static BufferedImage rgb(BufferedImage image) {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        rgb.getGraphics().drawImage(image, 0, 0, null);
+        return rgb;
+    }
+
+    @Test
+    public void testTilingDoesNotMultiplyDecodeCpu() throws Exception {
+        BufferedImage image = new BufferedImage(2400, 1600, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(11);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        List<Thread> workers = new CopyOnWriteArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(4, p -> {
+            ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            workers.add(worker);
+            return worker;
+        }, null, false);
+        try {
+            for (String format : new String[]{"tif", "png", "jpg"}) {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                ImageIO.write(image, format, baos);
+                ImageBuffer buffer = ImageBuffer.wrap(baos.toByteArray());
+                ImageHeader header = ImageHeader.read(buffer);
+
+                long whole = minCpuNanos(new ImageCompressor(), buffer, header, workers);
+                long tiled = minCpuNanos(new ImageCompressor(pool, 1), buffer, header, workers);
+
+                // Смуги не повинні повторно декодувати рядки над собою
+                assertTrue(tiled < 2 * whole, format + ": tiled decode used " + tiled / 1_000_000 + " ms of CPU, whole "
+                        + whole / 1_000_000 + " ms");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static long minCpuNanos(ImageCompressor compressor, ImageBuffer buffer, ImageHeader header,
+                                    List<Thread> workers) throws Exception {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            long before = cpuNanos(workers);
+            compressor.compress(buffer, header, null);
+            best = Math.min(best, cpuNanos(workers) - before);
+        }
+        return best;
+    }
 
-        CompressionResult result = compressor.compressAndSave(imageBytes, tempDir);
-        assertNotNull(result, "Результат стиснення не повинен бути null.");
-        assertTrue(Files.exists(Path.of(result.fileLink())), "Файл повинен існувати.");
-        assertTrue(result.compressedSize() <= imageBytes.length / 2, "Розмір стисненого файлу не відповідає очікуванню.");
+    private static long cpuNanos(List<Thread> workers) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long total = threads.getCurrentThreadCpuTime();
+        for (Thread worker : workers) {
+            total += Math.max(0, threads.getThreadCpuTime(worker.getId()));
+        }
+        return total;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,54 @@
+package com.webscraper.services;
+
+import com.webscraper.infrastructure.image.JpegQualityModel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JpegQualityModelTest {
+
+    @Test
+    void testUntrainedModelKeepsInitialQuality() {
+        JpegQualityModel model = new JpegQualityModel();
+        assertEquals(0.8f, model.predict("example.com", 0.5, 0.8f), 1e-4);
+    }
+
+    @Test
+    void testPredictsHighestQualityMeetingTarget() {
+        JpegQualityModel model = new JpegQualityModel();
+        for (int i = 0; i < 3; i++) {
+            model.record("example.com", 0.8f, 0.7);
+            model.record("example.com", 0.6f, 0.4);
+            model.record("example.com", 0.4f, 0.25);
+        }
+        assertEquals(0.6f, model.predict("example.com", 0.5, 0.8f), 1e-4);
+        assertEquals(0.4f, model.predict("example.com", 0.3, 0.8f), 1e-4);
+    }
+
+    @Test
+    void testUnknownDomainFallsBackToGlobalModel() {
+        JpegQualityModel model = new JpegQualityModel();
+        for (int i = 0; i < 3; i++) {
+            model.record("photos.example.com", 0.6f, 0.4);
+        }
+        assertEquals(0.6f, model.predict("other.example.com", 0.5, 0.8f), 1e-4);
+    }
+
+    @Test
+    void testDomainHistoryOverridesGlobalModel() {
+        JpegQualityModel model = new JpegQualityModel();
+        for (int i = 0; i < 3; i++) {
+            model.record("photos.example.com", 0.7f, 0.3);
+            model.record("icons.example.com", 0.3f, 0.3);
+            model.record("icons.example.com", 0.7f, 0.9);
+        }
+        assertEquals(0.3f, model.predict("icons.example.com", 0.5, 0.8f), 1e-4);
+        assertEquals(0.7f, model.predict("photos.example.com", 0.5, 0.8f), 1e-4);
+    }
+
+    @Test
+    void testBucketedRoundsDown() {
+        assertEquals(0.35f, JpegQualityModel.bucketed(0.37f), 1e-4);
+        assertEquals(0.4f, JpegQualityModel.bucketed(0.4f), 1e-4);
+    }
+}
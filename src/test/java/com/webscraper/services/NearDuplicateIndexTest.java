@@ -0,0 +1,104 @@
+package com.webscraper.services;
+
+import com.webscraper.infrastructure.db.repositories.ImageRepository;
+import com.webscraper.infrastructure.image.ImageBuffer;
+import com.webscraper.infrastructure.image.ImageHeader;
+import com.webscraper.infrastructure.image.NearDuplicateIndex;
+import com.webscraper.infrastructure.image.PerceptualHash;
+import com.webscraper.infrastructure.image.storage.ImagesMovedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class NearDuplicateIndexTest {
+
+    @Test
+    void testResizedCopiesHaveCloseHashes() throws Exception {
+        BufferedImage original = scene(1200, 900, false);
+
+        long large = hash(original);
+        long small = hash(resize(original, 300, 225));
+
+        assertTrue(PerceptualHash.distance(large, small) <= 4);
+    }
+
+    @Test
+    void testDifferentPicturesHaveDistantHashes() throws Exception {
+        long first = hash(scene(800, 600, false));
+        long second = hash(scene(800, 600, true));
+
+        assertTrue(PerceptualHash.distance(first, second) > 16);
+    }
+
+    @Test
+    void testFindsLargestVariantWithinRadius() {
+        NearDuplicateIndex index = new NearDuplicateIndex(true, 4, mock(ImageRepository.class), null, new SimpleMeterRegistry());
+        index.add(new NearDuplicateIndex.Variant(0b1011L, 100, "small.jpg"));
+        index.add(new NearDuplicateIndex.Variant(0b1001L, 400, "large.jpg"));
+        index.add(new NearDuplicateIndex.Variant(0xFFFF_0000L, 900, "other.jpg"));
+
+        assertEquals("large.jpg", index.findLargest(0b1111L).path());
+        assertNull(index.findLargest(0xFFFF_FFFF_0000_0000L));
+    }
+
+    @Test
+    void testSupersededVariantIsNotReturned() {
+        NearDuplicateIndex index = new NearDuplicateIndex(true, 4, mock(ImageRepository.class), null, new SimpleMeterRegistry());
+        NearDuplicateIndex.Variant small = new NearDuplicateIndex.Variant(0L, 100, "small.jpg");
+        index.add(small);
+
+        index.supersede(small);
+
+        assertNull(index.findLargest(0L));
+    }
+
+    @Test
+    void testMovedVariantIsReturnedAtItsNewLocation() {
+        NearDuplicateIndex index = new NearDuplicateIndex(true, 4, mock(ImageRepository.class), null, new SimpleMeterRegistry());
+        index.add(new NearDuplicateIndex.Variant(0L, 100, "pack:00000000:000000000008:20"));
+        index.add(new NearDuplicateIndex.Variant(0b1L, 400, "pack:00000000:000000000036:20"));
+
+        index.onImagesMoved(new ImagesMovedEvent(Map.of("pack:00000000:000000000036:20", "pack:00000002:000000000008:20")));
+
+        assertEquals("pack:00000002:000000000008:20", index.findLargest(0L).path());
+    }
+
+    private static BufferedImage scene(int width, int height, boolean mirrored) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, mirrored ? Color.WHITE : Color.BLACK, width, height,
+                mirrored ? Color.BLACK : Color.WHITE));
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.RED);
+        g.fillOval(mirrored ? width / 2 : width / 8, height / 4, width / 3, height / 2);
+        g.dispose();
+        return image;
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = resized.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return resized;
+    }
+
+    private static long hash(BufferedImage image) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        ImageBuffer buffer = ImageBuffer.wrap(out.toByteArray());
+        return PerceptualHash.dHash(buffer, ImageHeader.read(buffer));
+    }
+}
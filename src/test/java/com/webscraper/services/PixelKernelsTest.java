@@ -0,0 +1,132 @@
+package com.webscraper.services;
+
+import com.webscraper.infrastructure.image.PixelKernels;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PixelKernelsTest {
+
+    private static final int[] SIZES = {1, 3, 7, 8, 15, 16, 17, 63, 64, 65, 1000, 4099};
+
+    private final PixelKernels scalar = PixelKernels.select(false);
+    private final PixelKernels vector = PixelKernels.select(true);
+
+    @Test
+    void testVectorKernelsAreLoadedWhenModuleIsPresent() {
+        assertTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        assertNotSame(scalar, vector);
+    }
+
+    @Test
+    void testArgbConversionIsBitExact() {
+        Random random = new Random(42);
+        for (int n : SIZES) {
+            int[] src = random.ints(n).toArray();
+            int[] expected = new int[n];
+            int[] actual = new int[n];
+            scalar.argbToRgb(src, expected, n);
+            vector.argbToRgb(src, actual, n);
+            assertArrayEquals(expected, actual, "n=" + n);
+        }
+    }
+
+    @Test
+    void testAbgrConversionIsBitExact() {
+        Random random = new Random(43);
+        for (int n : SIZES) {
+            byte[] src = new byte[4 * n];
+            random.nextBytes(src);
+            int[] expected = new int[n];
+            int[] actual = new int[n];
+            scalar.abgrToRgb(src, expected, n);
+            vector.abgrToRgb(src, actual, n);
+            assertArrayEquals(expected, actual, "n=" + n);
+        }
+    }
+
+    @Test
+    void testGrayConversionIsBitExact() {
+        Random random = new Random(44);
+        for (int n : SIZES) {
+            byte[] src = new byte[n];
+            random.nextBytes(src);
+            int[] expected = new int[n];
+            int[] actual = new int[n];
+            scalar.grayToRgb(src, expected, n);
+            vector.grayToRgb(src, actual, n);
+            assertArrayEquals(expected, actual, "n=" + n);
+        }
+    }
+
+    @Test
+    void testDownscaleIsBitExact() {
+        Random random = new Random(45);
+        for (int width : SIZES) {
+            for (int height : new int[]{2, 3, 9}) {
+                int[] src = random.ints(width * height, 0, 0x1000000).toArray();
+                int[] expected = new int[(width / 2) * (height / 2)];
+                int[] actual = new int[expected.length];
+                scalar.downscale2x(src, width, height, expected);
+                vector.downscale2x(src, width, height, actual);
+                assertArrayEquals(expected, actual, width + "x" + height);
+            }
+        }
+    }
+
+    @Test
+    void testCompositingMatchesRoundedFormula() {
+        for (int a = 0; a < 256; a++) {
+            for (int c = 0; c < 256; c++) {
+                int[] out = new int[1];
+                scalar.argbToRgb(new int[]{a << 24 | c}, out, 1);
+                assertEquals(Math.round(c * a / 255.0), out[0], "c=" + c + " a=" + a);
+            }
+        }
+    }
+
+    @Test
+    void testDownscaleAveragesBlocks() {
+        int[] src = {
+                0x000000, 0x040404, 0x102030, 0x102030,
+                0x080808, 0x0C0C0C, 0x102030, 0x102032,
+        };
+        int[] dst = new int[2];
+        vector.downscale2x(src, 4, 2, dst);
+        assertArrayEquals(new int[]{0x060606, 0x102031}, dst);
+    }
+
+    @Test
+    void testOpaqueConversionsMatchJava2D() {
+        Random random = new Random(46);
+        BufferedImage argb = new BufferedImage(37, 11, BufferedImage.TYPE_INT_ARGB);
+        int[] argbPixels = ((DataBufferInt) argb.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < argbPixels.length; i++) {
+            argbPixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        BufferedImage gray = new BufferedImage(37, 11, BufferedImage.TYPE_BYTE_GRAY);
+        random.nextBytes(((DataBufferByte) gray.getRaster().getDataBuffer()).getData());
+
+        for (BufferedImage src : new BufferedImage[]{argb, gray}) {
+            assertArrayEquals(pixels(java2d(src)), pixels(vector.toRgb(src)), "type=" + src.getType());
+        }
+    }
+
+    private static BufferedImage java2d(BufferedImage src) {
+        BufferedImage rgb = new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.drawImage(src, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    private static int[] pixels(BufferedImage rgb) {
+        return ((DataBufferInt) rgb.getRaster().getDataBuffer()).getData();
+    }
+}
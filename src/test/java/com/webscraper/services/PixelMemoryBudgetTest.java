@@ -0,0 +1,68 @@
+package com.webscraper.services;
+
+import com.webscraper.infrastructure.image.PixelMemoryBudget;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PixelMemoryBudgetTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void testSmallReservationsRunWhileLargeOneWaits() throws Exception {
+        PixelMemoryBudget budget = new PixelMemoryBudget(100, 60_000, registry);
+        PixelMemoryBudget.Reservation first = budget.reserve(60);
+
+        CompletableFuture<PixelMemoryBudget.Reservation> large = CompletableFuture.supplyAsync(() -> reserve(budget, 60));
+        assertThrows(TimeoutException.class, () -> large.get(200, TimeUnit.MILLISECONDS));
+
+        try (PixelMemoryBudget.Reservation small = budget.reserve(30)) {
+            assertEquals(90, budget.used());
+        }
+
+        first.close();
+        large.get(5, TimeUnit.SECONDS).close();
+        assertEquals(0, budget.used());
+        assertEquals(3, registry.timer("scraper.images.memory.budget.wait").count());
+    }
+
+    @Test
+    void testOversizedReservationIsCappedToBudget() throws Exception {
+        PixelMemoryBudget budget = new PixelMemoryBudget(100, 60_000, registry);
+        try (PixelMemoryBudget.Reservation huge = budget.reserve(1_000)) {
+            assertEquals(100, budget.used());
+            assertEquals(1.0, registry.get("scraper.images.memory.budget.utilization").gauge().value());
+        }
+        assertEquals(0, budget.used());
+    }
+
+    @Test
+    void testStarvingReservationGetsPriority() throws Exception {
+        PixelMemoryBudget budget = new PixelMemoryBudget(100, 50, registry);
+        PixelMemoryBudget.Reservation held = budget.reserve(50);
+
+        CompletableFuture<PixelMemoryBudget.Reservation> large = CompletableFuture.supplyAsync(() -> reserve(budget, 100));
+        Thread.sleep(300);
+        CompletableFuture<PixelMemoryBudget.Reservation> small = CompletableFuture.supplyAsync(() -> reserve(budget, 10));
+        assertThrows(TimeoutException.class, () -> small.get(200, TimeUnit.MILLISECONDS));
+
+        held.close();
+        large.get(5, TimeUnit.SECONDS).close();
+        small.get(5, TimeUnit.SECONDS).close();
+        assertEquals(0, budget.used());
+    }
+
+    private static PixelMemoryBudget.Reservation reserve(PixelMemoryBudget budget, long bytes) {
+        try {
+            return budget.reserve(bytes);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.webscraper.services;
+
+import com.webscraper.domain.entities.ProxyInfo;
+import com.webscraper.domain.entities.ScraperSession;
+import com.webscraper.infrastructure.http.ProxyAffinityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyAffinityManagerTest {
+
+    private final ProxyInfo proxy1 = new ProxyInfo("proxy1.example.com", 8080);
+    private final ProxyInfo proxy2 = new ProxyInfo("proxy2.example.com", 8081);
+
+    private ScraperSession session;
+
+    @BeforeEach
+    void setUp() {
+        session = new ScraperSession("session", "https://example.com", "example.com");
+        session.setUserProxies(List.of(proxy1, proxy2));
+    }
+
+    @Test
+    void testSameHostStaysOnOneProxy() {
+        ProxyAffinityManager manager = new ProxyAffinityManager(true, 100, 300, 1);
+
+        ProxyInfo first = manager.selectProxy(session, "https://example.com/a");
+        assertEquals(first, manager.selectProxy(session, "https://example.com/b"));
+        assertEquals(first, manager.selectProxy(session, "https://EXAMPLE.com/c"));
+    }
+
+    @Test
+    void testDifferentHostsAreSpreadOverProxies() {
+        ProxyAffinityManager manager = new ProxyAffinityManager(true, 100, 300, 1);
+
+        assertEquals(proxy1, manager.selectProxy(session, "https://example.com/a"));
+        assertEquals(proxy2, manager.selectProxy(session, "https://cdn.example.com/a"));
+    }
+
+    @Test
+    void testBindingMovesAfterMaxRequests() {
+        ProxyAffinityManager manager = new ProxyAffinityManager(true, 2, 300, 1);
+
+        assertEquals(proxy1, manager.selectProxy(session, "https://example.com/a"));
+        assertEquals(proxy1, manager.selectProxy(session, "https://example.com/b"));
+        assertEquals(proxy2, manager.selectProxy(session, "https://example.com/c"));
+        assertEquals(proxy2, manager.selectProxy(session, "https://example.com/d"));
+    }
+
+    @Test
+    void testUnpinMovesHostToNextProxy() {
+        ProxyAffinityManager manager = new ProxyAffinityManager(true, 100, 300, 1);
+
+        assertEquals(proxy1, manager.selectProxy(session, "https://example.com/a"));
+        manager.unpin(session, "https://example.com/a");
+        assertEquals(proxy2, manager.selectProxy(session, "https://example.com/b"));
+    }
+
+    @Test
+    void testDisabledAffinityRotatesEveryRequest() {
+        ProxyAffinityManager manager = new ProxyAffinityManager(false, 100, 300, 1);
+
+        assertEquals(proxy1, manager.selectProxy(session, "https://example.com/a"));
+        assertEquals(proxy2, manager.selectProxy(session, "https://example.com/b"));
+    }
+
+    @Test
+    void testReturnsNullWithoutProxies() {
+        ProxyAffinityManager manager = new ProxyAffinityManager(true, 100, 300, 1);
+        session.setUserProxies(List.of());
+
+        assertNull(manager.selectProxy(session, "https://example.com/a"));
+    }
+
+    @Test
+    void testAlternativeProxyDoesNotAdvanceRotation() {
+        ProxyAffinityManager manager = new ProxyAffinityManager(true, 100, 300, 1);
+
+        assertEquals(proxy2, manager.selectAlternativeProxy(session, proxy1));
+        assertEquals(proxy2, manager.selectAlternativeProxy(session, proxy1));
+        assertEquals(proxy1, manager.selectProxy(session, "https://example.com/a"), "Hedge lookups must not consume the rotation");
+        assertTrue(manager.hasAlternativeProxy(session, proxy1));
+        session.setUserProxies(List.of(proxy1));
+        assertFalse(manager.hasAlternativeProxy(session, proxy1));
+        assertNull(manager.selectAlternativeProxy(session, proxy1));
+    }
+}
@@ -0,0 +1,77 @@
+package com.webscraper.services;
+
+import com.webscraper.infrastructure.image.ImageBuffer;
+import com.webscraper.infrastructure.image.ImageHeader;
+import com.webscraper.infrastructure.image.JpegQualityEstimator;
+import com.webscraper.infrastructure.image.RecompressionPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecompressionPolicyTest {
+
+    @Test
+    void testEstimatesQualityFromQuantizationTables() throws Exception {
+        BufferedImage image = testImage();
+        assertEquals(90, JpegQualityEstimator.estimate(ByteBuffer.wrap(encode(image, 0.9f))), 2);
+        assertEquals(50, JpegQualityEstimator.estimate(ByteBuffer.wrap(encode(image, 0.5f))), 2);
+        assertEquals(20, JpegQualityEstimator.estimate(ByteBuffer.wrap(encode(image, 0.2f))), 2);
+    }
+
+    @Test
+    void testNonJpegHasNoQuality() {
+        assertEquals(-1, JpegQualityEstimator.estimate(ByteBuffer.wrap("<html></html>".getBytes())));
+    }
+
+    @Test
+    void testLowQualityJpegIsPassedThrough() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RecompressionPolicy policy = new RecompressionPolicy(true, 60, 10.0, registry);
+        ImageBuffer low = ImageBuffer.wrap(encode(testImage(), 0.4f));
+        ImageBuffer high = ImageBuffer.wrap(encode(testImage(), 0.95f));
+
+        policy.recordCompression(ImageHeader.read(high), 1_000_000_000L);
+
+        assertFalse(policy.shouldPassThrough(high, ImageHeader.read(high)));
+        assertTrue(policy.shouldPassThrough(low, ImageHeader.read(low)));
+        assertEquals(1.0, registry.counter("scraper.images.passthrough").count());
+        assertEquals(1.0, registry.get("scraper.images.passthrough.cpu.saved").counter().count(), 1e-6);
+    }
+
+    @Test
+    void testDenseJpegIsRecompressed() throws Exception {
+        RecompressionPolicy policy = new RecompressionPolicy(true, 60, 0.0001, new SimpleMeterRegistry());
+        ImageBuffer low = ImageBuffer.wrap(encode(testImage(), 0.4f));
+        assertFalse(policy.shouldPassThrough(low, ImageHeader.read(low)));
+    }
+
+    private BufferedImage testImage() throws Exception {
+        return ImageIO.read(Objects.requireNonNull(getClass().getResourceAsStream("/imagesForTest/test-image2.jpg")));
+    }
+
+    private static byte[] encode(BufferedImage image, float quality) throws Exception {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        ImageWriteParam params = writer.getDefaultWriteParam();
+        params.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        params.setCompressionQuality(quality);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream ios = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), params);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
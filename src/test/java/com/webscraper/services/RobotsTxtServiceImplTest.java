@@ -25,7 +25,7 @@ class RobotsTxtServiceImplTest {
 
         Connection.Response mockResponse = Mockito.mock(Connection.Response.class);
         Mockito.when(mockResponse.statusCode()).thenReturn(200);
-        Mockito.when(mockResponse.body()).thenReturn(robotsContent);
+        Mockito.when(mockResponse.bodyAsBytes()).thenReturn(contentBytes);
 
         Connection mockConnection = Mockito.mock(Connection.class);
         Mockito.when(mockConnection.userAgent(Mockito.anyString())).thenReturn(mockConnection);
@@ -36,7 +36,7 @@ class RobotsTxtServiceImplTest {
         try (MockedStatic<Jsoup> jsoupMock = Mockito.mockStatic(Jsoup.class)) {
             jsoupMock.when(() -> Jsoup.connect(robotsUrl)).thenReturn(mockConnection);
 
-            RobotsTxtServiceImpl service = new RobotsTxtServiceImpl();
+            RobotsTxtServiceImpl service = newService();
             BaseRobotRules rules = service.getRules(domain);
 
             assertNotNull(rules);
@@ -62,18 +62,85 @@ class RobotsTxtServiceImplTest {
         try (MockedStatic<Jsoup> jsoupMock = Mockito.mockStatic(Jsoup.class)) {
             jsoupMock.when(() -> Jsoup.connect(robotsUrl)).thenReturn(mockConnection);
 
-            RobotsTxtServiceImpl service = new RobotsTxtServiceImpl();
+            RobotsTxtServiceImpl service = newService();
             BaseRobotRules rules = service.getRules(domain);
 
             assertNull(rules);
         }
     }
 
+    @Test
+    void testRulesAreCachedPerSchemeAndHost() throws Exception {
+        String robotsContent = "User-agent: *\nDisallow: /private";
+
+        Connection.Response mockResponse = Mockito.mock(Connection.Response.class);
+        Mockito.when(mockResponse.statusCode()).thenReturn(200);
+        Mockito.when(mockResponse.bodyAsBytes()).thenReturn(robotsContent.getBytes(StandardCharsets.UTF_8));
+
+        Connection mockConnection = Mockito.mock(Connection.class);
+        Mockito.when(mockConnection.userAgent(Mockito.anyString())).thenReturn(mockConnection);
+        Mockito.when(mockConnection.ignoreContentType(true)).thenReturn(mockConnection);
+        Mockito.when(mockConnection.timeout(Mockito.anyInt())).thenReturn(mockConnection);
+        Mockito.when(mockConnection.execute()).thenReturn(mockResponse);
+
+        try (MockedStatic<Jsoup> jsoupMock = Mockito.mockStatic(Jsoup.class)) {
+            jsoupMock.when(() -> Jsoup.connect(Mockito.anyString())).thenReturn(mockConnection);
+
+            RobotsTxtServiceImpl service = newService();
+            BaseRobotRules first = service.getRulesFor("https://blog.example.com/a").join();
+            BaseRobotRules second = service.getRulesFor("https://BLOG.example.com/b").join();
+            service.getRulesFor("http://blog.example.com/c").join();
+
+            assertSame(first, second);
+            assertFalse(first.isAllowed("https://blog.example.com/private/page"));
+            jsoupMock.verify(() -> Jsoup.connect("https://blog.example.com/robots.txt"), Mockito.times(1));
+            jsoupMock.verify(() -> Jsoup.connect("http://blog.example.com/robots.txt"), Mockito.times(1));
+        }
+    }
+
+    @Test
+    void testFailedFetchIsRetriedAfterFailureTtl() throws Exception {
+        try (MockedStatic<Jsoup> jsoupMock = Mockito.mockStatic(Jsoup.class)) {
+            Connection firstHost = unavailableOnce();
+            Connection secondHost = unavailableOnce();
+            jsoupMock.when(() -> Jsoup.connect("https://example.com/robots.txt")).thenReturn(firstHost);
+            jsoupMock.when(() -> Jsoup.connect("https://example.org/robots.txt")).thenReturn(secondHost);
+
+            RobotsTxtServiceImpl cachingFailures = new RobotsTxtServiceImpl(3600, 3600, 100, Runnable::run);
+            assertNull(cachingFailures.getRules("example.com"));
+            assertNull(cachingFailures.getRules("example.com"));
+            jsoupMock.verify(() -> Jsoup.connect("https://example.com/robots.txt"), Mockito.times(1));
+
+            RobotsTxtServiceImpl retrying = new RobotsTxtServiceImpl(3600, 0, 100, Runnable::run);
+            BaseRobotRules rules = retrying.getRules("example.org");
+            assertNotNull(rules);
+            assertFalse(rules.isAllowed("https://example.org/private"));
+            jsoupMock.verify(() -> Jsoup.connect("https://example.org/robots.txt"), Mockito.times(2));
+        }
+    }
+
     @Test
     void testIsAllowedReturnsTrueWhenRulesNull() {
-        RobotsTxtServiceImpl service = new RobotsTxtServiceImpl();
+        RobotsTxtServiceImpl service = newService();
         assertTrue(service.isAllowed("https://example.com/somepage", null));
     }
 
+    private static Connection unavailableOnce() throws Exception {
+        Connection.Response mockResponse = Mockito.mock(Connection.Response.class);
+        Mockito.when(mockResponse.statusCode()).thenReturn(200);
+        Mockito.when(mockResponse.bodyAsBytes()).thenReturn("User-agent: *\nDisallow: /private".getBytes(StandardCharsets.UTF_8));
+
+        Connection mockConnection = Mockito.mock(Connection.class);
+        Mockito.when(mockConnection.userAgent(Mockito.anyString())).thenReturn(mockConnection);
+        Mockito.when(mockConnection.ignoreContentType(true)).thenReturn(mockConnection);
+        Mockito.when(mockConnection.timeout(Mockito.anyInt())).thenReturn(mockConnection);
+        Mockito.when(mockConnection.execute())
+                .thenThrow(new HttpStatusException("Service Unavailable", 503, "https://example.com/robots.txt"))
+                .thenReturn(mockResponse);
+        return mockConnection;
+    }
 
+    private RobotsTxtServiceImpl newService() {
+        return new RobotsTxtServiceImpl(3600, 300, 100, Runnable::run);
+    }
 }
\ No newline at end of file
@@ -1,18 +1,23 @@
 package com.webscraper.services;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
-import com.webscraper.application.ports.DocumentService;
 import com.webscraper.application.ports.RobotsTxtService;
+import com.webscraper.application.ports.SitemapService;
+import com.webscraper.application.services.ImageJobQueue;
+import com.webscraper.application.services.QueueService;
+import com.webscraper.application.workers.ScraperEngine;
+import com.webscraper.domain.entities.ImagePage;
+import com.webscraper.domain.services.SessionService;
 import com.webscraper.infrastructure.db.entities.ImageEntity;
 import com.webscraper.domain.entities.ProxyInfo;
 import com.webscraper.infrastructure.db.repositories.ImageRepository;
-import com.webscraper.application.handlers.ContentHandler;
 import com.webscraper.application.services.ScraperServiceImpl;
 import crawlercommons.robots.BaseRobotRules;
 import java.net.URISyntaxException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -21,15 +26,16 @@ import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
 
 public class ScraperServiceImplTest {
 
     private ExecutorService linkExecutor;
     private RobotsTxtService robotsTxtService;
-    private ProxySelectorService proxySelectorService;
-    private DocumentService documentService;
-    private ContentHandler contentHandler;
     private ImageRepository imageRepository;
+    private ScraperEngine scraperEngine;
+    private QueueService queueService;
+    private SessionService sessionService;
 
     private ScraperServiceImpl scraperService;
 
@@ -37,18 +43,22 @@ public class ScraperServiceImplTest {
     public void setUp() {
         linkExecutor = Executors.newSingleThreadExecutor();
         robotsTxtService = mock(RobotsTxtService.class);
-        proxySelectorService = mock(ProxySelectorService.class);
-        documentService = mock(DocumentService.class);
-        contentHandler = mock(ContentHandler.class);
         imageRepository = mock(ImageRepository.class);
+        scraperEngine = mock(ScraperEngine.class);
+        queueService = mock(QueueService.class);
+        sessionService = mock(SessionService.class);
 
         scraperService = new ScraperServiceImpl(
                 linkExecutor,
                 robotsTxtService,
-                proxySelectorService,
-                documentService,
-                Collections.singletonList(contentHandler),
-                imageRepository);
+                imageRepository,
+                scraperEngine,
+                queueService,
+                mock(ImageJobQueue.class),
+                sessionService,
+                mock(SitemapService.class),
+                linkExecutor,
+                false);
     }
 
 
@@ -62,6 +72,7 @@ public class ScraperServiceImplTest {
         BaseRobotRules dummyRules = mock(BaseRobotRules.class);
         when(dummyRules.getCrawlDelay()).thenReturn(1000L);
         when(robotsTxtService.getRules("example.com")).thenReturn(dummyRules);
+        when(scraperEngine.startCrawling(any())).thenReturn(new CompletableFuture<>());
 
         CompletableFuture<String> sessionIdFuture = scraperService.startScraping(url, maxDepth, userDelay, userProxies);
         String sessionId = sessionIdFuture.join();
@@ -69,7 +80,7 @@ public class ScraperServiceImplTest {
         assertNotNull(sessionId, "SessionId must not be null");
 
         boolean stopResult = scraperService.stopScraping(sessionId);
-        assertNotNull(stopResult);
+        assertTrue(stopResult, "A running session must be stopped");
     }
 
     @Test
@@ -79,18 +90,38 @@ public class ScraperServiceImplTest {
     }
 
     @Test
-    public void testGetImageInfoBySiteFiltersByDomain() {
+    public void testGetImageInfoBySiteQueriesByDomain() {
+        ImageEntity image1 = image(1, "http://example.com/image1.jpg");
+        when(imageRepository.findByDomainAndIdGreaterThanOrderByIdAsc("example.com", 0, Limit.of(101)))
+                .thenReturn(List.of(image1));
 
-        ImageEntity image1 = new ImageEntity();
-        image1.setOriginalUrl("http://example.com/image1.jpg");
+        ImagePage page = scraperService.getImageInfoBySite("http://example.com/gallery", null, 100);
 
-        ImageEntity image2 = new ImageEntity();
-        image2.setOriginalUrl("http://other.com/image2.jpg");
+        assertEquals(List.of(image1), page.images());
+        assertNull(page.nextCursor(), "A short page must be the last one");
+        verify(imageRepository, never()).findAll();
+    }
 
-        when(imageRepository.findAll()).thenReturn(Arrays.asList(image1, image2));
+    @Test
+    public void testGetImageInfoBySiteReturnsCursorOfNextPage() {
+        List<ImageEntity> images = new ArrayList<>();
+        for (int id = 11; id <= 13; id++) {
+            images.add(image(id, "http://example.com/image" + id + ".jpg"));
+        }
+        when(imageRepository.findByDomainAndIdGreaterThanOrderByIdAsc("example.com", 10, Limit.of(3)))
+                .thenReturn(images);
+
+        ImagePage page = scraperService.getImageInfoBySite("example.com", 10L, 2);
+
+        assertEquals(2, page.images().size());
+        assertEquals(12L, page.nextCursor());
+    }
 
-        List<ImageEntity> images = scraperService.getImageInfoBySite("example.com");
-        assertEquals(1, images.size(), "Must return only one image for domain example.com");
-        assertEquals("http://example.com/image1.jpg", images.get(0).getOriginalUrl());
+    private static ImageEntity image(long id, String originalUrl) {
+        ImageEntity image = new ImageEntity();
+        image.setId(id);
+        image.setOriginalUrl(originalUrl);
+        image.setDomain("example.com");
+        return image;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package com.webscraper.services;
+
+import com.webscraper.infrastructure.image.storage.ShardedFileImageStorage;
+import com.webscraper.infrastructure.image.storage.StoredImage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedFileImageStorageTest {
+
+    @TempDir
+    Path root;
+
+    private ShardedFileImageStorage storage;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        storage.close();
+    }
+
+    @Test
+    void testImageIsWrittenUnderShardedDirectory() throws Exception {
+        storage = new ShardedFileImageStorage(root.toString(), 2, true, 1, 4, new SimpleMeterRegistry());
+
+        StoredImage stored = storage.store("example.com", "jpg", ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        stored.written().join();
+
+        Path file = Path.of(stored.location());
+        String name = file.getFileName().toString();
+        assertEquals(root.resolve("example.com").resolve(name.substring(0, 2)).resolve(name.substring(2, 4)), file.getParent());
+        assertTrue(name.endsWith(".jpg"));
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(file));
+        assertEquals(3, stored.size());
+        try (Stream<Path> files = Files.walk(root)) {
+            assertTrue(files.noneMatch(p -> p.toString().endsWith(".tmp")), "No temp file may be left behind");
+        }
+    }
+
+    @Test
+    void testManyWritesCompleteWithSmallQueue() {
+        storage = new ShardedFileImageStorage(root.toString(), 1, false, 2, 1, new SimpleMeterRegistry());
+
+        StoredImage[] stored = new StoredImage[50];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = storage.store("example.com", "jpg", ByteBuffer.wrap(new byte[]{(byte) i}));
+        }
+        for (StoredImage image : stored) {
+            image.written().join();
+            assertTrue(Files.exists(Path.of(image.location())));
+        }
+    }
+
+    @Test
+    void testDeleteWaitsForPendingWrite() throws Exception {
+        storage = new ShardedFileImageStorage(root.toString(), 2, false, 1, 4, new SimpleMeterRegistry());
+
+        StoredImage stored = storage.store("example.com", "jpg", ByteBuffer.wrap(new byte[]{1}));
+        storage.delete(stored.location());
+        stored.written().join();
+        storage.close();
+
+        assertFalse(Files.exists(Path.of(stored.location())));
+    }
+}
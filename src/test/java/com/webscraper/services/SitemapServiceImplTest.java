@@ -0,0 +1,103 @@
+package com.webscraper.services;
+
+import com.sun.net.httpserver.HttpServer;
+import com.webscraper.infrastructure.http.SitemapServiceImpl;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SitemapServiceImplTest {
+
+    private HttpServer server;
+    private CloseableHttpClient httpClient;
+    private String origin;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        origin = "http://127.0.0.1:" + server.getAddress().getPort();
+        serve("/sitemap.xml", ("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <sitemapindex xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                  <sitemap><loc>%s/pages.xml.gz</loc></sitemap>
+                </sitemapindex>
+                """.formatted(origin)).getBytes(StandardCharsets.UTF_8));
+        serve("/pages.xml.gz", gzip("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <urlset xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                  <url><loc>https://example.com/a</loc><lastmod>2024-05-01</lastmod></url>
+                  <url><loc>https://example.com/b</loc><lastmod>2024-05-02T10:15:00+00:00</lastmod></url>
+                  <url><loc>https://example.com/c</loc></url>
+                </urlset>
+                """));
+        server.start();
+        httpClient = HttpClients.createDefault();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void testReadsIndexAndGzippedSitemap() {
+        SitemapServiceImpl service = new SitemapServiceImpl(httpClient, 10, 100);
+        List<String> entries = new ArrayList<>();
+
+        long read = service.readSitemaps(origin + "/", null, entries::add);
+
+        assertEquals(3, read);
+        assertEquals(List.of("https://example.com/a", "https://example.com/b", "https://example.com/c"), entries);
+    }
+
+    @Test
+    void testStopsWhenConsumerDeclines() {
+        SitemapServiceImpl service = new SitemapServiceImpl(httpClient, 10, 100);
+        List<String> entries = new ArrayList<>();
+
+        long read = service.readSitemaps(origin + "/", null, url -> entries.add(url) && entries.size() < 2);
+
+        assertEquals(1, read);
+        assertEquals(2, entries.size());
+    }
+
+    @Test
+    void testRespectsUrlLimit() {
+        SitemapServiceImpl service = new SitemapServiceImpl(httpClient, 10, 2);
+
+        long read = service.readSitemaps(origin + "/", null, url -> true);
+
+        assertEquals(2, read);
+    }
+
+    private void serve(String path, byte[] body) {
+        server.createContext(path, exchange -> {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -5,6 +5,7 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.junit.jupiter.api.Test;
 
+import java.util.Map;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -97,4 +98,20 @@ public class LinkExtractorUtilTest {
         Set<String> cssImages = LinkExtractorUtil.extractCssImages(doc);
         assertTrue(cssImages.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testExtractDeclaredImageSizes() {
+        String html = "<html>" +
+                "  <body>" +
+                "    <img src='/images/big.png' width='800' height='600px' />" +
+                "    <img src='/images/auto.jpg' width='auto' height='100' />" +
+                "    <img src='/images/plain.jpg' />" +
+                "  </body>" +
+                "</html>";
+
+        Document doc = Jsoup.parse(html, "http://example.com");
+        Map<String, Long> sizes = LinkExtractorUtil.extractDeclaredImageSizes(doc);
+
+        assertEquals(Map.of("http://example.com/images/big.png", 480_000L), sizes);
+    }
+}